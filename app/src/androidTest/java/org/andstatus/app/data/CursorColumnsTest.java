@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2017 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.data;
+
+import android.database.MatrixCursor;
+
+import org.andstatus.app.context.TestSuite;
+import org.andstatus.app.database.table.ActivityTable;
+import org.andstatus.app.database.table.DownloadTable;
+import org.andstatus.app.database.table.MsgTable;
+import org.andstatus.app.database.table.UserTable;
+import org.andstatus.app.util.MyLog;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author yvolk@yurivolkov.com
+ */
+public class CursorColumnsTest {
+    private static final int ROWS_COUNT = 10000;
+    private static final String[] COLUMNS = new String[] {
+            ActivityTable.ACTIVITY_ID, ActivityTable.MSG_ID, ActivityTable.ORIGIN_ID, ActivityTable.INS_DATE,
+            ActivityTable.UPDATED_DATE, UserTable.LINKED_USER_ID, UserTable.AUTHOR_NAME, MsgTable.AUTHOR_ID,
+            MsgTable.BODY, MsgTable.IN_REPLY_TO_MSG_ID, MsgTable.IN_REPLY_TO_USER_ID, UserTable.IN_REPLY_TO_NAME,
+            UserTable.RECIPIENT_NAME, MsgTable.UPDATED_DATE, MsgTable.MSG_STATUS, MsgTable.FAVORITED,
+            MsgTable.REBLOGGED, MsgTable.VIA, DownloadTable.AVATAR_FILE_NAME, DownloadTable.IMAGE_ID,
+            DownloadTable.IMAGE_FILE_NAME
+    };
+
+    @Before
+    public void setUp() throws Exception {
+        TestSuite.initialize(this);
+    }
+
+    /**
+     * Compares the getters only: {@link DbUtils} getters, which look up a column index for each value,
+     * with the cached column indexes, on an in-memory cursor with columns of a timeline row.
+     * Creation of view items from the rows is not measured, so the gain of the whole mapping is smaller
+     */
+    @Test
+    public void testMappingAndSpeed() {
+        MatrixCursor cursor = newCursor();
+
+        long startTime = System.nanoTime();
+        long sumByName = 0;
+        while (cursor.moveToNext()) {
+            for (int ind = 0; ind < COLUMNS.length; ind++) {
+                sumByName += isTextColumn(ind)
+                        ? DbUtils.getString(cursor, COLUMNS[ind]).length()
+                        : DbUtils.getLong(cursor, COLUMNS[ind]);
+            }
+        }
+        long byNameNanos = System.nanoTime() - startTime;
+
+        cursor.moveToPosition(-1);
+        startTime = System.nanoTime();
+        long sumByColumns = 0;
+        CursorColumns columns = new CursorColumns(cursor);
+        while (cursor.moveToNext()) {
+            for (int ind = 0; ind < COLUMNS.length; ind++) {
+                sumByColumns += isTextColumn(ind)
+                        ? columns.getString(COLUMNS[ind]).length()
+                        : columns.getLong(COLUMNS[ind]);
+            }
+        }
+        long byColumnsNanos = System.nanoTime() - startTime;
+
+        assertEquals("The same values mapped", sumByName, sumByColumns);
+        assertEquals("Absent column", 0, columns.getLong("no_such_column"));
+        assertEquals("Absent column", "", columns.getString("no_such_column"));
+        MyLog.i(this, ROWS_COUNT + " rows, " + COLUMNS.length + " columns. Rows/second: by column name "
+                + rowsPerSecond(byNameNanos) + ", by cached column indexes " + rowsPerSecond(byColumnsNanos));
+    }
+
+    private static MatrixCursor newCursor() {
+        MatrixCursor cursor = new MatrixCursor(COLUMNS, ROWS_COUNT);
+        for (int row = 0; row < ROWS_COUNT; row++) {
+            Object[] values = new Object[COLUMNS.length];
+            for (int ind = 0; ind < values.length; ind++) {
+                values[ind] = isTextColumn(ind) ? "text" + row : Long.valueOf(row + ind);
+            }
+            cursor.addRow(values);
+        }
+        return cursor;
+    }
+
+    private static boolean isTextColumn(int ind) {
+        return ind % 3 == 0;
+    }
+
+    private static long rowsPerSecond(long nanos) {
+        return nanos == 0 ? 0 : ROWS_COUNT * 1000000000L / nanos;
+    }
+}
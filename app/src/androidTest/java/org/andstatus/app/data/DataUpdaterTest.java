@@ -18,6 +18,7 @@ package org.andstatus.app.data;
 
 import android.content.Context;
 import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
 import android.net.Uri;
 import android.support.test.InstrumentationRegistry;
 
@@ -42,12 +43,16 @@ import org.andstatus.app.service.CommandEnum;
 import org.andstatus.app.service.CommandExecutionContext;
 import org.andstatus.app.timeline.meta.Timeline;
 import org.andstatus.app.timeline.meta.TimelineType;
+import org.andstatus.app.util.MyLog;
 import org.andstatus.app.util.SelectionAndArgs;
 import org.andstatus.app.util.TriState;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import static org.andstatus.app.context.DemoData.demoData;
@@ -237,6 +242,10 @@ public class DataUpdaterTest {
         }
         assertEquals("Message is not favorited by " + otherUser + ": " + stargazers,
                 true, favoritedByOtherUser);
+        Map<Long, List<MbUser>> stargazersOfMessages = MyQuery.getStargazers(myContext.getDatabase(),
+                Arrays.asList(messageId, 0L));
+        assertEquals("Stargazers of messages " + stargazersOfMessages, 1, stargazersOfMessages.size());
+        assertEquals("Stargazers of messages " + stargazersOfMessages, stargazers, stargazersOfMessages.get(messageId));
         assertNotEquals("Message is favorited (by some my account)", TriState.TRUE,
                 MyQuery.msgIdToTriState(MsgTable.FAVORITED, messageId));
         assertEquals("Activity is subscribed " + likeActivity, TriState.UNKNOWN,
@@ -599,4 +608,124 @@ public class DataUpdaterTest {
         long messageId = di.onActivity(activity2).getMessage().msgId;
         assertTrue("Message added", messageId != 0);
     }
+
+    @Test
+    public void testBatchThroughput() {
+        final int activitiesCount = 50;
+        MyAccount ma = demoData.getMyAccount(demoData.GNUSOCIAL_TEST_ACCOUNT_NAME);
+        DataUpdater di = new DataUpdater(ma);
+
+        List<MbActivity> activities = DemoPage.newActivities(ma,
+                "throughput-one-" + demoData.TESTRUN_UID, activitiesCount);
+        long startTime = System.nanoTime();
+        for (MbActivity activity : activities) {
+            di.onActivity(activity, false);
+        }
+        long oneByOneNanos = System.nanoTime() - startTime;
+        assertMessagesAdded(activities);
+        List<String> oneByOneRows = storedRowsOf(activities, "throughput-one-");
+
+        activities = DemoPage.newActivities(ma,
+                "throughput-batch-" + demoData.TESTRUN_UID, activitiesCount);
+        startTime = System.nanoTime();
+        di.onActivities(activities, false);
+        long batchNanos = System.nanoTime() - startTime;
+        assertMessagesAdded(activities);
+        di.saveLum();
+        assertEquals("Rows stored in one transaction", oneByOneRows, storedRowsOf(activities, "throughput-batch-"));
+
+        MyLog.i(this, "Activities per second, one by one: " + activitiesPerSecond(activitiesCount, oneByOneNanos)
+                + ", in one transaction: " + activitiesPerSecond(activitiesCount, batchNanos));
+    }
+
+    @Test
+    public void testUnchangedUserIsNotWritten() {
+        MyAccount ma = demoData.getMyAccount(demoData.GNUSOCIAL_TEST_ACCOUNT_NAME);
+        String prefix = "unchanged" + demoData.TESTRUN_UID;
+        final long updatedDate = System.currentTimeMillis() - 60000;
+        List<MbActivity> activities = newPageOfUser(ma, prefix, "Unchanged location", updatedDate);
+        new DataUpdater(ma).onActivities(activities, false);
+        long userId = activities.get(0).getActor().userId;
+        assertNotEquals("User added", 0, userId);
+        assertEquals(updatedDate, MyQuery.userIdToLongColumnValue(UserTable.UPDATED_DATE, userId));
+
+        SQLiteDatabase db = MyContextHolder.get().getDatabase();
+        DbUtils.execSQL(db, "CREATE TEMP TABLE user_updates (user_id INTEGER)");
+        DbUtils.execSQL(db, "CREATE TEMP TRIGGER user_updates_trigger AFTER UPDATE ON main." + UserTable.TABLE_NAME
+                + " WHEN new._id=" + userId + " BEGIN INSERT INTO user_updates VALUES (new._id); END");
+        try {
+            activities = newPageOfUser(ma, prefix, "Unchanged location", updatedDate);
+            new DataUpdater(ma).onActivities(activities, false);
+            assertEquals("The same user", userId, activities.get(0).getActor().userId);
+            assertEquals("The same user is not written", 0,
+                    MyQuery.sqlToLong(db, "userUpdates", "SELECT COUNT(*) FROM user_updates"));
+            assertEquals(updatedDate, MyQuery.userIdToLongColumnValue(UserTable.UPDATED_DATE, userId));
+
+            activities = newPageOfUser(ma, prefix, "Changed location", updatedDate + 1000);
+            new DataUpdater(ma).onActivities(activities, false);
+            assertEquals("The changed user is written", 1,
+                    MyQuery.sqlToLong(db, "userUpdates", "SELECT COUNT(*) FROM user_updates"));
+            assertEquals("Changed location", MyQuery.userIdToStringColumnValue(UserTable.LOCATION, userId));
+            assertEquals(updatedDate + 1000, MyQuery.userIdToLongColumnValue(UserTable.UPDATED_DATE, userId));
+        } finally {
+            DbUtils.execSQL(db, "DROP TRIGGER IF EXISTS user_updates_trigger");
+            DbUtils.execSQL(db, "DROP TABLE IF EXISTS user_updates");
+        }
+    }
+
+    private static List<MbActivity> newPageOfUser(MyAccount ma, String prefix, String location, long updatedDate) {
+        List<MbActivity> activities = DemoPage.newActivities(ma, prefix, 1);
+        MbUser user = activities.get(0).getActor();
+        user.location = location;
+        user.setUpdatedDate(updatedDate);
+        return activities;
+    }
+
+    /** Stored values, which shouldn't depend on the way of storing, with the prefix of oids and bodies removed */
+    private static List<String> storedRowsOf(List<MbActivity> activities, String prefix) {
+        List<String> rows = new ArrayList<>();
+        for (MbActivity activity : activities) {
+            long msgId = activity.getMessage().msgId;
+            long authorId = MyQuery.msgIdToLongColumnValue(MsgTable.AUTHOR_ID, msgId);
+            rows.add((MyQuery.idToOid(OidEnum.MSG_OID, msgId, 0)
+                    + "; " + MyQuery.msgIdToStringColumnValue(MsgTable.BODY, msgId)
+                    + "; status:" + MyQuery.msgIdToLongColumnValue(MsgTable.MSG_STATUS, msgId)
+                    + "; author:" + MyQuery.idToOid(OidEnum.USER_OID, authorId, 0)
+                    + "; type:" + MyQuery.activityIdToLongColumnValue(ActivityTable.ACTIVITY_TYPE, activity.getId())
+                    + "; activities:" + MyQuery.sqlToLong(null, "storedRows", "SELECT COUNT(*) FROM "
+                    + ActivityTable.TABLE_NAME + " WHERE " + ActivityTable.MSG_ID + "=" + msgId)
+                    + "; audience:" + Audience.fromMsgId(activity.getMessage().originId, msgId).getRecipients().size()
+            ).replace(prefix, ""));
+        }
+        return rows;
+    }
+
+    @Test
+    public void testFailedTransactionIsRolledBack() {
+        MyAccount ma = demoData.getMyAccount(demoData.GNUSOCIAL_TEST_ACCOUNT_NAME);
+        List<MbActivity> activities = DemoPage.newActivities(ma, "rollback" + demoData.TESTRUN_UID, 2);
+        try {
+            DbUtils.inTransaction(MyContextHolder.get(), () -> {
+                new DataUpdater(ma).onActivity(activities.get(0), false);
+                assertNotEquals("Message added in the transaction", 0, activities.get(0).getMessage().msgId);
+                throw new IllegalStateException("Failure after the first activity");
+            });
+            fail("The exception should be rethrown");
+        } catch (IllegalStateException e) {
+            // Expected
+        }
+        assertEquals("Message rolled back", 0, MyQuery.oidToId(OidEnum.MSG_OID, ma.getOriginId(),
+                activities.get(0).getMessage().oid));
+    }
+
+    private static void assertMessagesAdded(List<MbActivity> activities) {
+        for (MbActivity activity : activities) {
+            assertNotEquals("Message added " + activity, 0, activity.getMessage().msgId);
+            assertNotEquals("Activity added " + activity, 0, activity.getId());
+        }
+    }
+
+    private static long activitiesPerSecond(int count, long nanos) {
+        return nanos > 0 ? count * 1000000000L / nanos : 0;
+    }
 }
@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2017 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.data;
+
+import org.andstatus.app.account.MyAccount;
+import org.andstatus.app.net.social.MbActivity;
+import org.andstatus.app.net.social.MbUser;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A page of new messages of one author, as if downloaded from a timeline.
+ * Each activity has its own occurrence of the author, as after parsing of a response
+ * @author yvolk@yurivolkov.com
+ */
+public class DemoPage {
+
+    private DemoPage() {
+        // Empty
+    }
+
+    /** @param prefix unique for the page: oids of the author, of messages and of activities start with it */
+    public static List<MbActivity> newActivities(MyAccount ma, String prefix, int count) {
+        MbUser accountUser = ma.toPartialUser();
+        long updatedDate = System.currentTimeMillis();
+        List<MbActivity> activities = new ArrayList<>();
+        for (int ind = 0; ind < count; ind++) {
+            MbUser author = MbUser.fromOriginAndUserOid(ma.getOriginId(), prefix + "author");
+            author.setUserName(prefix + "author@example.com");
+            MbActivity activity = MbActivity.newPartialMessage(accountUser, prefix + "-msg-" + ind,
+                    updatedDate, DownloadStatus.LOADED);
+            activity.setActor(author);
+            activity.setTimelinePosition(prefix + "-activity-" + ind);
+            activity.getMessage().setBody("Message " + ind + " of a page");
+            activities.add(activity);
+        }
+        return activities;
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2017 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.data;
+
+import org.andstatus.app.account.MyAccount;
+import org.andstatus.app.context.TestSuite;
+import org.andstatus.app.database.table.UserTable;
+import org.andstatus.app.net.social.MbActivity;
+import org.andstatus.app.net.social.MbUser;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.andstatus.app.context.DemoData.demoData;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+
+public class MergedUsersTest {
+    private static final int MESSAGES_COUNT = 4;
+
+    @Before
+    public void setUp() throws Exception {
+        TestSuite.initializeWithData(this);
+    }
+
+    @Test
+    public void testOccurrencesAreMerged() {
+        MyAccount ma = demoData.getMyAccount(demoData.GNUSOCIAL_TEST_ACCOUNT_NAME);
+        String prefix = "merged" + demoData.TESTRUN_UID;
+        List<MbActivity> activities = newPage(ma, prefix);
+        MergedUsers users = MergedUsers.of(activities);
+
+        MbUser latest = users.get(activities.get(0).getActor());
+        assertSame("The most recently updated occurrence", activities.get(2).getActor(), latest);
+        assertEquals("Real name of an older occurrence", "Real " + prefix, latest.getRealName());
+        assertEquals("Location of the latest occurrence", "Latest location", latest.location);
+        assertEquals("Followers of an older occurrence", 17, latest.followersCount);
+        assertEquals(0, users.storedId(activities.get(1).getActor()));
+
+        new DataUpdater(ma).onActivities(activities, true);
+        long authorId = activities.get(0).getActor().userId;
+        assertNotEquals("Author added", 0, authorId);
+        for (MbActivity activity : activities) {
+            assertEquals("The same author " + activity, authorId, activity.getActor().userId);
+            assertNotEquals("Message added " + activity, 0, activity.getMessage().msgId);
+        }
+        assertEquals("Real " + prefix, MyQuery.userIdToStringColumnValue(UserTable.REAL_NAME, authorId));
+        assertEquals("Latest location", MyQuery.userIdToStringColumnValue(UserTable.LOCATION, authorId));
+        assertEquals(17, MyQuery.userIdToLongColumnValue(UserTable.FOLLOWERS_COUNT, authorId));
+
+        activities = newPage(ma, prefix);
+        new DataUpdater(ma).onActivities(activities, true);
+        for (MbActivity activity : activities) {
+            assertEquals("The same author " + activity, authorId, activity.getActor().userId);
+        }
+        assertEquals("Latest location", MyQuery.userIdToStringColumnValue(UserTable.LOCATION, authorId));
+    }
+
+    private static List<MbActivity> newPage(MyAccount ma, String prefix) {
+        List<MbActivity> activities = DemoPage.newActivities(ma, prefix, MESSAGES_COUNT);
+        MbUser older = activities.get(1).getActor();
+        older.setRealName("Real " + prefix);
+        older.location = "Older location";
+        older.followersCount = 17;
+        older.setUpdatedDate(activities.get(1).getMessage().getUpdatedDate() - 1000);
+        MbUser latest = activities.get(2).getActor();
+        latest.location = "Latest location";
+        latest.setUpdatedDate(activities.get(2).getMessage().getUpdatedDate());
+        return activities;
+    }
+}
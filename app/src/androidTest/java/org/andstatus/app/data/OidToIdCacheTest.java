@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2017 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.data;
+
+import android.database.sqlite.SQLiteDatabase;
+
+import org.andstatus.app.context.MyContextHolder;
+import org.andstatus.app.context.TestSuite;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.andstatus.app.context.DemoData.demoData;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class OidToIdCacheTest {
+    private SQLiteDatabase db;
+
+    @Before
+    public void setUp() throws Exception {
+        TestSuite.initializeWithData(this);
+        db = MyContextHolder.get().getDatabase();
+        OidToIdCache.clear();
+    }
+
+    @After
+    public void tearDown() {
+        OidToIdCache.clear();
+    }
+
+    @Test
+    public void testFoundAndNotFound() {
+        final long originId = 1;
+        String oid = "cachedMsg" + demoData.TESTRUN_UID;
+        assertNull(OidToIdCache.get(db, OidEnum.MSG_OID, originId, oid));
+        OidToIdCache.onQueried(db, OidEnum.MSG_OID, originId, oid, 0);
+        assertEquals("Not found is cached", Long.valueOf(0), OidToIdCache.get(db, OidEnum.MSG_OID, originId, oid));
+
+        OidToIdCache.put(OidEnum.MSG_OID, originId, oid, 5);
+        assertEquals("Added row", Long.valueOf(5), OidToIdCache.get(db, OidEnum.MSG_OID, originId, oid));
+        assertNull("Other kind of oid", OidToIdCache.get(db, OidEnum.USER_OID, originId, oid));
+
+        String newOid = oid + "new";
+        OidToIdCache.put(OidEnum.MSG_OID, originId, newOid, 5);
+        assertNull("Old oid is forgotten", OidToIdCache.get(db, OidEnum.MSG_OID, originId, oid));
+        assertEquals(Long.valueOf(5), OidToIdCache.get(db, OidEnum.MSG_OID, originId, newOid));
+
+        OidToIdCache.onDeleted(OidEnum.MSG_OID);
+        assertNull("Deleted", OidToIdCache.get(db, OidEnum.MSG_OID, originId, newOid));
+        assertTrue(OidToIdCache.getStats(), OidToIdCache.getStats().contains("7 requests, hits 42%"));
+    }
+
+    @Test
+    public void testNotFoundDoesNotReplaceFound() {
+        final long originId = 1;
+        String oid = "foundMsg" + demoData.TESTRUN_UID;
+        OidToIdCache.put(OidEnum.MSG_OID, originId, oid, 7);
+        OidToIdCache.onQueried(db, OidEnum.MSG_OID, originId, oid, 0);
+        assertEquals("Found id is kept", Long.valueOf(7), OidToIdCache.get(db, OidEnum.MSG_OID, originId, oid));
+    }
+
+    @Test
+    public void testUncommittedIdsAreNotShared() {
+        final long originId = 1;
+        final String oid = "uncommittedMsg" + demoData.TESTRUN_UID;
+        DbUtils.inTransaction(MyContextHolder.get(), () -> {
+            OidToIdCache.put(OidEnum.MSG_OID, originId, oid, 8);
+            OidToIdCache.onQueried(db, OidEnum.MSG_OID, originId, oid, 0);
+            assertEquals("In this thread", Long.valueOf(8), OidToIdCache.get(db, OidEnum.MSG_OID, originId, oid));
+            assertNull("In other thread", getInOtherThread(originId, oid));
+        });
+        assertEquals("Shared after commit", Long.valueOf(8), getInOtherThread(originId, oid));
+
+        final String oid2 = oid + "rolledBack";
+        try {
+            DbUtils.inTransaction(MyContextHolder.get(), () -> {
+                OidToIdCache.put(OidEnum.MSG_OID, originId, oid2, 9);
+                throw new IllegalStateException("Rollback");
+            });
+            fail("Exception expected");
+        } catch (IllegalStateException e) {
+            // Expected
+        }
+        assertNull("Rolled back", OidToIdCache.get(db, OidEnum.MSG_OID, originId, oid2));
+    }
+
+    private Long getInOtherThread(long originId, String oid) {
+        final AtomicReference<Long> id = new AtomicReference<>();
+        Thread thread = new Thread(() -> id.set(OidToIdCache.get(db, OidEnum.MSG_OID, originId, oid)));
+        thread.start();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            fail("Interrupted");
+        }
+        return id.get();
+    }
+
+    @Test
+    public void testEviction() {
+        final long originId = 1;
+        for (int ind = 0; ind < OidToIdCache.MAX_ENTRIES + 10; ind++) {
+            OidToIdCache.put(OidEnum.USER_OID, originId, "user" + ind, ind + 1);
+        }
+        assertNull("Eldest evicted", OidToIdCache.get(db, OidEnum.USER_OID, originId, "user0"));
+        assertNotNull("Youngest kept", OidToIdCache.get(db, OidEnum.USER_OID, originId,
+                "user" + (OidToIdCache.MAX_ENTRIES + 9)));
+        assertTrue(OidToIdCache.getStats(), OidToIdCache.getStats().contains("evictions: 10"));
+    }
+
+    @Test
+    public void testOidToId() {
+        long msgId = MyQuery.oidToId(OidEnum.MSG_OID, demoData.getConversationOriginId(),
+                demoData.CONVERSATION_ENTRY_MESSAGE_OID);
+        assertTrue("Message found", msgId != 0);
+        assertEquals("Cached", Long.valueOf(msgId), OidToIdCache.get(db, OidEnum.MSG_OID,
+                demoData.getConversationOriginId(), demoData.CONVERSATION_ENTRY_MESSAGE_OID));
+        assertEquals(msgId, MyQuery.oidToId(OidEnum.MSG_OID, demoData.getConversationOriginId(),
+                demoData.CONVERSATION_ENTRY_MESSAGE_OID));
+    }
+}
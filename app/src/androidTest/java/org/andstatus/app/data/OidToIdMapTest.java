@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2017 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.data;
+
+import org.andstatus.app.account.MyAccount;
+import org.andstatus.app.context.TestSuite;
+import org.andstatus.app.net.social.MbActivity;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.andstatus.app.context.DemoData.demoData;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+public class OidToIdMapTest {
+    private static final int MESSAGES_COUNT = 5;
+
+    @Before
+    public void setUp() throws Exception {
+        TestSuite.initializeWithData(this);
+    }
+
+    @Test
+    public void testPageOfNewAndStoredMessages() {
+        MyAccount ma = demoData.getMyAccount(demoData.GNUSOCIAL_TEST_ACCOUNT_NAME);
+        DataUpdater di = new DataUpdater(ma);
+        String prefix = "oidmap" + demoData.TESTRUN_UID;
+
+        List<MbActivity> activities = DemoPage.newActivities(ma, prefix, MESSAGES_COUNT);
+        di.onActivities(activities, true);
+        long authorId = MyQuery.oidToId(OidEnum.USER_OID, ma.getOriginId(), prefix + "author");
+        assertNotEquals("Author added", 0, authorId);
+        List<Long> msgIds = new ArrayList<>();
+        for (MbActivity activity : activities) {
+            assertEquals("The same author " + activity, authorId, activity.getAuthor().userId);
+            long msgId = activity.getMessage().msgId;
+            assertNotEquals("Message added " + activity, 0, msgId);
+            assertEquals("Message id " + activity, msgId,
+                    MyQuery.oidToId(OidEnum.MSG_OID, ma.getOriginId(), activity.getMessage().oid));
+            assertEquals("Activity id " + activity, activity.getId(), MyQuery.oidToId(OidEnum.ACTIVITY_OID,
+                    ma.getOriginId(), activity.getTimelinePosition().getPosition()));
+            msgIds.add(msgId);
+        }
+
+        activities = DemoPage.newActivities(ma, prefix, MESSAGES_COUNT);
+        di.onActivities(activities, true);
+        for (int ind = 0; ind < MESSAGES_COUNT; ind++) {
+            MbActivity activity = activities.get(ind);
+            assertEquals("The same author " + activity, authorId, activity.getAuthor().userId);
+            assertEquals("The same message " + activity, (long) msgIds.get(ind), activity.getMessage().msgId);
+        }
+    }
+}
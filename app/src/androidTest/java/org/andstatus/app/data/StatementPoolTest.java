@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2017 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.data;
+
+import org.andstatus.app.context.TestSuite;
+import org.andstatus.app.database.table.MsgTable;
+import org.andstatus.app.util.MyLog;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.andstatus.app.context.DemoData.demoData;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class StatementPoolTest {
+
+    @Before
+    public void setUp() throws Exception {
+        TestSuite.initializeWithData(this);
+        StatementPool.release();
+    }
+
+    @Test
+    public void testLookupsReuseStatements() {
+        long msgId = MyQuery.oidToId(OidEnum.MSG_OID, demoData.getConversationOriginId(),
+                demoData.CONVERSATION_ENTRY_MESSAGE_OID);
+        assertTrue("Message found", msgId != 0);
+        String body = MyQuery.msgIdToStringColumnValue(MsgTable.BODY, msgId);
+        assertEquals("The same value as by a literal query", body,
+                MyQuery.conditionToStringColumnValue(MsgTable.TABLE_NAME, MsgTable.BODY, "_id=" + msgId));
+        long originId = MyQuery.msgIdToLongColumnValue(MsgTable.ORIGIN_ID, msgId);
+        assertEquals("The same value as by a literal query", originId,
+                MyQuery.conditionToLongColumnValue(MsgTable.TABLE_NAME, MsgTable.ORIGIN_ID, "_id=" + msgId));
+        assertEquals(demoData.CONVERSATION_ENTRY_MESSAGE_OID, MyQuery.idToOid(OidEnum.MSG_OID, msgId, 0));
+        int poolSize = StatementPool.size();
+
+        final int iterations = 1000;
+        long startTime = System.nanoTime();
+        for (int ind = 0; ind < iterations; ind++) {
+            assertEquals(originId, MyQuery.msgIdToLongColumnValue(MsgTable.ORIGIN_ID, msgId));
+        }
+        long pooledNanos = System.nanoTime() - startTime;
+        assertEquals("Statements are reused", poolSize, StatementPool.size());
+
+        startTime = System.nanoTime();
+        for (int ind = 0; ind < iterations; ind++) {
+            assertEquals(originId,
+                    MyQuery.conditionToLongColumnValue(MsgTable.TABLE_NAME, MsgTable.ORIGIN_ID, "_id=" + msgId));
+        }
+        long compiledNanos = System.nanoTime() - startTime;
+        MyLog.i(this, "Lookups per second, reused statement: " + iterations * 1000000000L / pooledNanos
+                + ", compiled each time: " + iterations * 1000000000L / compiledNanos);
+
+        assertEquals("Not found", 0, MyQuery.msgIdToLongColumnValue(MsgTable.ORIGIN_ID, Long.MAX_VALUE));
+        assertEquals("Not found", "", MyQuery.msgIdToStringColumnValue(MsgTable.BODY, Long.MAX_VALUE));
+        StatementPool.release();
+        assertEquals(0, StatementPool.size());
+    }
+
+    @Test
+    public void testUnquoted() {
+        assertEquals("", MyQuery.unquoted(null));
+        assertEquals("abc", MyQuery.unquoted(" abc "));
+        assertEquals("abc", MyQuery.unquoted("'abc'"));
+        assertEquals("it's", MyQuery.unquoted("it's"));
+        assertEquals("'", MyQuery.unquoted("'"));
+    }
+}
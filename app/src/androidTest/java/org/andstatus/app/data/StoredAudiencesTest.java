@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2017 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.data;
+
+import android.database.sqlite.SQLiteDatabase;
+
+import org.andstatus.app.context.MyContextHolder;
+import org.andstatus.app.context.TestSuite;
+import org.andstatus.app.database.table.AudienceTable;
+import org.andstatus.app.net.social.Audience;
+import org.andstatus.app.net.social.MbUser;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.andstatus.app.context.DemoData.demoData;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class StoredAudiencesTest {
+    private SQLiteDatabase db;
+
+    @Before
+    public void setUp() throws Exception {
+        TestSuite.initializeWithData(this);
+        db = MyContextHolder.get().getDatabase();
+        StoredAudiences.onChanged();
+    }
+
+    @Test
+    public void testSaveSets() {
+        long originId = demoData.getConversationOriginId();
+        long msgId = MyQuery.oidToId(OidEnum.MSG_OID, originId, demoData.CONVERSATION_ENTRY_MESSAGE_OID);
+        assertTrue("Message found", msgId != 0);
+        Set<Long> initialIds = idsOf(Audience.fromMsgId(originId, msgId));
+        long userId1 = MyQuery.oidToId(OidEnum.USER_OID, originId, demoData.CONVERSATION_AUTHOR_SECOND_USER_OID);
+        long userId2 = MyQuery.oidToId(OidEnum.USER_OID, originId, demoData.CONVERSATION_AUTHOR_THIRD_USER_OID);
+        assertTrue("Users found", userId1 != 0 && userId2 != 0);
+
+        Set<Long> ids = new HashSet<>(Arrays.asList(userId1, userId2));
+        StoredAudiences.save(db, msgId, ids);
+        assertEquals(ids, idsOf(Audience.fromMsgId(originId, msgId)));
+
+        // A row, deleted behind the back of StoredAudiences, shows that an unchanged audience is not written
+        db.delete(AudienceTable.TABLE_NAME, AudienceTable.MSG_ID + "=" + msgId
+                + " AND " + AudienceTable.USER_ID + "=" + userId2, null);
+        StoredAudiences.save(db, msgId, ids);
+        assertEquals("Unchanged audience is not written", new HashSet<>(Collections.singletonList(userId1)),
+                idsOf(Audience.fromMsgId(originId, msgId)));
+        StoredAudiences.onChanged();
+        StoredAudiences.save(db, msgId, ids);
+        assertEquals("Written after the change", ids, idsOf(Audience.fromMsgId(originId, msgId)));
+
+        ids.remove(userId1);
+        StoredAudiences.save(db, msgId, ids);
+        assertEquals("Recipient removed", ids, idsOf(Audience.fromMsgId(originId, msgId)));
+
+        StoredAudiences.onChanged();
+        ids.add(userId1);
+        StoredAudiences.save(db, msgId, ids);
+        assertEquals("Saved, when the stored audience is not known", ids, idsOf(Audience.fromMsgId(originId, msgId)));
+
+        StoredAudiences.save(db, msgId, initialIds);
+        assertEquals("Restored", initialIds, idsOf(Audience.fromMsgId(originId, msgId)));
+    }
+
+    private static Set<Long> idsOf(Audience audience) {
+        Set<Long> ids = new HashSet<>();
+        for (MbUser user : audience.getRecipients()) {
+            ids.add(user.userId);
+        }
+        return ids;
+    }
+}
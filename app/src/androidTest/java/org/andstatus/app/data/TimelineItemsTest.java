@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2017 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.data;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.net.Uri;
+import android.provider.BaseColumns;
+
+import org.andstatus.app.account.MyAccount;
+import org.andstatus.app.context.MyContextHolder;
+import org.andstatus.app.context.MyPreferences;
+import org.andstatus.app.context.TestSuite;
+import org.andstatus.app.database.table.ActivityTable;
+import org.andstatus.app.database.table.DownloadTable;
+import org.andstatus.app.database.table.FriendshipTable;
+import org.andstatus.app.database.table.UserTable;
+import org.andstatus.app.timeline.meta.Timeline;
+import org.andstatus.app.timeline.meta.TimelineType;
+import org.andstatus.app.util.SharedPreferencesUtil;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.andstatus.app.context.DemoData.demoData;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author yvolk@yurivolkov.com
+ */
+public class TimelineItemsTest {
+    private static final String[] COLUMNS_TO_COMPARE = new String[]{ActivityTable.ACTIVITY_ID,
+            ActivityTable.MSG_ID, UserTable.AUTHOR_NAME, UserTable.ACTOR_NAME, UserTable.IN_REPLY_TO_NAME,
+            DownloadTable.AVATAR_FILE_NAME, DownloadTable.IMAGE_FILE_NAME, FriendshipTable.AUTHOR_FOLLOWED};
+
+    @Before
+    public void setUp() throws Exception {
+        TestSuite.initializeWithData(this);
+    }
+
+    @Test
+    public void testTimelineItemsAreConsistent() {
+        SQLiteDatabase db = MyContextHolder.get().getDatabase();
+        TimelineItems.fixInconsistent(db);
+        assertEquals("Inconsistent timeline items", 0, TimelineItems.countInconsistent(db));
+        assertTrue("Timeline items are usable", TimelineItems.isUsable());
+
+        MyAccount ma = demoData.getMyAccount(demoData.CONVERSATION_ACCOUNT_NAME);
+        assertTrue(ma.isValid());
+        for (TimelineType timelineType : new TimelineType[]{TimelineType.HOME, TimelineType.NOTIFICATIONS,
+                TimelineType.EVERYTHING}) {
+            Uri uri = MatchedUri.getTimelineUri(Timeline.getTimeline(timelineType, ma, 0, null));
+            List<String> fromItems = loadRows(uri);
+            String userInTimeline = SharedPreferencesUtil.getString(
+                    MyPreferences.KEY_TIMELINE_ITEMS_USER_IN_TIMELINE, "");
+            SharedPreferencesUtil.putString(MyPreferences.KEY_TIMELINE_ITEMS_USER_IN_TIMELINE, "");
+            try {
+                List<String> joined = loadRows(uri);
+                assertTrue("No rows in " + timelineType, joined.size() > 0);
+                assertEquals("Timeline items of " + timelineType, joined, fromItems);
+            } finally {
+                SharedPreferencesUtil.putString(MyPreferences.KEY_TIMELINE_ITEMS_USER_IN_TIMELINE, userInTimeline);
+            }
+        }
+    }
+
+    private List<String> loadRows(Uri uri) {
+        List<String> rows = new ArrayList<>();
+        try (Cursor cursor = MyContextHolder.get().context().getContentResolver().query(uri,
+                TimelineSql.getActivityProjection().toArray(new String[]{}), null, null,
+                ActivityTable.getTimeSortOrder(TimelineType.HOME, false) + ", "
+                        + ProjectionMap.ACTIVITY_TABLE_ALIAS + "." + BaseColumns._ID + " DESC")) {
+            assertTrue(cursor != null);
+            CursorColumns columns = new CursorColumns(cursor);
+            while (cursor.moveToNext()) {
+                StringBuilder builder = new StringBuilder();
+                for (String column : COLUMNS_TO_COMPARE) {
+                    builder.append(column).append("=").append(columns.getString(column)).append("; ");
+                }
+                rows.add(builder.toString());
+            }
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ * Copyright (c) 2017 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.data;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.net.Uri;
+import android.support.v4.util.Pair;
+
+import org.andstatus.app.account.MyAccount;
+import org.andstatus.app.context.MyContextHolder;
+import org.andstatus.app.context.MyPreferences;
+import org.andstatus.app.context.TestSuite;
+import org.andstatus.app.database.DatabaseCreator;
+import org.andstatus.app.database.table.ActivityTable;
+import org.andstatus.app.net.social.MbActivityType;
+import org.andstatus.app.timeline.meta.Timeline;
+import org.andstatus.app.timeline.meta.TimelineType;
+import org.andstatus.app.util.MyLog;
+import org.andstatus.app.util.SharedPreferencesUtil;
+import org.andstatus.app.util.TriState;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.andstatus.app.context.DemoData.demoData;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Runs "EXPLAIN QUERY PLAN" for the SQL, which {@link MyProvider} builds for every timeline,
+ * against a schema, created by {@link DatabaseCreator}, and filled with generated data.
+ * Fails, if messages or activities are read by a full table scan instead of an index.
+ * Query latencies are logged, so regressions can be compared as numbers
+ * @author yvolk@yurivolkov.com
+ */
+public class TimelineQueryPlanTest {
+    private static final String TAG = TimelineQueryPlanTest.class.getSimpleName();
+    private static final int USERS_COUNT = 1000;
+    private static final int MESSAGES_COUNT = 20000;
+    private static final int PAGE_SIZE = 200;
+    /** A table scan without "USING INDEX", "USING COVERING INDEX" or "USING INTEGER PRIMARY KEY" */
+    private static final Pattern FULL_SCAN = Pattern.compile("SCAN (TABLE )?(msg|activity|timeline_item|"
+            + ProjectionMap.MSG_TABLE_ALIAS + "|" + ProjectionMap.ACTIVITY_TABLE_ALIAS + ")( AS \\w+)?");
+    private static final TimelineType[] NOT_MESSAGE_TIMELINES = new TimelineType[]{TimelineType.UNKNOWN,
+            TimelineType.USERS, TimelineType.COMMANDS_QUEUE, TimelineType.MANAGE_TIMELINES};
+
+    private SQLiteDatabase db;
+    private MyAccount ma;
+    private String timelineItemsUserInTimeline;
+
+    @Before
+    public void setUp() throws Exception {
+        TestSuite.initializeWithData(this);
+        ma = demoData.getMyAccount(demoData.CONVERSATION_ACCOUNT_NAME);
+        assertTrue(ma.isValid());
+        timelineItemsUserInTimeline = SharedPreferencesUtil.getString(
+                MyPreferences.KEY_TIMELINE_ITEMS_USER_IN_TIMELINE, "");
+        db = SQLiteDatabase.create(null);
+        new DatabaseCreator(db).create();
+        generateData();
+    }
+
+    @After
+    public void tearDown() {
+        SharedPreferencesUtil.putString(MyPreferences.KEY_TIMELINE_ITEMS_USER_IN_TIMELINE,
+                timelineItemsUserInTimeline);
+        if (db != null) {
+            db.close();
+        }
+    }
+
+    private void generateData() {
+        final String numbers = "WITH RECURSIVE n(x) AS (SELECT 1 UNION ALL SELECT x+1 FROM n WHERE x<";
+        db.beginTransaction();
+        try {
+            db.execSQL("INSERT INTO user (_id, origin_id, user_oid, username, webfinger_id, real_name, user_ins_date) "
+                    + numbers + USERS_COUNT + ") SELECT x, " + ma.getOriginId()
+                    + ", 'u' || x, 'user' || x, 'user' || x || '@example.com', 'User ' || x, x FROM n");
+            db.execSQL("INSERT INTO friendship (user_id, friend_id, followed) "
+                    + numbers + (USERS_COUNT / 10) + ") SELECT " + ma.getUserId() + ", x * 10, 1 FROM n");
+            db.execSQL("INSERT INTO msg (_id, origin_id, msg_oid, body, body_to_search, msg_author_id,"
+                    + " in_reply_to_user_id, msg_ins_date, msg_updated_date) "
+                    + numbers + MESSAGES_COUNT + ") SELECT x, " + ma.getOriginId()
+                    + ", 'm' || x, 'Message ' || x, ',message,' || x || ',', x % " + USERS_COUNT + " + 1,"
+                    + " CASE WHEN x % 7 = 0 THEN " + ma.getUserId() + " ELSE 0 END, x * 1000, x * 1000 FROM n");
+            db.execSQL("INSERT INTO activity (_id, activity_origin_id, activity_oid, account_id, activity_type,"
+                    + " actor_id, activity_msg_id, activity_user_id, obj_activity_id, subscribed, notified,"
+                    + " activity_ins_date, activity_updated_date) "
+                    + numbers + MESSAGES_COUNT + ") SELECT x, " + ma.getOriginId() + ", 'a' || x, "
+                    + ma.getUserId() + ", " + MbActivityType.CREATE.id + ", x % " + USERS_COUNT + " + 1, x, 0, 0,"
+                    + " CASE WHEN x % 2 = 0 THEN " + TriState.TRUE.id + " ELSE " + TriState.FALSE.id + " END,"
+                    + " CASE WHEN x % 7 = 0 THEN " + TriState.TRUE.id + " ELSE " + TriState.FALSE.id + " END,"
+                    + " x * 1000, x * 1000 FROM n");
+            TimelineItems.fixInconsistent(db);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    @Test
+    public void testQueryPlans() {
+        List<String> failures = new ArrayList<>();
+        List<String> latencies = new ArrayList<>();
+        for (boolean useTimelineItems : new boolean[]{true, false}) {
+            SharedPreferencesUtil.putString(MyPreferences.KEY_TIMELINE_ITEMS_USER_IN_TIMELINE,
+                    useTimelineItems ? MyPreferences.getUserInTimeline().save() : "");
+            for (TimelineType timelineType : TimelineType.values()) {
+                if (Arrays.asList(NOT_MESSAGE_TIMELINES).contains(timelineType)) {
+                    continue;
+                }
+                for (boolean isCombined : new boolean[]{false, true}) {
+                    Timeline timeline = getTimeline(timelineType, isCombined);
+                    if (timeline.isEmpty() || timeline.isCombined() != isCombined) {
+                        continue;
+                    }
+                    for (String[] projection : getProjections()) {
+                        String variant = timelineType + (isCombined ? ", combined" : "")
+                                + (useTimelineItems ? ", items" : ", joined") + ", " + projection.length + " columns";
+                        Pair<String, String[]> sqlAndArgs = buildQuery(timeline, projection);
+                        failures.addAll(checkPlan(variant, sqlAndArgs));
+                        latencies.add(variant + ": " + measureLatency(sqlAndArgs) + " ms");
+                    }
+                }
+            }
+        }
+        for (String latency : latencies) {
+            MyLog.i(TAG, latency);
+        }
+        if (!failures.isEmpty()) {
+            fail("Full table scans:\n" + failures);
+        }
+    }
+
+    private Timeline getTimeline(TimelineType timelineType, boolean isCombined) {
+        long userId = timelineType.isForUser() ? ma.getUserId() : 0;
+        Timeline timeline = Timeline.getTimeline(MyContextHolder.get(), 0, timelineType, ma, userId, ma.getOrigin(),
+                timelineType == TimelineType.SEARCH ? "message" : "");
+        return isCombined ? timeline.fromIsCombined(MyContextHolder.get(), true) : timeline;
+    }
+
+    private static List<String[]> getProjections() {
+        List<String[]> projections = new ArrayList<>();
+        projections.add(TimelineSql.getTimelineProjection().toArray(new String[]{}));
+        projections.add(TimelineSql.getActivityProjection().toArray(new String[]{}));
+        projections.add(new String[]{ActivityTable.ACTIVITY_ID, ActivityTable.MSG_ID, ActivityTable.UPDATED_DATE});
+        return projections;
+    }
+
+    /** The same selection and sort order, as {@link org.andstatus.app.timeline.TimelineParameters} use */
+    private Pair<String, String[]> buildQuery(Timeline timeline, String[] projection) {
+        Uri uri = MatchedUri.getTimelineUri(timeline);
+        String dateField = ActivityTable.getTimeSortField(timeline.getTimelineType());
+        return MyProvider.buildQuery(uri, projection, dateField + " >= ?", new String[]{"1"},
+                ActivityTable.getTimeSortOrder(timeline.getTimelineType(), false) + ", "
+                        + ProjectionMap.ACTIVITY_TABLE_ALIAS + "._id DESC LIMIT " + PAGE_SIZE);
+    }
+
+    private List<String> checkPlan(String variant, Pair<String, String[]> sqlAndArgs) {
+        List<String> failures = new ArrayList<>();
+        StringBuilder plan = new StringBuilder();
+        try (Cursor c = db.rawQuery("EXPLAIN QUERY PLAN " + sqlAndArgs.first, sqlAndArgs.second)) {
+            int detailIndex = c.getColumnIndex("detail");
+            while (c.moveToNext()) {
+                String detail = c.getString(detailIndex);
+                plan.append(detail).append("\n");
+                if (FULL_SCAN.matcher(detail).matches()) {
+                    failures.add(variant + ": " + detail);
+                }
+            }
+        }
+        if (!failures.isEmpty()) {
+            MyLog.i(TAG, variant + "; SQL: " + sqlAndArgs.first + "\nPlan:\n" + plan);
+        }
+        return failures;
+    }
+
+    private long measureLatency(Pair<String, String[]> sqlAndArgs) {
+        long startedAt = System.currentTimeMillis();
+        try (Cursor c = db.rawQuery(sqlAndArgs.first, sqlAndArgs.second)) {
+            while (c.moveToNext()) {
+                c.getLong(0);
+            }
+        }
+        return System.currentTimeMillis() - startedAt;
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2017 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.data;
+
+import android.support.v4.util.Pair;
+
+import org.andstatus.app.account.MyAccount;
+import org.andstatus.app.context.TestSuite;
+import org.andstatus.app.timeline.meta.Timeline;
+import org.andstatus.app.timeline.meta.TimelineType;
+import org.andstatus.app.util.StringUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Set;
+
+import static org.andstatus.app.context.DemoData.demoData;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author yvolk@yurivolkov.com
+ */
+public class TimelineSqlTest {
+
+    @Before
+    public void setUp() throws Exception {
+        TestSuite.initializeWithData(this);
+    }
+
+    @Test
+    public void testTheSameQueryShapeForDifferentUsers() {
+        MyAccount ma = demoData.getMyAccount(demoData.CONVERSATION_ACCOUNT_NAME);
+        assertTrue(ma.isValid());
+        long userId1 = MyQuery.oidToId(OidEnum.USER_OID, ma.getOriginId(), demoData.CONVERSATION_AUTHOR_SECOND_USER_OID);
+        long userId2 = MyQuery.oidToId(OidEnum.USER_OID, ma.getOriginId(), demoData.CONVERSATION_AUTHOR_THIRD_USER_OID);
+        assertNotEquals(userId1, userId2);
+
+        Set<String> columns = TimelineSql.getTimelineProjection();
+        String[] projection = columns.toArray(new String[]{});
+        Pair<String, String[]> tables1 = TimelineSql.tablesForTimeline(MatchedUri.getTimelineUri(
+                Timeline.getTimeline(TimelineType.USER, ma, userId1, ma.getOrigin())), projection);
+        Pair<String, String[]> tables2 = TimelineSql.tablesForTimeline(MatchedUri.getTimelineUri(
+                Timeline.getTimeline(TimelineType.USER, ma, userId2, ma.getOrigin())), projection);
+
+        assertEquals("The same SQL for different users", tables1.first, tables2.first);
+        assertTrue(Arrays.toString(tables1.second), Arrays.asList(tables1.second).contains(Long.toString(userId1)));
+        assertTrue(Arrays.toString(tables2.second), Arrays.asList(tables2.second).contains(Long.toString(userId2)));
+        assertEquals("Number of parameters", StringUtils.countOfOccurrences(tables1.first, "?"),
+                tables1.second.length);
+    }
+}
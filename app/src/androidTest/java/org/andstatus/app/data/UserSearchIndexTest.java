@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2017 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.data;
+
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.net.Uri;
+import android.provider.BaseColumns;
+
+import org.andstatus.app.account.MyAccount;
+import org.andstatus.app.context.MyContextHolder;
+import org.andstatus.app.context.MyPreferences;
+import org.andstatus.app.context.TestSuite;
+import org.andstatus.app.database.table.UserTable;
+import org.andstatus.app.user.UserListType;
+import org.andstatus.app.util.MyLog;
+import org.andstatus.app.util.SharedPreferencesUtil;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.andstatus.app.context.DemoData.demoData;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author yvolk@yurivolkov.com
+ */
+public class UserSearchIndexTest {
+    private static final int LATENCY_ITERATIONS = 20;
+
+    @Before
+    public void setUp() throws Exception {
+        TestSuite.initializeWithData(this);
+    }
+
+    @Test
+    public void testTokens() {
+        Map<String, Integer> tokens = UserSearchIndex.getTokens("third", "third@pump3.example.com", "Third Author");
+        assertEquals(tokens.toString(), UserSearchIndex.RANK_NAME, (int) tokens.get("third"));
+        assertEquals(tokens.toString(), UserSearchIndex.RANK_NAME, (int) tokens.get("third@pump3.example.com"));
+        assertEquals(tokens.toString(), UserSearchIndex.RANK_REAL_NAME, (int) tokens.get("third author"));
+        assertEquals(tokens.toString(), UserSearchIndex.RANK_WORD, (int) tokens.get("pump3"));
+        assertEquals(tokens.toString(), UserSearchIndex.RANK_WORD, (int) tokens.get("author"));
+        assertTrue(UserSearchIndex.matches("exam", "third", "third@pump3.example.com", ""));
+        assertFalse(UserSearchIndex.matches("ample", "third", "third@pump3.example.com", ""));
+    }
+
+    @Test
+    public void testSearch() {
+        assertTrue("User search index is usable", UserSearchIndex.isUsable());
+        MyAccount ma = demoData.getMyAccount(demoData.CONVERSATION_ACCOUNT_NAME);
+        assertTrue(ma.isValid());
+        long userId = MyQuery.oidToId(OidEnum.USER_OID, ma.getOriginId(), demoData.CONVERSATION_AUTHOR_THIRD_USER_OID);
+        assertTrue(userId != 0);
+
+        List<Long> found = search(ma, "thi");
+        assertTrue("Found by a prefix of the name " + found, found.contains(userId));
+        found = search(ma, "Pump3");
+        assertTrue("Found by a word of the WebFinger ID " + found, found.contains(userId));
+        found = search(ma, demoData.CONVERSATION_AUTHOR_THIRD_USERNAME);
+        assertEquals("The whole name is the best match " + found, userId, (long) found.get(0));
+    }
+
+    /** Compares latency of the indexed search and of the "LIKE" search, which is used, if the index is not built */
+    @Test
+    public void testSearchLatency() {
+        MyAccount ma = demoData.getMyAccount(demoData.CONVERSATION_ACCOUNT_NAME);
+        String[] prefixes = new String[]{"t", "th", "thi", "thir", "third", "se", "pump", "example"};
+        long indexedNanos = measureLatency(ma, prefixes);
+        SharedPreferencesUtil.putBoolean(MyPreferences.KEY_USER_SEARCH_INDEX_BUILT, false);
+        long likeNanos;
+        try {
+            likeNanos = measureLatency(ma, prefixes);
+        } finally {
+            UserSearchIndex.onBuilt();
+        }
+        long queriesCount = LATENCY_ITERATIONS * prefixes.length;
+        MyLog.i(this, "User search latency, microseconds per query. Indexed: " + indexedNanos / queriesCount / 1000
+                + ", LIKE: " + likeNanos / queriesCount / 1000 + "; users: "
+                + DatabaseUtils.queryNumEntries(MyContextHolder.get().getDatabase(), UserTable.TABLE_NAME));
+    }
+
+    private long measureLatency(MyAccount ma, String[] prefixes) {
+        long startedAt = System.nanoTime();
+        for (int iteration = 0; iteration < LATENCY_ITERATIONS; iteration++) {
+            for (String prefix : prefixes) {
+                search(ma, prefix);
+            }
+        }
+        return System.nanoTime() - startedAt;
+    }
+
+    private List<Long> search(MyAccount ma, String query) {
+        Uri uri = MatchedUri.getUserListUri(ma.getUserId(), UserListType.USERS, ma.getOriginId(), 0, query);
+        List<Long> ids = new ArrayList<>();
+        try (Cursor c = MyContextHolder.get().context().getContentResolver().query(uri,
+                UserListSql.getListProjection(), UserTable.TABLE_NAME + "." + UserTable.ORIGIN_ID + "="
+                        + ma.getOriginId(), null, null)) {
+            while (c != null && c.moveToNext()) {
+                ids.add(c.getLong(c.getColumnIndex(BaseColumns._ID)));
+            }
+        }
+        return ids;
+    }
+}
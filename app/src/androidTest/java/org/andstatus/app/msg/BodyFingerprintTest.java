@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2017 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.msg;
+
+import org.andstatus.app.util.MyHtml;
+import org.andstatus.app.util.SimHash;
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author yvolk@yurivolkov.com
+ */
+public class BodyFingerprintTest {
+
+    @Test
+    public void testEqualBodies() {
+        BodyFingerprint fingerprint1 = fingerprintOf("Hello, <b>World</b>");
+        assertTrue(fingerprint1.mayBeEqual(fingerprintOf("hello,   world")));
+        assertFalse(fingerprint1.mayBeEqual(fingerprintOf("hello, world!")));
+        assertFalse(fingerprint1.mayContain(fingerprintOf("hello, world")));
+    }
+
+    @Test
+    public void testContainedBodies() {
+        final String body = "The quick brown fox jumps over the lazy dog, and runs away";
+        final String cleanedBody = MyHtml.getCleanedBody(body);
+        BodyFingerprint fingerprint = BodyFingerprint.of(cleanedBody);
+        for (int start = 0; start < cleanedBody.length(); start++) {
+            for (int end = start + 1; end < cleanedBody.length(); end++) {
+                String part = cleanedBody.substring(start, end);
+                assertTrue("'" + part + "' should be possibly contained",
+                        fingerprint.mayContain(BodyFingerprint.of(part)));
+            }
+        }
+        assertFalse(fingerprint.mayContain(fingerprintOf("the quick red fox jumps")));
+        assertFalse(fingerprintOf("the quick brown fox").mayContain(fingerprint));
+    }
+
+    @Test
+    public void testStoredSimHash() {
+        final String cleanedBody = MyHtml.getCleanedBody(
+                "The quick brown fox jumps over the lazy dog, and then it runs far away into the forest");
+        final String cleanedOther = MyHtml.getCleanedBody(
+                "Completely different words are written in this message, so it is not similar at all");
+        BodyFingerprint computed = BodyFingerprint.of(cleanedBody);
+        assertTrue("Stored", computed.isSimilarTo(BodyFingerprint.of(cleanedBody, SimHash.of(cleanedBody))));
+        assertTrue("Legacy row without the hash", computed.isSimilarTo(BodyFingerprint.of(cleanedBody, SimHash.EMPTY)));
+        assertFalse("Stored hash is used, not computed",
+                computed.isSimilarTo(BodyFingerprint.of(cleanedBody, SimHash.of(cleanedOther))));
+    }
+
+    private static BodyFingerprint fingerprintOf(String body) {
+        return BodyFingerprint.of(MyHtml.getCleanedBody(body));
+    }
+}
@@ -5,6 +5,7 @@ import org.andstatus.app.context.MyContextHolder;
 import org.andstatus.app.context.TestSuite;
 import org.andstatus.app.data.MyQuery;
 import org.andstatus.app.data.OidEnum;
+import org.andstatus.app.list.SyncLoader;
 import org.andstatus.app.timeline.LoadableListActivity.ProgressPublisher;
 import org.andstatus.app.util.MyLog;
 import org.junit.Before;
@@ -60,4 +61,14 @@ public class ConversationViewLoaderTest implements ProgressPublisher {
     public void publish(String progress) {
         progressCounter++;
     }
+
+    @Override
+    public void publishPartial(SyncLoader partialLoader) {
+        // Empty
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return false;
+    }
 }
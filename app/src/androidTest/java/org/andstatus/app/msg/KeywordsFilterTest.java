@@ -17,8 +17,13 @@
 package org.andstatus.app.msg;
 
 import org.andstatus.app.util.MyHtml;
+import org.andstatus.app.util.MyLog;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
@@ -59,6 +64,131 @@ public class KeywordsFilterTest {
         assertNotMatchAll(query, body2);
     }
 
+    @Test
+    public void testMatchQuery() {
+        assertEquals("", new KeywordsFilter("").getMatchQuery());
+        assertEquals("\"deleted notice\"", new KeywordsFilter("\"Deleted notice\"").getMatchQuery());
+        assertEquals("\"word\" \"deleted notice\"", new KeywordsFilter("word, \"deleted notice\"").getMatchQuery());
+        assertEquals("\"tag tag\"", new KeywordsFilter("#Tag").getMatchQuery());
+        assertEquals("\"it s\" \"привет\"", new KeywordsFilter("it's привет").getMatchQuery());
+        assertEquals("Keywords without tokens are skipped", "\"word\"",
+                new KeywordsFilter("word ...").getMatchQuery());
+
+        assertEquals("\"word\" OR \"deleted notice\"",
+                new KeywordsFilter("word, \"deleted notice\"").getMatchQuery(true));
+        assertEquals("A keyword without tokens cannot be found in the index", "",
+                new KeywordsFilter("word ...").getMatchQuery(true));
+    }
+
+    @Test
+    public void testMatchingBenchmark() {
+        Random random = new Random(1);
+        List<String> vocabulary = new ArrayList<>();
+        for (int ind = 0; ind < 5000; ind++) {
+            vocabulary.add(randomWord(random));
+        }
+        List<String> bodies = new ArrayList<>();
+        for (int ind = 0; ind < 200; ind++) {
+            StringBuilder body = new StringBuilder();
+            for (int wordInd = 0; wordInd < 40; wordInd++) {
+                body.append(vocabulary.get(random.nextInt(vocabulary.size()))).append(' ');
+            }
+            bodies.add(MyHtml.getBodyToSearch(body.toString()));
+        }
+        for (int keywordsCount : new int[]{10, 100, 1000}) {
+            StringBuilder query = new StringBuilder();
+            for (int ind = 0; ind < keywordsCount; ind++) {
+                query.append(vocabulary.get(random.nextInt(vocabulary.size()))).append(", ");
+            }
+            KeywordsFilter filter = new KeywordsFilter(query.toString());
+            List<String> keywords = filter.keywordsToFilter;
+            int matchedCount = 0;
+            long startedAt = System.nanoTime();
+            for (String body : bodies) {
+                if (matchedAnyLinear(keywords, body)) {
+                    matchedCount++;
+                }
+            }
+            long linearNanos = System.nanoTime() - startedAt;
+
+            int matchedCount2 = 0;
+            startedAt = System.nanoTime();
+            for (String body : bodies) {
+                if (filter.matchedAny(body)) {
+                    matchedCount2++;
+                }
+            }
+            long automatonNanos = System.nanoTime() - startedAt;
+            assertEquals(matchedCount, matchedCount2);
+            for (String body : bodies) {
+                assertEquals(matchedAnyLinear(keywords, body), filter.matchedAny(body));
+                assertEquals(matchedAllLinear(keywords, body), filter.matchedAll(body));
+            }
+            MyLog.i(this, keywordsCount + " keywords, " + bodies.size() + " messages, " + matchedCount
+                    + " matched, nanoseconds per message. Linear: " + linearNanos / bodies.size()
+                    + ", automaton: " + automatonNanos / bodies.size());
+        }
+    }
+
+    @Test
+    public void testTooManyKeywordsForSql() {
+        StringBuilder query = new StringBuilder();
+        for (int ind = 0; ind < KeywordsFilter.MAX_KEYWORDS_IN_SQL; ind++) {
+            query.append("muted" + ind + " ");
+        }
+        KeywordsFilter filter = new KeywordsFilter(query.toString());
+        assertTrue(filter.isSqlSelectionNoneMatchedUsable(false));
+        assertTrue(filter.getSqlSelectionNoneMatched("body", "_id", false).contains("LIKE"));
+        assertEquals(KeywordsFilter.MAX_KEYWORDS_IN_SQL, filter.getSqlSelectionArgsNoneMatched(false).length);
+
+        query.append("\"the last muted\"");
+        filter = new KeywordsFilter(query.toString());
+        assertFalse(filter.isSqlSelectionNoneMatchedUsable(false));
+        assertEquals("No SQL selection", "", filter.getSqlSelectionNoneMatched("body", "_id", false));
+        assertEquals("No SQL selection args", 0, filter.getSqlSelectionArgsNoneMatched(false).length);
+
+        assertTrue("Search index is used", filter.isSqlSelectionNoneMatchedUsable(true));
+        String selection = filter.getSqlSelectionNoneMatched("body", "_id", true);
+        assertTrue(selection, selection.contains("_id NOT IN (") && !selection.contains("LIKE"));
+        String[] selectionArgs = filter.getSqlSelectionArgsNoneMatched(true);
+        assertEquals("One argument for all keywords", 1, selectionArgs.length);
+        assertEquals(filter.getMatchQuery(true), selectionArgs[0]);
+
+        KeywordsFilter filterWithoutTokens = new KeywordsFilter(query.toString() + " \"!!!\"");
+        assertFalse("Keyword without tokens", filterWithoutTokens.isSqlSelectionNoneMatchedUsable(true));
+        assertEquals("", filterWithoutTokens.getSqlSelectionNoneMatched("body", "_id", true));
+        assertTrue(filter.matchedAny(MyHtml.getBodyToSearch("This is the last muted message")));
+        assertTrue(filter.matchedAny(MyHtml.getBodyToSearch("Muted99 is muted also")));
+        assertFalse(filter.matchedAny(MyHtml.getBodyToSearch("Muted is not muted, as well as the last one")));
+    }
+
+    private static String randomWord(Random random) {
+        StringBuilder word = new StringBuilder();
+        int length = 3 + random.nextInt(6);
+        for (int ind = 0; ind < length; ind++) {
+            word.append((char) ('a' + random.nextInt(26)));
+        }
+        return word.toString();
+    }
+
+    private static boolean matchedAnyLinear(List<String> keywords, String body) {
+        for (String keyword : keywords) {
+            if (body.contains(keyword)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean matchedAllLinear(List<String> keywords, String body) {
+        for (String keyword : keywords) {
+            if (!body.contains(keyword)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     private void assertOneQueryToKeywords(String query, String... keywords) {
         int size = keywords.length;
         KeywordsFilter filter1 = new KeywordsFilter(query);
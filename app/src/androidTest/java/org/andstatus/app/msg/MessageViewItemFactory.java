@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) 2017 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.msg;
+
+import org.andstatus.app.context.MyContextHolder;
+
+/**
+ * Creates items, which are not stored in the database, e.g. for pages of a timeline
+ * @author yvolk@yurivolkov.com
+ */
+public class MessageViewItemFactory {
+
+    private MessageViewItemFactory() {
+        // Empty
+    }
+
+    public static MessageViewItem newItem(long msgId, long originId, long updatedDate, String body) {
+        MessageViewItem item = new MessageViewItem();
+        item.setMyContext(MyContextHolder.get());
+        item.setMsgId(msgId);
+        item.setOriginId(originId);
+        item.updatedDate = updatedDate;
+        item.setBody(body);
+        return item;
+    }
+}
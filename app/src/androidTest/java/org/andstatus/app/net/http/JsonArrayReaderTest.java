@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2017 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.net.http;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class JsonArrayReaderTest {
+
+    @Test
+    public void testArrays() throws Exception {
+        List<JSONObject> items = read("[{\"id\":1,\"text\":\"Text1\"},{\"id\":2,\"text\":\"Text2\"}]", "items");
+        assertEquals(2, items.size());
+        assertEquals("Text2", items.get(1).optString("text"));
+
+        items = read("{\"totalItems\":3,\"items\":[{\"id\":1},{\"id\":2},{\"id\":3}],\"links\":{}}", "items");
+        assertEquals("Array by the key", 3, items.size());
+
+        items = read("{\"search_metadata\":{\"count\":15},\"statuses\":[{\"id\":1}],\"other\":[{\"id\":2},{}]}", "items");
+        assertEquals("The first array", 1, items.size());
+
+        items = read("{\"other\":[{\"id\":2},{\"id\":3}],\"items\":[{\"id\":1}]}", "items");
+        assertEquals("The key wins", 1, items.size());
+        assertEquals(1, items.get(0).optLong("id"));
+
+        assertEquals("Empty response", 0, read("", "items").size());
+        assertEquals("Empty array", 0, read("[]", "items").size());
+    }
+
+    @Test
+    public void testValues() throws Exception {
+        JSONObject expected = new JSONObject("{\"id\":12,\"longId\":1234567890123,\"double\":1.5,\"text\":\"Te\\\"xt\","
+                + "\"favorited\":true,\"place\":null,\"user\":{\"id_str\":\"144771645\",\"entities\":[{\"a\":1},2]}}");
+        List<JSONObject> items = read("[" + expected.toString() + "]", "items");
+        assertEquals(1, items.size());
+        JSONObject actual = items.get(0);
+        assertEquals("Same as parsed at once", expected.toString(), actual.toString());
+        assertEquals(1234567890123L, actual.optLong("longId"));
+        assertTrue(actual.isNull("place"));
+        assertEquals("144771645", actual.getJSONObject("user").optString("id_str"));
+    }
+
+    @Test
+    public void testNotArrays() throws Exception {
+        assertNoArray("\"text\"");
+        assertNoArray("{\"error\":\"Not found\"}");
+        assertNotRead("{\"items\":\"text\"}");
+        assertNotRead("[1, 2]");
+        assertNotRead("[{\"id\":1}");
+    }
+
+    /** The same exception, as for the parsed response, see {@link HttpReadResult#getJsonArray(String)} */
+    private static void assertNoArray(String response) throws Exception {
+        try {
+            read(response, "items");
+            fail("Read: " + response);
+        } catch (ClassCastException e) {
+            // Expected
+        }
+    }
+
+    private static void assertNotRead(String response) throws ConnectionException {
+        try {
+            read(response, "items");
+            fail("Read: " + response);
+        } catch (IOException | JSONException | IllegalStateException e) {
+            // Expected
+        }
+    }
+
+    private static List<JSONObject> read(String response, String arrayKey)
+            throws IOException, JSONException, ConnectionException {
+        List<JSONObject> items = new ArrayList<>();
+        JsonArrayReader.read(new StringReader(response), arrayKey, items::add);
+        return items;
+    }
+}
@@ -26,6 +26,7 @@ import org.andstatus.app.context.TestSuite;
 import org.andstatus.app.data.DataUpdater;
 import org.andstatus.app.data.DownloadStatus;
 import org.andstatus.app.data.MyContentType;
+import org.andstatus.app.net.http.ConnectionException;
 import org.andstatus.app.net.http.HttpConnectionMock;
 import org.andstatus.app.net.http.OAuthClientKeys;
 import org.andstatus.app.net.social.Connection.ApiRoutineEnum;
@@ -52,6 +53,7 @@ import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 public class ConnectionTwitterTest {
     private Connection connection;
@@ -82,6 +84,47 @@ public class ConnectionTwitterTest {
         TestSuite.setHttpConnectionMockClass(null);
     }
 
+    @Test
+    public void testStreamedAndParsedTimelinesAreTheSame() throws IOException {
+        String jso = RawResourceUtils.getString(InstrumentationRegistry.getInstrumentation().getContext(),
+                org.andstatus.app.tests.R.raw.twitter_home_timeline);
+        ConnectionTwitterLike twitter = (ConnectionTwitterLike) connection;
+        final String path = "statuses/home_timeline.json";
+
+        httpConnection.setResponse(jso);
+        List<MbActivity> streamed = twitter.getTimelineItems(path, ApiRoutineEnum.HOME_TIMELINE, path);
+        httpConnection.setResponse(jso);
+        List<MbActivity> parsed = twitter.jArrToTimeline(httpConnection.getRequestAsArray(path),
+                ApiRoutineEnum.HOME_TIMELINE, path);
+
+        assertEquals("Number of items in the Timeline", 4, parsed.size());
+        assertEquals("Number of items in the Timeline", parsed.size(), streamed.size());
+        for (int ind = 0; ind < parsed.size(); ind++) {
+            MbActivity expected = parsed.get(ind);
+            MbActivity actual = streamed.get(ind);
+            assertEquals("Oid " + ind, expected.getTimelinePosition(), actual.getTimelinePosition());
+            assertEquals("Message " + ind, expected.getMessage().getBody(), actual.getMessage().getBody());
+            assertEquals("Author " + ind, expected.getAuthor().oid, actual.getAuthor().oid);
+            assertEquals("Activity " + ind, expected.toString(), actual.toString());
+        }
+
+        final String noArray = "{\"error\":\"Not found\"}";
+        httpConnection.setResponse(noArray);
+        try {
+            twitter.getTimelineItems(path, ApiRoutineEnum.HOME_TIMELINE, path);
+            fail("Streamed: " + noArray);
+        } catch (ConnectionException e) {
+            assertTrue("Streamed: " + e, e.isHardError());
+        }
+        httpConnection.setResponse(noArray);
+        try {
+            httpConnection.getRequestAsArray(path);
+            fail("Parsed: " + noArray);
+        } catch (ConnectionException e) {
+            assertTrue("Parsed: " + e, e.isHardError());
+        }
+    }
+
     @Test
     public void testGetTimeline() throws IOException {
         String jso = RawResourceUtils.getString(InstrumentationRegistry.getInstrumentation().getContext(),
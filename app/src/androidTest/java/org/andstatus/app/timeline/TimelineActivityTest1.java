@@ -36,6 +36,7 @@ import org.andstatus.app.database.table.MsgTable;
 import org.andstatus.app.msg.ConversationActivity;
 import org.andstatus.app.msg.MessageListContextMenuItem;
 import org.andstatus.app.msg.MessageViewItem;
+import org.andstatus.app.msg.MessageViewItemFactory;
 import org.andstatus.app.service.CommandData;
 import org.andstatus.app.service.CommandEnum;
 import org.andstatus.app.service.MyServiceEvent;
@@ -49,6 +50,8 @@ import org.andstatus.app.view.SelectorDialog;
 import org.junit.Test;
 
 import java.net.MalformedURLException;
+import java.util.ArrayList;
+import java.util.List;
 
 import static org.andstatus.app.context.DemoData.demoData;
 import static org.junit.Assert.assertEquals;
@@ -199,6 +202,50 @@ public class TimelineActivityTest1 extends TimelineActivityTest {
         }
     }
 
+    @Test
+    public void testFirstVisibleItemKeptOnPrefetchedPages() throws InterruptedException {
+        final String method = "testFirstVisibleItemKeptOnPrefetchedPages";
+        TestSuite.waitForListLoaded(getActivity(), 1);
+        final int pagesToAdd = 7;
+        final int anchorPage = 3;
+        long anchorItemId = 0;
+        for (int pageIndex = 1; pageIndex <= pagesToAdd; pageIndex++) {
+            final TimelinePage<MessageViewItem> page = newOlderPage(pageIndex);
+            getInstrumentation().runOnMainSync(() -> {
+                TimelineData<MessageViewItem> data = getActivity().getListData();
+                getActivity().onOlderPagePrefetched(data, data.pages.get(data.pages.size() - 1), page);
+            });
+            TestSuite.waitForIdleSync();
+            if (pageIndex == anchorPage) {
+                anchorItemId = page.items.get(0).getId();
+                final int position = getActivity().getListAdapter().getPositionById(anchorItemId);
+                assertTrue(method + "; Page " + pageIndex + " added", position >= 0);
+                getInstrumentation().runOnMainSync(() ->
+                        getListView().setSelectionFromTop(position + getListView().getHeaderViewsCount(), 0));
+                TestSuite.waitForIdleSync();
+            }
+            if (pageIndex >= anchorPage) {
+                assertEquals(method + "; First visible item after page " + pageIndex + " of "
+                                + getActivity().getListData().pages.size() + " pages",
+                        anchorItemId, getListView().getAdapter().getItemId(getListView().getFirstVisiblePosition()));
+            }
+        }
+        assertTrue("Youngest pages dropped", getActivity().getListData().pages.size() < pagesToAdd);
+    }
+
+    private TimelinePage<MessageViewItem> newOlderPage(int pageIndex) {
+        TimelineData<MessageViewItem> data = getActivity().getListData();
+        TimelinePage<MessageViewItem> lastPage = data.pages.get(data.pages.size() - 1);
+        long oldestDate = data.size() > 0 ? data.getItem(data.size() - 1).getDate() : System.currentTimeMillis();
+        List<MessageViewItem> items = new ArrayList<>();
+        for (int ind = 0; ind < 10; ind++) {
+            items.add(MessageViewItemFactory.newItem(Long.MAX_VALUE / 2 + pageIndex * 100 + ind,
+                    ma.getOriginId(), oldestDate - 1000 * (ind + 1), "Prefetched message " + ind
+                            + " of page " + pageIndex + " " + demoData.TESTRUN_UID));
+        }
+        return new TimelinePage<>(TimelineParameters.clone(lastPage.params, WhichPage.OLDER), items);
+    }
+
     private void broadcastCommandExecuted() {
         CommandData commandData = CommandData.newAccountCommand(CommandEnum.CREATE_FAVORITE,
                 demoData.getConversationMyAccount());
@@ -0,0 +1,296 @@
+/*
+ * Copyright (c) 2017 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.timeline;
+
+import android.support.annotation.NonNull;
+
+import org.andstatus.app.context.MyContext;
+import org.andstatus.app.context.MyContextHolder;
+import org.andstatus.app.context.TestSuite;
+import org.andstatus.app.timeline.meta.Timeline;
+import org.andstatus.app.util.MyLog;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * @author yvolk@yurivolkov.com
+ */
+public class TimelineDataTest {
+    private static final int PAGES_COUNT = 5;
+    private static final int PAGE_SIZE = 400;
+    private static final int ITERATIONS = 5;
+
+    private static class TestItem extends ViewItem<TestItem> {
+        final long id;
+        final long date;
+        final long duplicatedId;
+
+        TestItem(long id) {
+            this(id, id * 1000);
+        }
+
+        TestItem(long id, long date) {
+            this(id, date, 0);
+        }
+
+        TestItem(long id, long date, long duplicatedId) {
+            this.id = id;
+            this.date = date;
+            this.duplicatedId = duplicatedId;
+        }
+
+        @Override
+        public DuplicationLink duplicates(ViewItem other) {
+            if (other instanceof TestItem) {
+                if (duplicatedId != 0 && duplicatedId == ((TestItem) other).id) {
+                    return DuplicationLink.DUPLICATES;
+                }
+                if (((TestItem) other).duplicatedId == id) {
+                    return DuplicationLink.IS_DUPLICATED;
+                }
+            }
+            return DuplicationLink.NONE;
+        }
+
+        @Override
+        public long getId() {
+            return id;
+        }
+
+        @Override
+        public long getDate() {
+            return date;
+        }
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        TestSuite.initialize(this);
+    }
+
+    @Test
+    public void testPositionLookup() {
+        TimelineData<TestItem> data = newData();
+        final int size = PAGES_COUNT * PAGE_SIZE;
+        assertEquals(data.toString(), size, data.size());
+        for (int position = 0; position < size; position++) {
+            TestItem item = data.getItem(position);
+            assertSame(getItemLinear(data, position), item);
+            assertEquals(position, data.getPositionById(item.getId()));
+            assertSame(item, data.getById(item.getId()));
+        }
+        assertEquals(-1, data.getPositionById(size * 10));
+        Object notFound = data.getById(size * 10);
+        Object emptyItem = data.pages.get(0).getEmptyItem();
+        assertSame(emptyItem, notFound);
+
+        TestItem parent = data.getItem(10);
+        TestItem child = data.getItem(11);
+        parent.collapse(child);
+        data.pages.get(0).items.remove(child);
+        assertEquals("Index is rebuilt after the change", size - 1, data.size());
+        assertEquals("Collapsed child has position of its parent", 10, data.getPositionById(child.getId()));
+        notFound = data.getById(child.getId());
+        assertSame("Collapsed child is not an item", emptyItem, notFound);
+        assertSame(data.getItem(11), getItemLinear(data, 11));
+    }
+
+    @Test
+    public void testSplicingOfOlderPage() {
+        final long edgeDate = 5000;
+        TimelineData<TestItem> data = new TimelineData<>(null, newPage(WhichPage.CURRENT,
+                new TestItem(8), new TestItem(7), new TestItem(6, edgeDate), new TestItem(5, edgeDate)));
+        assertEquals(0, data.getMergedItemsCount());
+
+        TimelineData<TestItem> data2 = new TimelineData<>(data, newPage(WhichPage.OLDER,
+                new TestItem(99, edgeDate + 500), new TestItem(5, edgeDate), new TestItem(4, edgeDate),
+                new TestItem(3), new TestItem(2)));
+        assertEquals(data2.toString(), 1, data2.getMergedItemsCount());
+        assertEquals(data2.toString(), 1, data2.getDroppedItemsCount());
+        assertEquals(data2.toString(), 7, data2.size());
+        long[] expectedIds = {8, 7, 6, 5, 4, 3, 2};
+        for (int position = 0; position < expectedIds.length; position++) {
+            assertEquals("Position " + position, expectedIds[position], data2.getItem(position).getId());
+        }
+    }
+
+    @Test
+    public void testDuplicatesOfStreamedPage() {
+        TimelinePage<TestItem> loading = newPage(WhichPage.CURRENT);
+        loading.items.add(new TestItem(10));
+        loading.items.add(new TestItem(9, 9000, 10));
+        TimelineData<TestItem> data = new TimelineData<>(null, loading.partialCopy());
+        assertEquals(data.toString(), 2, data.size());
+
+        loading.items.add(new TestItem(8));
+        loading.params.rememberSentDateLoaded(8000);
+        TimelinePage<TestItem> partial = loading.partialCopy();
+        loading.items.add(new TestItem(7));
+        loading.params.rememberSentDateLoaded(7000);
+        assertEquals("Partial page is not changed by the loader", 3, partial.items.size());
+        assertEquals("Loaded state is frozen", 8000, partial.params.minSentDateLoaded);
+        data = new TimelineData<>(data, partial);
+        assertEquals(data.toString(), 3, data.size());
+
+        data = new TimelineData<>(data, loading);
+        assertEquals(data.toString(), 3, data.size());
+        TestItem parent = data.getItem(0);
+        assertEquals(10, parent.getId());
+        assertEquals("Children of " + parent.getId(), 1, parent.getChildren().size());
+        assertEquals(9, parent.getChildren().get(0).getId());
+    }
+
+    @Test
+    public void testCache() {
+        TimelineDataCache.clear();
+        TimelineData<TestItem> data = newData();
+        data.params.endTime = System.nanoTime();
+        TimelineDataCache.put(data);
+        assertEquals(1, TimelineDataCache.size());
+
+        data.pages.get(0).items.clear();
+        TimelineData<TestItem> cached = TimelineDataCache.take(data.params);
+        assertNotNull(cached);
+        assertEquals("Cached copy is not changed", PAGES_COUNT * PAGE_SIZE, cached.size());
+        assertNotSame(data.pages.get(0).items, cached.pages.get(0).items);
+        assertEquals(0, TimelineDataCache.size());
+        assertNull("Taken from the cache", TimelineDataCache.take(data.params));
+
+        MyContext myContext = MyContextHolder.get();
+        List<Timeline> timelines = new ArrayList<>(myContext.persistentTimelines().values());
+        TimelineParameters firstParams = null;
+        int count = 0;
+        for (Timeline timeline : timelines) {
+            if (count > TimelineDataCache.MAX_ENTRIES) {
+                break;
+            }
+            TimelineParameters params = new TimelineParameters(myContext);
+            params.setTimeline(timeline);
+            params.whichPage = WhichPage.CURRENT;
+            params.endTime = System.nanoTime();
+            List<TestItem> items = new ArrayList<>();
+            items.add(new TestItem(1));
+            TimelineDataCache.put(new TimelineData<>(null, new TimelinePage<>(params, items)));
+            if (firstParams == null) {
+                firstParams = params;
+            }
+            count++;
+        }
+        assertEquals(Math.min(count, TimelineDataCache.MAX_ENTRIES), TimelineDataCache.size());
+        if (count > TimelineDataCache.MAX_ENTRIES) {
+            assertNull("The least recently used evicted", TimelineDataCache.take(firstParams));
+        }
+        TimelineDataCache.clear();
+    }
+
+    @NonNull
+    private TimelinePage<TestItem> newPage(WhichPage whichPage, TestItem... items) {
+        MyContext myContext = MyContextHolder.get();
+        TimelineParameters params = new TimelineParameters(myContext);
+        params.setTimeline(myContext.persistentTimelines().getDefault());
+        params.whichPage = whichPage;
+        List<TestItem> list = new ArrayList<>();
+        for (TestItem item : items) {
+            params.rememberSentDateLoaded(item.getDate());
+            list.add(item);
+        }
+        return new TimelinePage<>(params, list);
+    }
+
+    /** Compares cost of lookups, done while binding views, with the linear search, which was used before */
+    @Test
+    public void testLookupBenchmark() {
+        TimelineData<TestItem> data = newData();
+        final int size = data.size();
+        long startedAt = System.nanoTime();
+        for (int iteration = 0; iteration < ITERATIONS; iteration++) {
+            for (int position = 0; position < size; position++) {
+                getPositionByIdLinear(data, getItemLinear(data, position).getId());
+            }
+        }
+        long linearNanos = System.nanoTime() - startedAt;
+
+        startedAt = System.nanoTime();
+        for (int iteration = 0; iteration < ITERATIONS; iteration++) {
+            for (int position = 0; position < size; position++) {
+                data.getPositionById(data.getItem(position).getId());
+            }
+        }
+        long indexedNanos = System.nanoTime() - startedAt;
+        long lookupsCount = (long) ITERATIONS * size;
+        MyLog.i(this, "Bind-time lookups for " + size + " items, nanoseconds per lookup. Linear: "
+                + linearNanos / lookupsCount + ", indexed: " + indexedNanos / lookupsCount);
+    }
+
+    @NonNull
+    private TimelineData<TestItem> newData() {
+        MyContext myContext = MyContextHolder.get();
+        TimelineData<TestItem> data = null;
+        long id = PAGES_COUNT * PAGE_SIZE;
+        for (int pageIndex = 0; pageIndex < PAGES_COUNT; pageIndex++) {
+            TimelineParameters params = new TimelineParameters(myContext);
+            params.setTimeline(myContext.persistentTimelines().getDefault());
+            params.whichPage = pageIndex == 0 ? WhichPage.CURRENT : WhichPage.OLDER;
+            List<TestItem> items = new ArrayList<>();
+            for (int ind = 0; ind < PAGE_SIZE; ind++) {
+                TestItem item = new TestItem(id--);
+                params.rememberSentDateLoaded(item.getDate());
+                items.add(item);
+            }
+            data = new TimelineData<>(data, new TimelinePage<>(params, items));
+        }
+        return data;
+    }
+
+    private static TestItem getItemLinear(TimelineData<TestItem> data, int position) {
+        int firstPosition = 0;
+        for (TimelinePage<TestItem> page : data.pages) {
+            if (position < firstPosition + page.items.size()) {
+                return page.items.get(position - firstPosition);
+            }
+            firstPosition += page.items.size();
+        }
+        return null;
+    }
+
+    private static int getPositionByIdLinear(TimelineData<TestItem> data, long itemId) {
+        int position = -1;
+        for (TimelinePage<TestItem> page : data.pages) {
+            for (TestItem item : page.items) {
+                position++;
+                if (item.getId() == itemId) {
+                    return position;
+                }
+                for (TestItem child : item.getChildren()) {
+                    if (child.getId() == itemId) {
+                        return position;
+                    }
+                }
+            }
+        }
+        return -1;
+    }
+}
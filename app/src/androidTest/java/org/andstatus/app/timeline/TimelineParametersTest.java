@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2017 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.timeline;
+
+import android.database.Cursor;
+
+import org.andstatus.app.account.MyAccount;
+import org.andstatus.app.context.MyContext;
+import org.andstatus.app.context.MyContextHolder;
+import org.andstatus.app.context.MyPreferences;
+import org.andstatus.app.context.TestSuite;
+import org.andstatus.app.data.CursorColumns;
+import org.andstatus.app.msg.MessageViewItem;
+import org.andstatus.app.timeline.meta.Timeline;
+import org.andstatus.app.timeline.meta.TimelineType;
+import org.andstatus.app.util.MyHtml;
+import org.andstatus.app.util.SharedPreferencesUtil;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.andstatus.app.context.DemoData.demoData;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author yvolk@yurivolkov.com
+ */
+public class TimelineParametersTest {
+
+    @Before
+    public void setUp() throws Exception {
+        TestSuite.initializeWithData(this);
+    }
+
+    @Test
+    public void testKeysetPagination() {
+        MyContext myContext = MyContextHolder.get();
+        TimelineParameters prev = new TimelineParameters(myContext);
+        prev.setTimeline(myContext.persistentTimelines().getDefault());
+        prev.whichPage = WhichPage.CURRENT;
+        prev.minSentDate = 1000;
+        assertTrue(prev.toString(), prev.isKeysetPagination());
+
+        prev.rememberKeyLoaded(5000, 12);
+        prev.rememberKeyLoaded(2000, 7);
+        prev.rememberKeyLoaded(2000, 5);
+        prev.rememberKeyLoaded(5000, 14);
+        prev.rememberKeyLoaded(3000, 9);
+        prev.rowsLoaded = 5;
+
+        TimelineParameters older = TimelineParameters.clone(prev, WhichPage.OLDER);
+        assertEquals(2000, older.maxSentDate);
+        assertEquals("Exclusive keyset bound " + older, 5, older.maxActivityId);
+        assertTrue(older.isKeysetBounded());
+
+        TimelineParameters younger = TimelineParameters.clone(prev, WhichPage.YOUNGER);
+        assertEquals(5000, younger.minSentDate);
+        assertEquals("Exclusive keyset bound " + younger, 14, younger.minActivityId);
+        assertTrue(younger.isKeysetBounded());
+
+        TimelineParameters older2 = TimelineParameters.clone(prev, WhichPage.OLDER);
+        assertEquals(older, older2);
+        older2.maxActivityId = 6;
+        assertNotEquals(older, older2);
+
+        TimelineParameters current = TimelineParameters.clone(prev, WhichPage.CURRENT);
+        assertFalse(current.isKeysetBounded());
+    }
+
+    @Test
+    public void testSqlAndJavaFiltersAgree() {
+        final String keywordsKey = MyPreferences.KEY_FILTER_HIDE_MESSAGES_BASED_ON_KEYWORDS;
+        final String repliesKey = MyPreferences.KEY_FILTER_HIDE_REPLIES_NOT_TO_ME_OR_FRIENDS;
+        String keywordsStored = SharedPreferencesUtil.getString(keywordsKey, "");
+        boolean repliesStored = SharedPreferencesUtil.getBoolean(repliesKey, false);
+        MyAccount ma = demoData.getMyAccount(demoData.CONVERSATION_ACCOUNT_NAME);
+        Timeline timeline = Timeline.getTimeline(TimelineType.HOME, ma, 0, null);
+        try {
+            SharedPreferencesUtil.putString(keywordsKey, "");
+            SharedPreferencesUtil.putBoolean(repliesKey, false);
+            List<MessageViewItem> all = loadItems(timeline);
+            assertTrue("Messages loaded: " + all.size(), all.size() > 10 && all.size() < TimelineParameters.PAGE_SIZE);
+
+            SharedPreferencesUtil.putBoolean(repliesKey, true);
+            final String keywords = "selected, \"a duplicate\"";
+            assertFiltersAgree(timeline, all, keywords);
+
+            // More keywords, than fit into the "LIKE" selection, so the search index only is used in SQL
+            StringBuilder manyKeywords = new StringBuilder(keywords);
+            for (int ind = 0; ind < 1000; ind++) {
+                manyKeywords.append(" notindemodata" + ind);
+            }
+            assertFiltersAgree(timeline, all, manyKeywords.toString());
+        } finally {
+            SharedPreferencesUtil.putString(keywordsKey, keywordsStored);
+            SharedPreferencesUtil.putBoolean(repliesKey, repliesStored);
+        }
+    }
+
+    /** Messages, selected by SQL and then checked in Java, as in {@link TimelineLoader}, are the same,
+     * as checked in Java only */
+    private static void assertFiltersAgree(Timeline timeline, List<MessageViewItem> all, String keywords) {
+        SharedPreferencesUtil.putString(MyPreferences.KEY_FILTER_HIDE_MESSAGES_BASED_ON_KEYWORDS, keywords);
+        TimelineFilter filter = new TimelineFilter(timeline);
+        assertTrue(filter.hideRepliesNotToMeOrFriends);
+        Set<Long> expected = new HashSet<>();
+        int mutedCount = 0;
+        int hiddenRepliesCount = 0;
+        for (MessageViewItem item : all) {
+            if (item.matches(filter)) {
+                expected.add(item.getId());
+            } else if (filter.keywordsFilter.matchedAny(MyHtml.getBodyToSearch(item.getBody()))) {
+                mutedCount++;
+            } else {
+                hiddenRepliesCount++;
+            }
+        }
+        String message = "Keywords: '" + keywords + "', muted: " + mutedCount
+                + ", replies hidden: " + hiddenRepliesCount;
+        assertTrue(message, mutedCount > 0 && hiddenRepliesCount > 0);
+
+        Set<Long> actual = new HashSet<>();
+        for (MessageViewItem item : loadItems(timeline)) {
+            if (item.matches(filter)) {
+                actual.add(item.getId());
+            }
+        }
+        assertEquals(message, expected, actual);
+    }
+
+    private static List<MessageViewItem> loadItems(Timeline timeline) {
+        MyContext myContext = MyContextHolder.get();
+        TimelineParameters prev = new TimelineParameters(myContext);
+        prev.setTimeline(timeline);
+        TimelineParameters params = TimelineParameters.clone(prev, WhichPage.TOP);
+        List<MessageViewItem> items = new ArrayList<>();
+        Cursor cursor = params.queryDatabase();
+        try {
+            if (cursor.moveToFirst()) {
+                CursorColumns columns = new CursorColumns(cursor);
+                do {
+                    items.add(MessageViewItem.fromCursorRow(myContext, columns));
+                } while (cursor.moveToNext());
+            }
+        } finally {
+            cursor.close();
+        }
+        return items;
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2017 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.timeline;
+
+import android.database.Cursor;
+import android.database.MatrixCursor;
+import android.support.v4.util.Pair;
+
+import org.andstatus.app.context.MyContext;
+import org.andstatus.app.context.MyContextHolder;
+import org.andstatus.app.context.TestSuite;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TimelineSnapshotTest {
+    private static final String[] COLUMN_NAMES = new String[]{"_id", "body", "rating", "image", "empty"};
+    private MyContext myContext;
+    private File file;
+
+    @Before
+    public void setUp() throws Exception {
+        TestSuite.initializeWithData(this);
+        myContext = MyContextHolder.get();
+        file = new File(myContext.context().getCacheDir(), "timeline_snapshot_test.bin");
+    }
+
+    @Test
+    public void testCaptureIsLimited() {
+        TimelineSnapshot snapshot = TimelineSnapshot.newCapture(newParams(), newCursor(TimelineSnapshot.ROWS_COUNT * 3));
+        assertNotNull("Captured at home", snapshot);
+        MatrixCursor cursor = newCursor(TimelineSnapshot.ROWS_COUNT * 3);
+        while (cursor.moveToNext()) {
+            snapshot.addRow(cursor.getLong(0), cursor);
+        }
+        assertEquals(TimelineSnapshot.ROWS_COUNT, snapshot.rowsCount());
+    }
+
+    @Test
+    public void testWriteAndRead() throws Exception {
+        final int rowsCount = 5;
+        final long timelineId = 12;
+        final long preferencesChangeTime = 1234567890123L;
+        List<Object[]> rows = new ArrayList<>();
+        MatrixCursor cursor = newCursor(rowsCount);
+        while (cursor.moveToNext()) {
+            rows.add(rowOf(cursor));
+        }
+        TimelineSnapshot.write(file, timelineId, preferencesChangeTime, COLUMN_NAMES, rows);
+
+        Cursor read = TimelineSnapshot.read(file, timelineId, preferencesChangeTime);
+        assertNotNull("Read", read);
+        try {
+            assertArrayEquals(COLUMN_NAMES, read.getColumnNames());
+            assertEquals(rowsCount, read.getCount());
+            for (Object[] row : rows) {
+                assertTrue(read.moveToNext());
+                assertEquals(row[0], read.getLong(0));
+                assertEquals(row[1], read.getString(1));
+                assertEquals((Double) row[2], read.getDouble(2), 0.0);
+                assertArrayEquals((byte[]) row[3], read.getBlob(3));
+                assertTrue(read.isNull(4));
+            }
+        } finally {
+            read.close();
+        }
+
+        assertNull("Other timeline", TimelineSnapshot.read(file, timelineId + 1, preferencesChangeTime));
+        assertNull("Preferences changed", TimelineSnapshot.read(file, timelineId, preferencesChangeTime + 1));
+        assertTrue("Not deleted", file.exists());
+
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+            int formatVersion = randomAccessFile.readInt();
+            randomAccessFile.seek(0);
+            randomAccessFile.writeInt(formatVersion + 1);
+        }
+        assertNull("Other format version", TimelineSnapshot.read(file, timelineId, preferencesChangeTime));
+        assertFalse("Outdated file deleted", file.exists());
+    }
+
+    @Test
+    public void testRowsOfVisibleItems() {
+        final int rowsCount = TimelineSnapshot.ROWS_COUNT * 2;
+        TimelineParameters params = newParams();
+        params.whichPage = WhichPage.CURRENT;
+        TimelinePage<TestItem> page = new TimelinePage<>(params, new ArrayList<>());
+        MatrixCursor cursor = newCursor(rowsCount);
+        page.snapshot = TimelineSnapshot.newCapture(params, cursor);
+        while (cursor.moveToNext()) {
+            page.items.add(new TestItem(cursor.getLong(0)));
+            page.snapshot.addRow(cursor.getLong(0), cursor);
+        }
+        TimelineData<TestItem> data = new TimelineData<>(null, page);
+
+        assertRowsToSave(data, 0, 100, TimelineSnapshot.ROWS_COUNT);
+        assertRowsToSave(data, 5, 103, TimelineSnapshot.ROWS_COUNT - 3);
+        // Captured rows are kept, so they may be saved on the next pause also
+        assertRowsToSave(data, 5, 103, TimelineSnapshot.ROWS_COUNT - 3);
+        assertRowsToSave(data, TimelineSnapshot.ROWS_COUNT - 1, 100 + TimelineSnapshot.ROWS_COUNT - 3, 3);
+        assertNull("Row of the first visible item was not captured",
+                TimelineSnapshot.getRowsToSave(data, TimelineSnapshot.ROWS_COUNT));
+        assertNull("Beyond the end", TimelineSnapshot.getRowsToSave(data, rowsCount));
+    }
+
+    private static void assertRowsToSave(TimelineData<TestItem> data, int firstVisiblePosition,
+                                         long firstId, int count) {
+        Pair<String[], List<Object[]>> rows = TimelineSnapshot.getRowsToSave(data, firstVisiblePosition);
+        assertNotNull("Rows from " + firstVisiblePosition, rows);
+        assertArrayEquals(COLUMN_NAMES, rows.first);
+        assertEquals("Rows from " + firstVisiblePosition, count, rows.second.size());
+        assertEquals("First row", firstId, rows.second.get(0)[0]);
+    }
+
+    private static class TestItem extends ViewItem<TestItem> {
+        final long id;
+
+        TestItem(long id) {
+            this.id = id;
+        }
+
+        @Override
+        public long getId() {
+            return id;
+        }
+    }
+
+    private TimelineParameters newParams() {
+        TimelineParameters params = new TimelineParameters(myContext);
+        params.setTimeline(myContext.persistentTimelines().getDefault());
+        return params;
+    }
+
+    private static MatrixCursor newCursor(int rowsCount) {
+        MatrixCursor cursor = new MatrixCursor(COLUMN_NAMES, rowsCount);
+        for (int ind = 0; ind < rowsCount; ind++) {
+            cursor.addRow(new Object[]{100L + ind, "Body " + ind + " é中", ind / 2.0,
+                    new byte[]{(byte) ind, 1, 2}, null});
+        }
+        return cursor;
+    }
+
+    private static Object[] rowOf(Cursor cursor) {
+        return new Object[]{cursor.getLong(0), cursor.getString(1), cursor.getDouble(2), cursor.getBlob(3), null};
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2017 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author yvolk@yurivolkov.com
+ */
+public class SimHashTest {
+    private static final String BODY = "Just released a new version of our open source app with many bug fixes "
+            + "and a faster timeline, please try it and tell us what you think";
+
+    @Test
+    public void testNearDuplicates() {
+        long simHash = simHashOf(BODY + " https://goo.gl/q1w2e3");
+        assertNotEquals(SimHash.EMPTY, simHash);
+        assertSimilar(simHash, BODY);
+        assertSimilar(simHash, BODY + " https://t.co/AbCdEf #Android #OpenSource");
+        assertSimilar(simHash, BODY + "!");
+        assertSimilar(simHash, "<p>" + BODY + "</p>");
+
+        assertFalse(SimHash.areSimilar(simHash, simHashOf("The weather in the city is going to be sunny tomorrow, "
+                + "so we are planning a long walk in the park with friends")));
+        assertEquals("Too short to compare", SimHash.EMPTY, simHashOf("Hello, world"));
+        assertFalse(SimHash.areSimilar(SimHash.EMPTY, SimHash.EMPTY));
+    }
+
+    private static void assertSimilar(long simHash, String body) {
+        long simHash2 = simHashOf(body);
+        assertTrue("Distance " + SimHash.distance(simHash, simHash2) + " to '" + body + "'",
+                SimHash.areSimilar(simHash, simHash2));
+    }
+
+    private static long simHashOf(String body) {
+        return SimHash.of(MyHtml.getCleanedBody(body));
+    }
+}
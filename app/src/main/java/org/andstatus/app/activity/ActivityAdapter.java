@@ -16,6 +16,7 @@
 
 package org.andstatus.app.activity;
 
+import android.support.annotation.NonNull;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -44,6 +45,13 @@ public class ActivityAdapter extends BaseTimelineAdapter<ActivityViewItem> {
         userAdapter = new UserAdapter(contextMenu.user, new TimelineDataUserWrapper(listData));
     }
 
+    @Override
+    public void setListData(@NonNull TimelineData<ActivityViewItem> listData) {
+        super.setListData(listData);
+        messageAdapter.setListData(new TimelineDataMessageWrapper(listData));
+        userAdapter.setListData(new TimelineDataUserWrapper(listData));
+    }
+
     @Override
     public View getView(int position, View convertView, ViewGroup viewGroup) {
         ViewGroup view = getEmptyView(convertView);
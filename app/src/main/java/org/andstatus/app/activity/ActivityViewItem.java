@@ -17,12 +17,11 @@
 package org.andstatus.app.activity;
 
 import android.content.Context;
-import android.database.Cursor;
 import android.support.annotation.NonNull;
 
 import org.andstatus.app.context.MyContextHolder;
 import org.andstatus.app.context.MyPreferences;
-import org.andstatus.app.data.DbUtils;
+import org.andstatus.app.data.CursorColumns;
 import org.andstatus.app.database.table.ActivityTable;
 import org.andstatus.app.msg.MessageViewItem;
 import org.andstatus.app.net.social.MbActivityType;
@@ -36,6 +35,9 @@ import org.andstatus.app.util.I18n;
 import org.andstatus.app.util.MyLog;
 import org.andstatus.app.util.RelativeTime;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /** View on ActivityStream
  * @author yvolk@yurivolkov.com
  */
@@ -66,6 +68,12 @@ public class ActivityViewItem extends ViewItem<ActivityViewItem> implements Comp
         return insDate;
     }
 
+    @Override
+    public long getEstimatedMemoryBytes() {
+        return super.getEstimatedMemoryBytes() + actor.getEstimatedMemoryBytes()
+                + message.getEstimatedMemoryBytes() + user.getEstimatedMemoryBytes();
+    }
+
     @Override
     public int compareTo(@NonNull ActivityViewItem o) {
         // TODO: replace with Long#compare
@@ -74,31 +82,31 @@ public class ActivityViewItem extends ViewItem<ActivityViewItem> implements Comp
 
     @NonNull
     @Override
-    public ActivityViewItem fromCursor(Cursor cursor) {
-        return new ActivityViewItem().loadCursor(cursor);
+    public ActivityViewItem fromCursor(CursorColumns columns) {
+        return new ActivityViewItem().loadCursor(columns);
     }
 
-    private ActivityViewItem loadCursor(Cursor cursor) {
+    private ActivityViewItem loadCursor(CursorColumns columns) {
         long startTime = System.currentTimeMillis();
-        id = DbUtils.getLong(cursor, ActivityTable.ACTIVITY_ID);
-        activityType = MbActivityType.fromId(DbUtils.getLong(cursor, ActivityTable.ACTIVITY_TYPE));
-        insDate = DbUtils.getLong(cursor, ActivityTable.INS_DATE);
-        updatedDate = DbUtils.getLong(cursor, ActivityTable.UPDATED_DATE);
-        origin = MyContextHolder.get().persistentOrigins().fromId(DbUtils.getLong(cursor, ActivityTable.ORIGIN_ID));
+        id = columns.getLong(ActivityTable.ACTIVITY_ID);
+        activityType = MbActivityType.fromId(columns.getLong(ActivityTable.ACTIVITY_TYPE));
+        insDate = columns.getLong(ActivityTable.INS_DATE);
+        updatedDate = columns.getLong(ActivityTable.UPDATED_DATE);
+        origin = MyContextHolder.get().persistentOrigins().fromId(columns.getLong(ActivityTable.ORIGIN_ID));
 
         actor = UserViewItem.fromMbUser(MbUser.fromOriginAndUserId(origin.getId(),
-                DbUtils.getLong(cursor, ActivityTable.ACTOR_ID)));
-        actor.populateActorFromCursor(cursor);
+                columns.getLong(ActivityTable.ACTOR_ID)));
+        actor.populateActorFromCursor(columns);
 
-        messageId = DbUtils.getLong(cursor, ActivityTable.MSG_ID);
-        userId = DbUtils.getLong(cursor, ActivityTable.USER_ID);
-        objActivityId = DbUtils.getLong(cursor, ActivityTable.OBJ_ACTIVITY_ID);
+        messageId = columns.getLong(ActivityTable.MSG_ID);
+        userId = columns.getLong(ActivityTable.USER_ID);
+        objActivityId = columns.getLong(ActivityTable.OBJ_ACTIVITY_ID);
 
         if (MyLog.isVerboseEnabled()) {
             MyLog.v(this, ": " + (System.currentTimeMillis() - startTime) + "ms");
         }
         if (messageId != 0) {
-            message = MessageViewItem.fromCursorRow(MyContextHolder.get(), cursor);
+            message = MessageViewItem.fromCursorRow(MyContextHolder.get(), columns);
         } else if (userId != 0) {
             user = UserViewItem.fromMbUser(MbUser.fromOriginAndUserId(origin.getId(), userId));
             user.populateFromDatabase();
@@ -106,6 +114,17 @@ public class ActivityViewItem extends ViewItem<ActivityViewItem> implements Comp
         return this;
     }
 
+    @Override
+    public void enrichPage(@NonNull List<ActivityViewItem> items) {
+        List<MessageViewItem> messages = new ArrayList<>();
+        for (ActivityViewItem item : items) {
+            if (item.messageId != 0) {
+                messages.add(item.message);
+            }
+        }
+        MessageViewItem.EMPTY.enrichPage(messages);
+    }
+
     @Override
     public boolean matches(TimelineFilter filter) {
         if (messageId !=0) {
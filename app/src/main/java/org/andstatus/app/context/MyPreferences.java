@@ -56,6 +56,9 @@ public class MyPreferences {
     public static final String KEY_OLD_MESSAGES_FIRST_IN_CONVERSATION = "old_messages_first_in_conversation";
     public static final String KEY_REFRESH_TIMELINE_AUTOMATICALLY = "refresh_timeline_automatically";
     public static final String KEY_SHOW_THREADS_OF_CONVERSATION = "show_threads_of_conversation";
+    /** Number of rows before the end of a timeline, when loading of the next older page starts.
+     * The distance grows with the speed of scrolling. 0 - don't load the page in advance */
+    public static final String KEY_PREFETCH_OLDER_PAGE_DISTANCE = "prefetch_older_page_distance";
 
     // ----------------------------------------------------------
     // Gestures
@@ -125,11 +128,16 @@ public class MyPreferences {
     /** System time when shared preferences were changed */
     public static final String KEY_PREFERENCES_CHANGE_TIME = "preferences_change_time";
     public static final String KEY_DATA_PRUNED_DATE = "data_pruned_date";
+    /** {@link UserInTimeline}, for which names of users in the timeline items table were formatted */
+    public static final String KEY_TIMELINE_ITEMS_USER_IN_TIMELINE = "timeline_items_user_in_timeline";
+    /** boolean, true if all users are in the user search index */
+    public static final String KEY_USER_SEARCH_INDEX_BUILT = "user_search_index_built";
     /** Version code of last opened application (int) */
     public static final String KEY_VERSION_CODE_LAST = "version_code_last";
     public static final String KEY_BEING_EDITED_MESSAGE_ID = "draft_message_id";
 
     private static final boolean COLLAPSE_DUPLICATES_DEFAULT_VALUE = true;
+    private static final long PREFETCH_OLDER_PAGE_DISTANCE_DEFAULT = 100;
 
     private MyPreferences(){
         // Non instantiable
@@ -240,6 +248,11 @@ public class MyPreferences {
         return COLLAPSE_DUPLICATES_DEFAULT_VALUE;
     }
 
+    public static int getPrefetchOlderPageDistance() {
+        return (int) SharedPreferencesUtil.getLongStoredAsString(KEY_PREFETCH_OLDER_PAGE_DISTANCE,
+                PREFETCH_OLDER_PAGE_DISTANCE_DEFAULT);
+    }
+
     public static boolean isShowThreadsOfConversation() {
         return SharedPreferencesUtil.getBoolean(KEY_SHOW_THREADS_OF_CONVERSATION, true);
     }
@@ -43,6 +43,7 @@ import org.andstatus.app.account.ManageAccountsActivity;
 import org.andstatus.app.backup.BackupActivity;
 import org.andstatus.app.backup.RestoreActivity;
 import org.andstatus.app.data.MatchedUri;
+import org.andstatus.app.data.checker.DataChecker;
 import org.andstatus.app.graphics.ImageCaches;
 import org.andstatus.app.msg.KeywordsFilter;
 import org.andstatus.app.origin.PersistentOriginList;
@@ -413,6 +414,7 @@ public class MySettingsFragment extends PreferenceFragment implements
                     break;
                 case MyPreferences.KEY_USER_IN_TIMELINE:
                     showAuthorInTimeline();
+                    DataChecker.fixTimelineItemsAsync();
                     break;
                 case MyPreferences.KEY_TAP_ON_A_TIMELINE_TITLE_BEHAVIOUR:
                     showTapOnATimelineTitleBehaviour();
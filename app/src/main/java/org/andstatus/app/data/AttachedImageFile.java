@@ -16,8 +16,6 @@
 
 package org.andstatus.app.data;
 
-import android.database.Cursor;
-
 import org.andstatus.app.database.table.DownloadTable;
 import org.andstatus.app.graphics.CacheName;
 import org.andstatus.app.graphics.CachedImage;
@@ -27,10 +25,10 @@ public class AttachedImageFile extends ImageFile {
 
     private final long downloadRowId;
 
-    public static AttachedImageFile fromCursor(Cursor cursor) {
+    public static AttachedImageFile fromCursor(CursorColumns columns) {
         return new AttachedImageFile(
-                DbUtils.getLong(cursor, DownloadTable.IMAGE_ID),
-                DbUtils.getString(cursor, DownloadTable.IMAGE_FILE_NAME));
+                columns.getLong(DownloadTable.IMAGE_ID),
+                columns.getString(DownloadTable.IMAGE_FILE_NAME));
     }
 
     public AttachedImageFile(long downloadRowIdIn, String filename) {
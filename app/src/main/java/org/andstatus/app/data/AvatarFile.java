@@ -16,7 +16,6 @@
 
 package org.andstatus.app.data;
 
-import android.database.Cursor;
 import android.support.annotation.NonNull;
 
 import org.andstatus.app.R;
@@ -35,8 +34,8 @@ public class AvatarFile extends ImageFile {
     }
 
     @NonNull
-    public static AvatarFile fromCursor(long userId, Cursor cursor, String avatarColumnName) {
-        String avatarFilename = DbUtils.getString(cursor, avatarColumnName);
+    public static AvatarFile fromCursor(long userId, CursorColumns columns, String avatarColumnName) {
+        String avatarFilename = columns.getString(avatarColumnName);
         return new AvatarFile(userId, avatarFilename);
     }
 
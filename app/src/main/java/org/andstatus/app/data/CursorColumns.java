@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2017 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.data;
+
+import android.database.Cursor;
+import android.support.annotation.NonNull;
+import android.text.TextUtils;
+
+import org.andstatus.app.context.MyPreferences;
+import org.andstatus.app.util.MyLog;
+import org.andstatus.app.util.TriState;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Maps rows of one cursor: column indexes and the preferences, which affect mapping,
+ * are resolved once per cursor and not for each row, as {@link DbUtils} getters do
+ * @author yvolk@yurivolkov.com
+ */
+public class CursorColumns {
+    private static final String TAG = CursorColumns.class.getSimpleName();
+    public final Cursor cursor;
+    private final Map<String, Integer> columnIndexes = new HashMap<>();
+
+    public final boolean showOrigin;
+    public final boolean showAttachedImages;
+
+    public CursorColumns(@NonNull Cursor cursor) {
+        this.cursor = cursor;
+        showOrigin = MyPreferences.getShowOrigin();
+        showAttachedImages = MyPreferences.getDownloadAndDisplayAttachedImages();
+    }
+
+    /** @return -1 if the cursor doesn't have the column */
+    public int getColumnIndex(String columnName) {
+        Integer columnIndex = columnIndexes.get(columnName);
+        if (columnIndex == null) {
+            columnIndex = cursor.getColumnIndex(columnName);
+            columnIndexes.put(columnName, columnIndex);
+        }
+        return columnIndex;
+    }
+
+    public long getLong(String columnName) {
+        long value = 0;
+        int columnIndex = getColumnIndex(columnName);
+        if (columnIndex >= 0) {
+            try {
+                value = cursor.getLong(columnIndex);
+            } catch (Exception e){
+                MyLog.d(TAG, "getLong column " + columnName, e);
+            }
+        }
+        return value;
+    }
+
+    public int getInt(String columnName) {
+        int value = 0;
+        int columnIndex = getColumnIndex(columnName);
+        if (columnIndex >= 0) {
+            try {
+                value = cursor.getInt(columnIndex);
+            } catch (Exception e){
+                MyLog.d(TAG, "getInt column " + columnName, e);
+            }
+        }
+        return value;
+    }
+
+    public TriState getTriState(String columnName) {
+        return TriState.fromId(getInt(columnName));
+    }
+
+    @NonNull
+    public String getString(String columnName) {
+        String value = "";
+        int columnIndex = getColumnIndex(columnName);
+        if (columnIndex >= 0) {
+            String value2 = cursor.getString(columnIndex);
+            if (!TextUtils.isEmpty(value2)) {
+                value = value2;
+            }
+        }
+        return value;
+    }
+}
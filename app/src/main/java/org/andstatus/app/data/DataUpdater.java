@@ -17,7 +17,10 @@
 package org.andstatus.app.data;
 
 import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
 import android.net.Uri;
+import android.provider.BaseColumns;
 import android.support.annotation.NonNull;
 import android.text.TextUtils;
 
@@ -40,8 +43,10 @@ import org.andstatus.app.service.CommandData;
 import org.andstatus.app.service.CommandEnum;
 import org.andstatus.app.service.CommandExecutionContext;
 import org.andstatus.app.timeline.meta.TimelineType;
+import org.andstatus.app.util.MyHtml;
 import org.andstatus.app.util.MyLog;
 import org.andstatus.app.util.SharedPreferencesUtil;
+import org.andstatus.app.util.SimHash;
 import org.andstatus.app.util.StringUtils;
 import org.andstatus.app.util.TriState;
 import org.andstatus.app.util.UriUtils;
@@ -65,12 +70,10 @@ public class DataUpdater {
     private LatestUserMessages lum = new LatestUserMessages();
     private KeywordsFilter keywordsFilter = new KeywordsFilter(
             SharedPreferencesUtil.getString(MyPreferences.KEY_FILTER_HIDE_MESSAGES_BASED_ON_KEYWORDS, ""));
+    private MergedUsers mergedUsers = MergedUsers.EMPTY;
 
     public static void onActivities(CommandExecutionContext execContext, List<MbActivity> activities) {
-        DataUpdater dataUpdater = new DataUpdater(execContext);
-        for (MbActivity mbActivity : activities) {
-            dataUpdater.onActivity(mbActivity);
-        }
+        new DataUpdater(execContext).onActivities(activities, true);
     }
 
     public DataUpdater(MyAccount ma) {
@@ -81,6 +84,41 @@ public class DataUpdater {
         this.execContext = execContext;
     }
 
+    /**
+     * Stores all activities in one database transaction, e.g. a downloaded page of a timeline.
+     * The transaction is committed between activities, if other threads wait for the database
+     */
+    public void onActivities(@NonNull List<MbActivity> activities, boolean saveLum) {
+        if (activities.isEmpty()) {
+            return;
+        }
+        long startTime = System.currentTimeMillis();
+        MergedUsers usersBefore = mergedUsers;
+        MergedUsers users = MergedUsers.of(activities);
+        mergedUsers = users;
+        try {
+            DbUtils.inTransaction(execContext.getMyContext(),
+                    () -> OidToIdMap.withIdsOf(execContext.getMyContext(), activities, () -> {
+                        for (MbActivity activity : activities) {
+                            onActivity(activity, false);
+                            DbUtils.yieldIfContended(execContext.getMyContext());
+                        }
+                    })
+            );
+        } finally {
+            mergedUsers = usersBefore;
+        }
+        if (saveLum) {
+            saveLum();
+        }
+        if (MyLog.isVerboseEnabled()) {
+            long duration = System.currentTimeMillis() - startTime;
+            MyLog.v(this, "Stored " + activities.size() + " activities in " + duration + "ms"
+                    + (duration > 0 ? ", " + activities.size() * 1000L / duration + " per second" : "")
+                    + "; " + users + "; " + StoredAudiences.getStats() + "; " + OidToIdCache.getStats());
+        }
+    }
+
     public MbActivity onActivity(MbActivity mbActivity) {
         return onActivity(mbActivity, true);
     }
@@ -190,6 +228,7 @@ public class DataUpdater {
             }
             values.put(MsgTable.BODY, message.getBody());
             values.put(MsgTable.BODY_TO_SEARCH, message.getBodyToSearch());
+            values.put(MsgTable.BODY_SIMHASH, SimHash.of(MyHtml.getCleanedBody(message.getBody())));
 
             activity.getMessage().addRecipientsFromBodyText(activity.getActor());
             updateInReplyTo(activity, values);
@@ -242,6 +281,7 @@ public class DataUpdater {
                 execContext.getContext().getContentResolver().update(msgUri, values, null, null);
                 MyLog.v("MbMessage", "Updated " + message);
             }
+            OidToIdMap.put(OidEnum.MSG_OID, message.originId, message.oid, message.msgId);
             message.audience().save(execContext.getMyContext(), message.originId, message.msgId);
 
             if (isFirstTimeLoaded || isDraftUpdated) {
@@ -312,15 +352,15 @@ public class DataUpdater {
     }
 
     private void updateUser(MbActivity activity) {
-        MbUser mbUser = activity.getUser();
+        final MbUser occurrence = activity.getUser();
         final String method = "updateUser";
-        if (mbUser.isEmpty()) {
+        if (occurrence.isEmpty()) {
             MyLog.v(this, method + "; mbUser is empty");
             return;
         }
         MyAccount me = execContext.getMyContext().persistentAccounts().fromUser(activity.accountUser);
         if (!me.isValid()) {
-            if (activity.accountUser.equals(mbUser)) {
+            if (activity.accountUser.equals(occurrence)) {
                 MyLog.d(this, method +"; adding my account " + activity.accountUser);
             } else {
                 MyLog.w(this, method +"; my account is invalid, skipping: " + activity.toString());
@@ -331,13 +371,22 @@ public class DataUpdater {
         TriState followedByMe = TriState.UNKNOWN;
         TriState followedByActor = activity.type.equals(MbActivityType.FOLLOW) ? TriState.TRUE :
                 activity.type.equals(MbActivityType.UNDO_FOLLOW) ? TriState.FALSE : TriState.UNKNOWN;
-        if (mbUser.followedByMe.known()) {
-            followedByMe = mbUser.followedByMe;
+        if (occurrence.followedByMe.known()) {
+            followedByMe = occurrence.followedByMe;
         } else if (activity.getActor().userId == me.getUserId() && me.getUserId() != 0) {
             followedByMe = followedByActor;
         }
 
+        if (followedByMe.unknown() && mergedUsers.storedId(occurrence) != 0) {
+            occurrence.userId = mergedUsers.storedId(occurrence);
+            if (occurrence.hasLatestMessage()) {
+                updateMessage(occurrence.getLatestActivity(), false);
+            }
+            return;
+        }
+        final MbUser mbUser = mergedUsers.get(occurrence);
         long userId = mbUser.lookupUserId();
+        occurrence.userId = userId;
         if (userId != 0 && mbUser.isPartiallyDefined() && followedByMe.unknown()) {
             if (MyLog.isVerboseEnabled()) {
                 MyLog.v(this, method + "; Skipping partially defined: " + mbUser.toString());
@@ -425,11 +474,23 @@ public class DataUpdater {
                         execContext.getContext().getContentResolver().insert(userUri, values))
                         .getUserId();
             } else if (values.size() > 0) {
-                execContext.getContext().getContentResolver().update(userUri, values, null, null);
+                List<String> changedColumns = getChangedColumns(userId, values);
+                if (!changedColumns.isEmpty()) {
+                    execContext.getContext().getContentResolver().update(userUri, values, null, null);
+                    if (changedColumns.contains(UserTable.USERNAME) || changedColumns.contains(UserTable.REAL_NAME)
+                            || changedColumns.contains(UserTable.WEBFINGER_ID)) {
+                        TimelineItems.refreshUser(execContext.getMyContext().getDatabase(), userId);
+                    }
+                }
             }
             mbUser.userId = userId;
-            if (mbUser.hasLatestMessage()) {
-                updateMessage(mbUser.getLatestActivity(), false);
+            occurrence.userId = userId;
+            mergedUsers.onStored(mbUser, userId);
+            if (values.containsKey(UserTable.USER_OID)) {
+                OidToIdMap.put(OidEnum.USER_OID, mbUser.originId, userOid, userId);
+            }
+            if (occurrence.hasLatestMessage()) {
+                updateMessage(occurrence.getLatestActivity(), false);
             }
         } catch (Exception e) {
             MyLog.e(this, method + "; userId=" + userId + "; oid=" + userOid, e);
@@ -438,6 +499,32 @@ public class DataUpdater {
         return;
     }
 
+    /**
+     * @return columns, which values differ from the stored row of the user. Empty, if the row doesn't need an update.
+     * All columns are returned, if they cannot be compared
+     */
+    @NonNull
+    private List<String> getChangedColumns(long userId, ContentValues values) {
+        List<String> columns = new ArrayList<>(values.keySet());
+        SQLiteDatabase db = execContext.getMyContext().getDatabase();
+        if (db == null || values.containsKey(FriendshipTable.FOLLOWED)) {
+            return columns;
+        }
+        List<String> changedColumns = new ArrayList<>();
+        try (Cursor cursor = db.query(UserTable.TABLE_NAME, columns.toArray(new String[columns.size()]),
+                BaseColumns._ID + "=" + userId, null, null, null, null)) {
+            if (!cursor.moveToFirst()) {
+                return columns;
+            }
+            for (int ind = 0; ind < columns.size(); ind++) {
+                if (!TextUtils.equals(values.getAsString(columns.get(ind)), cursor.getString(ind))) {
+                    changedColumns.add(columns.get(ind));
+                }
+            }
+        }
+        return changedColumns;
+    }
+
     public void downloadOneMessageBy(String userOid) throws ConnectionException {
         List<MbActivity> activities = execContext.getConnection().getTimeline(
                 TimelineType.USER.getConnectionApiRoutine(), TimelinePosition.EMPTY,
@@ -106,6 +106,76 @@ public final class DbUtils {
         return rowsUpdated;
     }
 
+    /** Nesting level of {@link #inTransaction}, if the outermost transaction of the thread was begun by it */
+    private static final ThreadLocal<Integer> transactionLevel = new ThreadLocal<>();
+
+    /**
+     * Runs the action in one database transaction, so the database file is synced once, not on each change.
+     * Changes via {@link MyProvider} join the transaction, because the provider runs in the same thread.
+     * Transactions may be nested. If the action fails, its changes since the last
+     * {@link #yieldIfContended} are rolled back and the exception is rethrown
+     */
+    public static void inTransaction(MyContext myContext, @NonNull Runnable action) {
+        SQLiteDatabase db = myContext.getDatabase();
+        if (db == null) {
+            MyLog.v(TAG, "inTransaction; Database is null");
+            action.run();
+            return;
+        }
+        Integer level = db.inTransaction() ? transactionLevel.get() : Integer.valueOf(0);
+        db.beginTransaction();
+        if (level != null) {
+            transactionLevel.set(level + 1);
+        }
+        boolean succeeded = false;
+        try {
+            action.run();
+            db.setTransactionSuccessful();
+            succeeded = true;
+        } finally {
+            if (level != null) {
+                if (level == 0) {
+                    transactionLevel.remove();
+                } else {
+                    transactionLevel.set(level);
+                }
+            }
+            db.endTransaction();
+            if (!succeeded) {
+                // Remembered ids and audiences may be of rolled back rows
+                OidToIdCache.onRolledBack();
+                OidToIdCache.clear();
+                StoredAudiences.onChanged();
+            } else if (level != null && level == 0) {
+                OidToIdCache.onCommitted();
+            }
+        }
+    }
+
+    /**
+     * Commits changes, made so far in the current {@link #inTransaction}, and lets other threads use the database,
+     * if they wait for it. To be called between independent units of work only,
+     * not inside a nested transaction. Otherwise does nothing
+     */
+    public static void yieldIfContended(MyContext myContext) {
+        SQLiteDatabase db = myContext.getDatabase();
+        Integer level = transactionLevel.get();
+        if (db != null && level != null && level == 1 && db.inTransaction() && db.yieldIfContendedSafely()) {
+            OidToIdCache.onCommitted();
+        }
+    }
+
+    /** Closes compiled statements of the current thread, to be called, when the thread finishes its work
+     * with the database, see {@link StatementPool} */
+    public static void releaseStatements() {
+        StatementPool.release();
+    }
+
+    /** @return true if the current thread is inside {@link #inTransaction} */
+    static boolean isInTransaction() {
+        return transactionLevel.get() != null;
+    }
+
     /** @return true if current thread was interrupted */
     public static boolean waitBetweenRetries(String method) {
         return waitMs(method, MS_BETWEEN_RETRIES);
@@ -213,12 +213,25 @@ public class DownloadData {
             }
             if (!isError()) {
                 fileStored = fileNew;
+                onLoaded();
             }
         } catch (Exception e) {
             softErrorLogged("Couldn't save to database", e);
         }
     }
 
+    /** Avatars and attached images are shown in timelines */
+    private void onLoaded() {
+        if (status != DownloadStatus.LOADED) {
+            return;
+        }
+        if (msgId != 0) {
+            TimelineItems.refreshMessage(MyContextHolder.get().getDatabase(), msgId);
+        } else {
+            TimelineItems.refreshUser(MyContextHolder.get().getDatabase(), userId);
+        }
+    }
+
     private void addNew() {
        ContentValues values = new ContentValues();
        values.put(DownloadTable.DOWNLOAD_TYPE, downloadType.save());
@@ -106,9 +106,13 @@ public class FriendshipValues {
 
         Cursor cursor = null;
         boolean exists = false;
+        boolean followedBefore = false;
         try {
             cursor = db.rawQuery(sql, null);
             exists = cursor.moveToFirst();
+            if (exists) {
+                followedBefore = DbUtils.getBoolean(cursor, FriendshipTable.FOLLOWED);
+            }
         } finally {
             DbUtils.closeSilently(cursor);
         }
@@ -125,5 +129,8 @@ public class FriendshipValues {
             
             db.insert(FriendshipTable.TABLE_NAME, null, cv);
         }
+        if (followed != followedBefore) {
+            TimelineItems.refreshFriendship(db, userId, friendId);
+        }
     }
 }
@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2017 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.data;
+
+import android.support.annotation.NonNull;
+
+import org.andstatus.app.net.social.MbActivity;
+import org.andstatus.app.net.social.MbMessage;
+import org.andstatus.app.net.social.MbUser;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Users of a downloaded page, coalesced by their origin and oid, so each user is stored once per page.
+ * Non-empty attributes of all occurrences of a user are merged into the most recently updated of them
+ * @author yvolk@yurivolkov.com
+ */
+final class MergedUsers {
+    static final MergedUsers EMPTY = new MergedUsers();
+    /** Protects from too deep nesting of activities */
+    private static final int MAX_DEPTH = 10;
+
+    private final Map<String, MbUser> merged = new HashMap<>();
+    private final Map<String, Long> storedIds = new HashMap<>();
+    private int occurrencesCount = 0;
+
+    private MergedUsers() {
+        // Empty
+    }
+
+    @NonNull
+    static MergedUsers of(@NonNull List<MbActivity> activities) {
+        Map<String, List<MbUser>> occurrences = new HashMap<>();
+        for (MbActivity activity : activities) {
+            collect(occurrences, activity, 0);
+        }
+        MergedUsers users = new MergedUsers();
+        for (Map.Entry<String, List<MbUser>> entry : occurrences.entrySet()) {
+            List<MbUser> list = entry.getValue();
+            users.occurrencesCount += list.size();
+            // The sort is stable, so the first of equally updated occurrences wins
+            Collections.sort(list, (o1, o2) -> Long.compare(o2.getUpdatedDate(), o1.getUpdatedDate()));
+            MbUser latest = list.get(0);
+            for (MbUser user : list) {
+                latest.mergeEmptyFieldsFrom(user);
+            }
+            users.merged.put(entry.getKey(), latest);
+        }
+        return users;
+    }
+
+    /** @return the user with attributes of all its occurrences on the page */
+    @NonNull
+    MbUser get(@NonNull MbUser user) {
+        MbUser mergedUser = merged.get(keyOf(user));
+        return mergedUser == null ? user : mergedUser;
+    }
+
+    /** @return id of the user, if the user was already stored from this page, or 0 */
+    long storedId(@NonNull MbUser user) {
+        Long id = storedIds.get(keyOf(user));
+        return id == null ? 0 : id;
+    }
+
+    void onStored(@NonNull MbUser user, long userId) {
+        if (userId != 0 && merged.containsKey(keyOf(user))) {
+            storedIds.put(keyOf(user), userId);
+        }
+    }
+
+    private static void collect(Map<String, List<MbUser>> occurrences, MbActivity activity, int depth) {
+        if (activity == null || activity.isEmpty() || depth > MAX_DEPTH) {
+            return;
+        }
+        collect(occurrences, activity.getActor(), depth);
+        collect(occurrences, activity.getAuthor(), depth);
+        collect(occurrences, activity.getUser(), depth);
+        MbMessage message = activity.getMessage();
+        if (!message.isEmpty()) {
+            for (MbUser recipient : message.audience().getRecipients()) {
+                collect(occurrences, recipient, depth);
+            }
+        }
+        collect(occurrences, activity.getActivity(), depth + 1);
+    }
+
+    /** Only users with real oids are merged: other users may be identified differently in different occurrences */
+    private static void collect(Map<String, List<MbUser>> occurrences, MbUser user, int depth) {
+        if (user.isEmpty() || !user.isOidReal()) {
+            return;
+        }
+        String key = keyOf(user);
+        List<MbUser> list = occurrences.get(key);
+        if (list == null) {
+            list = new ArrayList<>();
+            occurrences.put(key, list);
+        }
+        for (MbUser occurrence : list) {
+            if (occurrence == user) {
+                return;
+            }
+        }
+        list.add(user);
+        if (user.hasLatestMessage()) {
+            collect(occurrences, user.getLatestActivity(), depth + 1);
+        }
+    }
+
+    private static String keyOf(MbUser user) {
+        return user.originId + ":" + user.oid;
+    }
+
+    @Override
+    public String toString() {
+        return merged.size() + " users in " + occurrencesCount + " occurrences, " + storedIds.size() + " stored";
+    }
+}
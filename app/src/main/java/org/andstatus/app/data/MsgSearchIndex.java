@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2017 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.data;
+
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+
+import org.andstatus.app.database.table.MsgSearchTable;
+import org.andstatus.app.database.table.MsgTable;
+import org.andstatus.app.util.MyLog;
+
+/**
+ * Keeps {@link MsgSearchTable} in sync with {@link MsgTable#BODY_TO_SEARCH}
+ * @author yvolk@yurivolkov.com
+ */
+public class MsgSearchIndex {
+    private static final String TAG = MsgSearchIndex.class.getSimpleName();
+    private static volatile SQLiteDatabase checkedDatabase = null;
+    private static volatile boolean available = false;
+
+    private MsgSearchIndex() {
+        // Empty
+    }
+
+    /** @return false if the database doesn't have the full text search table */
+    public static boolean isAvailable(SQLiteDatabase db) {
+        if (db == null) {
+            return false;
+        }
+        if (checkedDatabase != db) {
+            available = DatabaseUtils.longForQuery(db, "SELECT COUNT(*) FROM sqlite_master WHERE name='"
+                    + MsgSearchTable.TABLE_NAME + "'", null) > 0;
+            checkedDatabase = db;
+        }
+        return available;
+    }
+
+    /** Re-indexes selected messages */
+    static void update(SQLiteDatabase db, String msgSelection, String[] selectionArgs) {
+        if (!isAvailable(db)) {
+            return;
+        }
+        try {
+            delete(db, msgSelection, selectionArgs);
+            db.execSQL("INSERT INTO " + MsgSearchTable.TABLE_NAME
+                    + " (" + MsgSearchTable.DOC_ID + ", " + MsgSearchTable.BODY_TO_SEARCH + ")"
+                    + " SELECT " + MsgTable._ID + ", " + MsgTable.BODY_TO_SEARCH
+                    + " FROM " + MsgTable.TABLE_NAME + " WHERE " + msgSelection,
+                    selectionArgs == null ? new String[]{} : selectionArgs);
+        } catch (Exception e) {
+            MyLog.w(TAG, "update; selection:'" + msgSelection + "'", e);
+        }
+    }
+
+    static void delete(SQLiteDatabase db, String msgSelection, String[] selectionArgs) {
+        if (!isAvailable(db)) {
+            return;
+        }
+        db.delete(MsgSearchTable.TABLE_NAME, MsgSearchTable.DOC_ID + " IN (SELECT " + MsgTable._ID
+                + " FROM " + MsgTable.TABLE_NAME + " WHERE " + msgSelection + ")", selectionArgs);
+    }
+
+    /** @return number of messages, which are absent in the index or indexed with a different body */
+    public static long countInconsistent(SQLiteDatabase db) {
+        if (!isAvailable(db)) {
+            return 0;
+        }
+        final String indexed = "SELECT " + MsgSearchTable.DOC_ID + ", " + MsgSearchTable.BODY_TO_SEARCH
+                + " FROM " + MsgSearchTable.TABLE_NAME;
+        final String expected = "SELECT " + MsgTable._ID + ", " + MsgTable.BODY_TO_SEARCH
+                + " FROM " + MsgTable.TABLE_NAME;
+        return DatabaseUtils.longForQuery(db, "SELECT COUNT(*) FROM (" + expected + " EXCEPT " + indexed + ")", null)
+                + DatabaseUtils.longForQuery(db, "SELECT COUNT(*) FROM (" + indexed + " EXCEPT " + expected + ")", null);
+    }
+
+    public static void rebuild(SQLiteDatabase db) {
+        if (!isAvailable(db)) {
+            return;
+        }
+        DbUtils.execSQL(db, "DELETE FROM " + MsgSearchTable.TABLE_NAME);
+        DbUtils.execSQL(db, "INSERT INTO " + MsgSearchTable.TABLE_NAME
+                + " (" + MsgSearchTable.DOC_ID + ", " + MsgSearchTable.BODY_TO_SEARCH + ")"
+                + " SELECT " + MsgTable._ID + ", " + MsgTable.BODY_TO_SEARCH
+                + " FROM " + MsgTable.TABLE_NAME);
+    }
+}
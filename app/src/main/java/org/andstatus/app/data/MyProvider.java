@@ -25,6 +25,7 @@ import android.database.sqlite.SQLiteQueryBuilder;
 import android.net.Uri;
 import android.provider.BaseColumns;
 import android.support.annotation.NonNull;
+import android.support.v4.util.Pair;
 import android.text.TextUtils;
 
 import org.andstatus.app.context.MyContext;
@@ -52,6 +53,8 @@ import java.util.Arrays;
  */
 public class MyProvider extends ContentProvider {
     static final String TAG = MyProvider.class.getSimpleName();
+    /** Maximum number of users in a list */
+    public static final int USER_LIST_PAGE_SIZE = 400;
     
     /**
      * @see android.content.ContentProvider#onCreate()
@@ -136,6 +139,10 @@ public class MyProvider extends ContentProvider {
                     + "))";
             sqlDesc = selectionG + descSuffix;
             count = db.delete(AudienceTable.TABLE_NAME, selectionG, selectionArgs);
+            StoredAudiences.onChanged();
+
+            TimelineItems.deleteMessages(db, selection, selectionArgs);
+            MsgSearchIndex.delete(db, selection, selectionArgs);
 
             // Activities
             selectionG = " EXISTS ("
@@ -150,6 +157,8 @@ public class MyProvider extends ContentProvider {
             // Now delete messages themselves
             sqlDesc = selection + descSuffix;
             count = db.delete(MsgTable.TABLE_NAME, selection, selectionArgs);
+            OidToIdCache.onDeleted(OidEnum.ACTIVITY_OID);
+            OidToIdCache.onDeleted(OidEnum.MSG_OID);
             if (!inTransaction) {
                 db.setTransactionSuccessful();
             }
@@ -166,7 +175,9 @@ public class MyProvider extends ContentProvider {
     private int deleteUsers(SQLiteDatabase db, String selection, String[] selectionArgs) {
         int count;
         // TODO: Delete related records also... 
+        UserSearchIndex.deleteUsers(db, StringUtils.nonEmpty(selection) ? selection : "1", selectionArgs);
         count = db.delete(UserTable.TABLE_NAME, selection, selectionArgs);
+        OidToIdCache.onDeleted(OidEnum.USER_OID);
         return count;
     }
 
@@ -176,7 +187,9 @@ public class MyProvider extends ContentProvider {
             MyLog.v(MyProvider.TAG, "deleteReblog; Database is null");
             return 0;
         }
+        TimelineItems.deleteActivity(db, activityId);
         int count = db.delete(ActivityTable.TABLE_NAME, BaseColumns._ID + "=" + activityId, null);
+        OidToIdCache.onDeleted(OidEnum.ACTIVITY_OID);
         if (count > 0 && msgId != 0) {
             // Was this the last activity for this message?
             long activityId2 = MyQuery.conditionToLongColumnValue(db, null, ActivityTable.TABLE_NAME,
@@ -289,7 +302,19 @@ public class MyProvider extends ContentProvider {
             if (rowId == -1) {
                 throw new SQLException("Failed to insert row into " + uri);
             }
+            if (MsgTable.TABLE_NAME.equals(table) && values.containsKey(MsgTable.BODY_TO_SEARCH)) {
+                MsgSearchIndex.update(db, BaseColumns._ID + "=" + rowId, null);
+            }
+            if (MsgTable.TABLE_NAME.equals(table) && values.containsKey(MsgTable.ORIGIN_ID)) {
+                OidToIdMap.put(OidEnum.MSG_OID, values.getAsLong(MsgTable.ORIGIN_ID),
+                        values.getAsString(MsgTable.MSG_OID), rowId);
+            }
             if ( UserTable.TABLE_NAME.equals(table)) {
+                if (values.containsKey(UserTable.ORIGIN_ID)) {
+                    OidToIdMap.put(OidEnum.USER_OID, values.getAsLong(UserTable.ORIGIN_ID),
+                            values.getAsString(UserTable.USER_OID), rowId);
+                }
+                UserSearchIndex.refreshUser(db, rowId);
                 optionallyLoadAvatar(rowId, values);
             }
             
@@ -317,6 +342,11 @@ public class MyProvider extends ContentProvider {
         return newUri;
     }
 
+    private static boolean hasUserNames(ContentValues values) {
+        return values.containsKey(UserTable.USERNAME) || values.containsKey(UserTable.WEBFINGER_ID)
+                || values.containsKey(UserTable.REAL_NAME);
+    }
+
     private void optionallyLoadAvatar(long userId, ContentValues values) {
         if (MyPreferences.getShowAvatars() && values.containsKey(UserTable.AVATAR_URL)) {
             AvatarData.getForUser(userId).requestDownload();
@@ -333,31 +363,77 @@ public class MyProvider extends ContentProvider {
     @Override
     public Cursor query(@NonNull Uri uri, String[] projection, String selectionIn, String[] selectionArgsIn,
             String sortOrder) {
-        final int PAGE_SIZE = 400;
+        Pair<String, String[]> sqlAndArgs = buildQuery(uri, projection, selectionIn, selectionArgsIn, sortOrder);
+        Cursor c = null;
+        if (MyContextHolder.get().isReady()) {
+            // Get the database and run the query
+            SQLiteDatabase db = MyContextHolder.get().getDatabase();
+            boolean logQuery = MyLog.isVerboseEnabled();
+            try {
+                // Here we substitute ?-s in selection with values from selectionArgs
+                c = db.rawQuery(sqlAndArgs.first, sqlAndArgs.second);
+                if (c == null) {
+                    MyLog.e(this, "Null cursor returned");
+                    logQuery = true;
+                }
+            } catch (Exception e) {
+                logQuery = true;
+                MyLog.e(this, "Database query failed", e);
+            }
+
+            if (logQuery) {
+                String msg = "query, SQL=\"" + sqlAndArgs.first + "\"";
+                if (sqlAndArgs.second != null && sqlAndArgs.second.length > 0) {
+                    msg += "; selectionArgs=" + Arrays.toString(sqlAndArgs.second);
+                }
+                MyLog.v(TAG, msg);
+                msg = "uri=" + uri + "; projection=" + Arrays.toString(projection)
+                        + "; selection=" + selectionIn + "; sortOrder=" + sortOrder;
+                MyLog.v(TAG, msg);
+            }
+        }
+
+        if (c != null) {
+            c.setNotificationUri(getContext().getContentResolver(), uri);
+        }
+        return c;
+    }
+
+    /**
+     * The same arguments as for {@link #query(Uri, String[], String, String[], String)}
+     * @return SQL of the query and its arguments
+     */
+    @NonNull
+    static Pair<String, String[]> buildQuery(@NonNull Uri uri, String[] projection, String selectionIn,
+                                             String[] selectionArgsIn, String sortOrder) {
         SQLiteQueryBuilder qb = new SQLiteQueryBuilder();
-        boolean built = false;
         String selection = selectionIn;
         String limit = null;
         String[] selectionArgs = selectionArgsIn; 
         String sql = "";
+        Pair<String, String[]> tablesAndArgs = null;
+        boolean searchRanked = false;
 
         ParsedUri uriParser = ParsedUri.fromUri(uri);
         switch (uriParser.matched()) {
             case TIMELINE:
                 qb.setDistinct(true);
-                qb.setTables(TimelineSql.tablesForTimeline(uri, projection));
+                tablesAndArgs = TimelineSql.tablesForTimeline(uri, projection);
+                qb.setTables(tablesAndArgs.first);
                 qb.setProjectionMap(ProjectionMap.MSG);
                 break;
 
             case TIMELINE_ITEM:
-                qb.setTables(TimelineSql.tablesForTimeline(uri, projection));
+                tablesAndArgs = TimelineSql.tablesForTimeline(uri, projection);
+                qb.setTables(tablesAndArgs.first);
                 qb.setProjectionMap(ProjectionMap.MSG);
                 qb.appendWhere(ProjectionMap.ACTIVITY_TABLE_ALIAS + "."
                         + ActivityTable.MSG_ID + "=" + uriParser.getMessageId());
                 break;
 
             case TIMELINE_SEARCH:
-                qb.setTables(TimelineSql.tablesForTimeline(uri, projection));
+                tablesAndArgs = TimelineSql.tablesForTimeline(uri, projection);
+                qb.setTables(tablesAndArgs.first);
                 qb.setProjectionMap(ProjectionMap.MSG);
                 String rawQuery = uriParser.getSearchQuery();
                 if (StringUtils.nonEmpty(rawQuery)) {
@@ -367,12 +443,14 @@ public class MyProvider extends ContentProvider {
                         selection = "";
                     }
                     KeywordsFilter searchQuery  = new KeywordsFilter(rawQuery);
+                    boolean useSearchIndex = MsgSearchIndex.isAvailable(MyContextHolder.get().getDatabase());
                     // TODO: Search in MyDatabase.User.USERNAME also
                     selection = "(" + UserTable.AUTHOR_NAME + " LIKE ?  OR "
-                            + searchQuery.getSqlSelection(MsgTable.BODY_TO_SEARCH)
+                            + searchQuery.getSqlSelection(MsgTable.BODY_TO_SEARCH,
+                                ProjectionMap.MSG_TABLE_ALIAS + "." + BaseColumns._ID, useSearchIndex)
                             + ")" + selection;
 
-                    selectionArgs = searchQuery.prependSqlSelectionArgs(selectionArgs);
+                    selectionArgs = searchQuery.prependSqlSelectionArgs(selectionArgs, useSearchIndex);
                     selectionArgs = StringUtils.addBeforeArray(selectionArgs, "%" + rawQuery + "%");
                 }
                 break;
@@ -395,7 +473,13 @@ public class MyProvider extends ContentProvider {
                 qb.setTables(UserListSql.tablesForList(uri, projection));
                 qb.setProjectionMap(ProjectionMap.USER);
                 rawQuery = uriParser.getSearchQuery();
-                if (StringUtils.nonEmpty(rawQuery)) {
+                if (StringUtils.nonEmpty(rawQuery) && UserSearchIndex.isUsable()
+                        && StringUtils.nonEmpty(UserSearchIndex.toPrefix(rawQuery))) {
+                    tablesAndArgs = UserListSql.tablesForSearch(uri, projection, uriParser.getOriginId(),
+                            UserSearchIndex.toPrefix(rawQuery));
+                    qb.setTables(tablesAndArgs.first);
+                    searchRanked = true;
+                } else if (StringUtils.nonEmpty(rawQuery)) {
                     if (StringUtils.nonEmpty(selection)) {
                         selection = " AND (" + selection + ")";
                     } else {
@@ -407,7 +491,7 @@ public class MyProvider extends ContentProvider {
                     selectionArgs = StringUtils.addBeforeArray(selectionArgs, "%" + rawQuery + "%");
                     selectionArgs = StringUtils.addBeforeArray(selectionArgs, "%" + rawQuery + "%");
                 }
-                limit =  String.valueOf(PAGE_SIZE);
+                limit =  String.valueOf(USER_LIST_PAGE_SIZE);
                 break;
 
             case USERLIST_ITEM:
@@ -425,6 +509,10 @@ public class MyProvider extends ContentProvider {
             default:
                 throw new IllegalArgumentException(uriParser.toString());
         }
+        if (tablesAndArgs != null) {
+            // Parameters of the tables precede parameters of the selection in the SQL
+            selectionArgs = StringUtils.addBeforeArray(selectionArgs, tablesAndArgs.second);
+        }
 
         // If no sort order is specified use the default
         String orderBy;
@@ -445,7 +533,7 @@ public class MyProvider extends ContentProvider {
                 case USERLIST_ITEM:
                 case USERLIST_SEARCH:
                 case USER_ITEM:
-                    orderBy = UserTable.DEFAULT_SORT_ORDER;
+                    orderBy = (searchRanked ? UserListSql.SEARCH_RANK + " ASC, " : "") + UserTable.DEFAULT_SORT_ORDER;
                     break;
 
                 default:
@@ -455,46 +543,10 @@ public class MyProvider extends ContentProvider {
             orderBy = sortOrder;
         }
 
-        Cursor c = null;
-        if (MyContextHolder.get().isReady()) {
-            // Get the database and run the query
-            SQLiteDatabase db = MyContextHolder.get().getDatabase();
-            boolean logQuery = MyLog.isVerboseEnabled();
-            try {
-                if (sql.length() == 0) {
-                    sql = qb.buildQuery(projection, selection, null, null, orderBy, limit);
-                    built = true;
-                }
-                // Here we substitute ?-s in selection with values from selectionArgs
-                c = db.rawQuery(sql, selectionArgs);
-                if (c == null) {
-                    MyLog.e(this, "Null cursor returned");
-                    logQuery = true;
-                }
-            } catch (Exception e) {
-                logQuery = true;
-                MyLog.e(this, "Database query failed", e);
-            }
-
-            if (logQuery) {
-                String msg = "query, SQL=\"" + sql + "\"";
-                if (selectionArgs != null && selectionArgs.length > 0) {
-                    msg += "; selectionArgs=" + Arrays.toString(selectionArgs);
-                }
-                MyLog.v(TAG, msg);
-                if (built) {
-                    msg = "uri=" + uri + "; projection=" + Arrays.toString(projection)
-                    + "; selection=" + selection + "; sortOrder=" + sortOrder
-                    + "; qb.getTables=" + qb.getTables() + "; orderBy=" + orderBy;
-                    MyLog.v(TAG, msg);
-                }
-            }
+        if (sql.length() == 0) {
+            sql = qb.buildQuery(projection, selection, null, null, orderBy, limit);
         }
-
-        if (c != null) {
-            c.setNotificationUri(getContext().getContentResolver(), uri);
-        }
-        return c;
+        return new Pair<>(sql, selectionArgs);
     }
 
     /**
@@ -513,6 +565,9 @@ public class MyProvider extends ContentProvider {
         switch (uriParser.matched()) {
             case MSG:
                 count = db.update(MsgTable.TABLE_NAME, values, selection, selectionArgs);
+                if (count > 0 && values.containsKey(MsgTable.BODY_TO_SEARCH)) {
+                    MsgSearchIndex.update(db, StringUtils.nonEmpty(selection) ? selection : "1", selectionArgs);
+                }
                 break;
 
             case MSG_ITEM:
@@ -522,11 +577,22 @@ public class MyProvider extends ContentProvider {
                     count = db.update(MsgTable.TABLE_NAME, values, BaseColumns._ID + "=" + rowId
                             + (StringUtils.nonEmpty(selection) ? " AND (" + selection + ')' : ""),
                             selectionArgs);
+                    if (count > 0 && values.containsKey(MsgTable.BODY_TO_SEARCH)) {
+                        MsgSearchIndex.update(db, BaseColumns._ID + "=" + rowId, null);
+                    }
                 }
                 break;
 
             case USER:
                 count = db.update(UserTable.TABLE_NAME, values, selection, selectionArgs);
+                if (count > 0 && hasUserNames(values)) {
+                    try (Cursor cursor = db.query(UserTable.TABLE_NAME, new String[]{BaseColumns._ID},
+                            selection, selectionArgs, null, null, null)) {
+                        while (cursor.moveToNext()) {
+                            UserSearchIndex.refreshUser(db, cursor.getLong(0));
+                        }
+                    }
+                }
                 break;
 
             case USER_ITEM:
@@ -537,6 +603,9 @@ public class MyProvider extends ContentProvider {
                     count = db.update(UserTable.TABLE_NAME, values, BaseColumns._ID + "=" + selectedUserId
                                     + (StringUtils.nonEmpty(selection) ? " AND (" + selection + ')' : ""),
                             selectionArgs);
+                    if (count > 0 && hasUserNames(values)) {
+                        UserSearchIndex.refreshUser(db, selectedUserId);
+                    }
                 }
                 friendshipValues.update(db);
                 optionallyLoadAvatar(selectedUserId, values);
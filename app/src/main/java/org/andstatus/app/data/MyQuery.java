@@ -42,8 +42,13 @@ import org.andstatus.app.util.StringUtils;
 import org.andstatus.app.util.TriState;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 public class MyQuery {
@@ -84,31 +89,52 @@ public class MyQuery {
         if (TextUtils.isEmpty(oid)) {
             return 0;
         }
+        Long preloadedId = OidToIdMap.get(oidEnum, originId, oid);
+        if (preloadedId != null) {
+            return preloadedId;
+        }
+        SQLiteDatabase db = database == null ? MyContextHolder.get().getDatabase() : database;
+        boolean cacheable = db != null && OidToIdMap.isLoadable(oid);
+        if (cacheable) {
+            Long cachedId = OidToIdCache.get(db, oidEnum, originId, oid);
+            if (cachedId != null) {
+                return cachedId;
+            }
+        }
         String msgLog = "oidToId; " + oidEnum + ", origin=" + originId + ", oid=" + oid;
         String sql;
         switch (oidEnum) {
             case MSG_OID:
                 sql = "SELECT " + BaseColumns._ID + " FROM " + MsgTable.TABLE_NAME
-                        + " WHERE " + MsgTable.ORIGIN_ID + "=" + originId + " AND " + MsgTable.MSG_OID
-                        + "=" + quoteIfNotQuoted(oid);
+                        + " WHERE " + MsgTable.ORIGIN_ID + "=? AND " + MsgTable.MSG_OID + "=?";
                 break;
             case USER_OID:
                 sql = "SELECT " + BaseColumns._ID + " FROM " + UserTable.TABLE_NAME
-                        + " WHERE " + UserTable.ORIGIN_ID + "=" + originId + " AND " + UserTable.USER_OID
-                        + "=" + quoteIfNotQuoted(oid);
+                        + " WHERE " + UserTable.ORIGIN_ID + "=? AND " + UserTable.USER_OID + "=?";
                 break;
             case ACTIVITY_OID:
                 sql = "SELECT " + BaseColumns._ID + " FROM " + ActivityTable.TABLE_NAME
-                        + " WHERE " + ActivityTable.ORIGIN_ID + "=" + originId + " AND " + ActivityTable.ACTIVITY_OID
-                        + "=" + quoteIfNotQuoted(oid);
+                        + " WHERE " + ActivityTable.ORIGIN_ID + "=? AND " + ActivityTable.ACTIVITY_OID + "=?";
                 break;
             default:
                 throw new IllegalArgumentException(msgLog + "; Unknown oidEnum");
         }
-        return sqlToLong(database, msgLog, sql);
+        long id = sqlToLong(db, msgLog, sql, new Object[]{originId, unquoted(oid)});
+        if (cacheable) {
+            OidToIdCache.onQueried(db, oidEnum, originId, oid, id);
+        }
+        return id;
     }
 
     public static long sqlToLong(SQLiteDatabase databaseIn, String msgLogIn, String sql) {
+        return sqlToLong(databaseIn, msgLogIn, sql, null);
+    }
+
+    /**
+     * @param args Values of "?" parameters of the sql. If not null, the compiled statement is reused,
+     *             see {@link StatementPool}
+     */
+    static long sqlToLong(SQLiteDatabase databaseIn, String msgLogIn, String sql, Object[] args) {
         String msgLog = StringUtils.notNull(msgLogIn);
         SQLiteDatabase db = databaseIn == null ? MyContextHolder.get().getDatabase() : databaseIn;
         if (db == null) {
@@ -119,12 +145,17 @@ public class MyQuery {
             MyLog.v(TAG, msgLog + "; sql is empty");
             return 0;
         }
-        String msgLogSql = msgLog + (msgLog.contains(sql) ? "" : "; sql='" + sql +"'");
+        String msgLogSql = msgLog + (msgLog.contains(sql) ? "" : "; sql='" + sql +"'")
+                + (args == null ? "" : ", args=" + Arrays.toString(args));
         long value = 0;
         SQLiteStatement statement = null;
         try {
-            statement = db.compileStatement(sql);
-            value = statement.simpleQueryForLong();
+            if (args == null) {
+                statement = db.compileStatement(sql);
+                value = statement.simpleQueryForLong();
+            } else {
+                value = StatementPool.simpleQueryForLong(db, sql, args);
+            }
             if (value == 1 && MyLog.isVerboseEnabled()) {
                 MyLog.v(TAG, msgLogSql);
             }
@@ -165,6 +196,19 @@ public class MyQuery {
         return quoted;
     }
 
+    /** @return the value, which {@link #quoteIfNotQuoted(String)} puts into quotes, as an argument of a query */
+    @NonNull
+    static String unquoted(String original) {
+        if (TextUtils.isEmpty(original)) {
+            return "";
+        }
+        String value = original.trim();
+        if (value.length() > 1 && value.charAt(0) == '\'' && value.charAt(value.length() - 1) == '\'') {
+            return value.substring(1, value.length() - 1);
+        }
+        return value;
+    }
+
     /**
      * Lookup Originated system's id from the System's (AndStatus) id
      * 
@@ -198,21 +242,20 @@ public class MyQuery {
     public static String idToOid(SQLiteDatabase db, OidEnum oe, long entityId, long rebloggerUserId) {
         String method = "idToOid";
         String oid = "";
-        SQLiteStatement prog = null;
         String sql = "";
+        Object[] args = new Object[]{entityId};
     
         if (entityId > 0) {
             try {
                 switch (oe) {
                     case MSG_OID:
                         sql = "SELECT " + MsgTable.MSG_OID + " FROM "
-                                + MsgTable.TABLE_NAME + " WHERE " + BaseColumns._ID + "=" + entityId;
+                                + MsgTable.TABLE_NAME + " WHERE " + BaseColumns._ID + "=?";
                         break;
     
                     case USER_OID:
                         sql = "SELECT " + UserTable.USER_OID + " FROM "
-                                + UserTable.TABLE_NAME + " WHERE " + BaseColumns._ID + "="
-                                + entityId;
+                                + UserTable.TABLE_NAME + " WHERE " + BaseColumns._ID + "=?";
                         break;
     
                     case REBLOG_OID:
@@ -221,17 +264,17 @@ public class MyQuery {
                         }
                         sql = "SELECT " + ActivityTable.ACTIVITY_OID + " FROM "
                                 + ActivityTable.TABLE_NAME + " WHERE "
-                                + ActivityTable.MSG_ID + "=" + entityId + " AND "
+                                + ActivityTable.MSG_ID + "=? AND "
                                 + ActivityTable.ACTIVITY_TYPE + "=" + MbActivityType.ANNOUNCE.id + " AND "
-                                + ActivityTable.ACTOR_ID + "=" + rebloggerUserId;
+                                + ActivityTable.ACTOR_ID + "=?";
+                        args = new Object[]{entityId, rebloggerUserId};
                         break;
     
                     default:
                         throw new IllegalArgumentException(method + "; Unknown parameter: " + oe);
                 }
-                prog = db.compileStatement(sql);
-                oid = prog.simpleQueryForString();
-                
+                oid = StatementPool.simpleQueryForString(db, sql, args);
+
                 if (TextUtils.isEmpty(oid) && oe == OidEnum.REBLOG_OID) {
                     // This not reblogged message
                     oid = idToOid(db, OidEnum.MSG_OID, entityId, 0);
@@ -243,8 +286,6 @@ public class MyQuery {
             } catch (Exception e) {
                 MyLog.e(TAG, method, e);
                 oid = "";
-            } finally {
-                DbUtils.closeSilently(prog);
             }
             if (MyLog.isVerboseEnabled()) {
                 MyLog.v(TAG, method + ": " + oe + " + " + entityId + " -> " + oid);
@@ -297,34 +338,76 @@ public class MyQuery {
         return msgIdToActors(db, originId, msgId, MbActivityType.ANNOUNCE, MbActivityType.UNDO_ANNOUNCE);
     }
 
+    /** @return for each message (msgId is a key): rebloggers of the message */
+    @NonNull
+    public static Map<Long, List<MbUser>> getRebloggers(SQLiteDatabase db, Collection<Long> msgIds) {
+        return msgIdsToActors(db, msgIds, MbActivityType.ANNOUNCE, MbActivityType.UNDO_ANNOUNCE);
+    }
+
+    /** @return for each message (msgId is a key): stargazers of the message */
+    @NonNull
+    public static Map<Long, List<MbUser>> getStargazers(SQLiteDatabase db, Collection<Long> msgIds) {
+        return msgIdsToActors(db, msgIds, MbActivityType.LIKE, MbActivityType.UNDO_LIKE);
+    }
+
     /** @return for each acted user (userId is a key): ID of the last type1 or type2 activity
      *  and the type of the activity */
     @NonNull
     public static List<MbUser> msgIdToActors(
             SQLiteDatabase db, long originId, long msgId, MbActivityType typeToReturn, MbActivityType undoType) {
-        String method = "msgIdToLastOfTypes";
-        final List<Long> foundActors = new ArrayList<>();
-        final List<MbUser> users = new ArrayList<>();
-        if (db == null || msgId == 0) {
-            return users;
-        }
-        String sql = "SELECT " + ActivityTable.ACTIVITY_TYPE + ", " + ActivityTable.ACTOR_ID + ", "
+        final List<MbUser> users = msgIdsToActors(db, Collections.singleton(msgId), typeToReturn, undoType)
+                .get(msgId);
+        return users == null ? new ArrayList<>() : users;
+    }
+
+    /**
+     * The same as {@link #msgIdToActors(SQLiteDatabase, long, long, MbActivityType, MbActivityType)}
+     * for many messages at once, using one query
+     * @return for each message (msgId is a key): users, whose last activity of the two types was of typeToReturn
+     */
+    @NonNull
+    public static Map<Long, List<MbUser>> msgIdsToActors(
+            SQLiteDatabase db, Collection<Long> msgIds, MbActivityType typeToReturn, MbActivityType undoType) {
+        String method = "msgIdsToActors";
+        final Map<Long, List<MbUser>> msgIdToUsers = new HashMap<>();
+        final Set<Long> msgIdsToFind = new HashSet<>(msgIds);
+        msgIdsToFind.remove(0L);
+        if (db == null || msgIdsToFind.isEmpty()) {
+            return msgIdToUsers;
+        }
+        String sql = "SELECT " + ActivityTable.MSG_ID + ", " + ActivityTable.ORIGIN_ID + ", "
+                + ActivityTable.ACTIVITY_TYPE + ", " + ActivityTable.ACTOR_ID + ", "
                 + UserTable.WEBFINGER_ID + ", " + TimelineSql.userNameField() + " AS " + UserTable.ACTOR_NAME
                 + " FROM " + ActivityTable.TABLE_NAME + " INNER JOIN " + UserTable.TABLE_NAME
                 + " ON " + ActivityTable.ACTOR_ID + "=" + UserTable.TABLE_NAME + "." + UserTable._ID
-                + " WHERE " + ActivityTable.MSG_ID + "=" + msgId + " AND "
-                + ActivityTable.ACTIVITY_TYPE + " IN(" + typeToReturn.id + "," + undoType.id + ")"
-                + " ORDER BY " + ActivityTable.UPDATED_DATE + " DESC";
+                + " WHERE " + ActivityTable.MSG_ID
+                + (msgIdsToFind.size() == 1
+                    ? "=" + msgIdsToFind.iterator().next()
+                    : " IN(" + TextUtils.join(",", msgIdsToFind) + ")")
+                + " AND " + ActivityTable.ACTIVITY_TYPE + " IN(" + typeToReturn.id + "," + undoType.id + ")"
+                + " ORDER BY " + ActivityTable.MSG_ID + ", " + ActivityTable.UPDATED_DATE + " DESC";
         try (Cursor cursor = db.rawQuery(sql, null)) {
+            long prevMsgId = 0;
+            final Set<Long> foundActors = new HashSet<>();
             while(cursor.moveToNext()) {
+                long msgId = DbUtils.getLong(cursor, ActivityTable.MSG_ID);
+                if (msgId != prevMsgId) {
+                    prevMsgId = msgId;
+                    foundActors.clear();
+                }
                 long actorId = DbUtils.getLong(cursor, ActivityTable.ACTOR_ID);
-                if (!foundActors.contains(actorId)) {
-                    foundActors.add(actorId);
+                if (foundActors.add(actorId)) {
                     MbActivityType activityType = MbActivityType.fromId(DbUtils.getLong(cursor, ActivityTable.ACTIVITY_TYPE));
                     if (activityType.equals(typeToReturn)) {
-                        MbUser user = MbUser.fromOriginAndUserId(originId, actorId);
+                        MbUser user = MbUser.fromOriginAndUserId(DbUtils.getLong(cursor, ActivityTable.ORIGIN_ID),
+                                actorId);
                         user.setRealName(DbUtils.getString(cursor, UserTable.ACTOR_NAME));
                         user.setWebFingerId(DbUtils.getString(cursor, UserTable.WEBFINGER_ID));
+                        List<MbUser> users = msgIdToUsers.get(msgId);
+                        if (users == null) {
+                            users = new ArrayList<>();
+                            msgIdToUsers.put(msgId, users);
+                        }
                         users.add(user);
                     }
                 }
@@ -332,7 +415,7 @@ public class MyQuery {
         } catch (Exception e) {
             MyLog.w(TAG, method + "; SQL:'" + sql + "'", e);
         }
-        return users;
+        return msgIdToUsers;
     }
 
     @NonNull
@@ -386,7 +469,6 @@ public class MyQuery {
         final String method = "msgIdToUsername";
         String userName = "";
         if (messageId != 0) {
-            SQLiteStatement prog = null;
             String sql = "";
             try {
                 if (userIdColumnName.contentEquals(ActivityTable.ACTOR_ID)) {
@@ -397,7 +479,7 @@ public class MyQuery {
                     sql = "SELECT " + userNameField(userInTimeline) + " FROM " + UserTable.TABLE_NAME
                             + " INNER JOIN " + MsgTable.TABLE_NAME + " ON "
                             + MsgTable.TABLE_NAME + "." + userIdColumnName + "=" + UserTable.TABLE_NAME + "." + BaseColumns._ID
-                            + " WHERE " + MsgTable.TABLE_NAME + "." + BaseColumns._ID + "=" + messageId;
+                            + " WHERE " + MsgTable.TABLE_NAME + "." + BaseColumns._ID + "=?";
                 } else {
                     throw new IllegalArgumentException( method + "; Unknown name \"" + userIdColumnName + "\"");
                 }
@@ -406,16 +488,13 @@ public class MyQuery {
                     MyLog.v(TAG, method + "; Database is null");
                     return "";
                 }
-                prog = db.compileStatement(sql);
-                userName = prog.simpleQueryForString();
+                userName = StatementPool.simpleQueryForString(db, sql, messageId);
             } catch (SQLiteDoneException e) {
                 MyLog.ignored(TAG, e);
                 userName = "";
             } catch (Exception e) {
                 MyLog.e(TAG, method, e);
                 userName = "";
-            } finally {
-                DbUtils.closeSilently(prog);
             }
             if (MyLog.isVerboseEnabled()) {
                 MyLog.v(TAG, method + "; " + userIdColumnName + ": " + messageId + " -> " + userName );
@@ -446,7 +525,8 @@ public class MyQuery {
         if (systemId == 0) {
             return 0;
         } else {
-            return conditionToLongColumnValue(databaseIn, null, tableName, columnName, "t._id=" + systemId);
+            return conditionToLongColumnValue(databaseIn, null, tableName, columnName, "t._id=?",
+                    new Object[]{systemId});
         }
     }
 
@@ -463,6 +543,12 @@ public class MyQuery {
 
     public static long conditionToLongColumnValue(SQLiteDatabase databaseIn, String msgLog,
                                                   String tableName, String columnName, String condition) {
+        return conditionToLongColumnValue(databaseIn, msgLog, tableName, columnName, condition, null);
+    }
+
+    /** @param args Values of "?" parameters of the condition, see {@link #sqlToLong(SQLiteDatabase, String, String, Object[])} */
+    private static long conditionToLongColumnValue(SQLiteDatabase databaseIn, String msgLog, String tableName,
+                                                   String columnName, String condition, Object[] args) {
         String sql = "SELECT t." + columnName +
                 " FROM " + tableName + " AS t" +
                 (TextUtils.isEmpty(condition) ? "" : " WHERE " + condition);
@@ -472,7 +558,7 @@ public class MyQuery {
         } else if (TextUtils.isEmpty(columnName)) {
             throw new IllegalArgumentException("columnName is empty: " + sql);
         } else {
-            columnValue = sqlToLong(databaseIn, msgLog, sql);
+            columnValue = sqlToLong(databaseIn, msgLog, sql, args);
         }
         return columnValue;
     }
@@ -499,11 +585,18 @@ public class MyQuery {
         if (systemId == 0) {
             return "";
         }
-        return conditionToStringColumnValue(tableName, columnName, "_id=" + systemId);
+        return conditionToStringColumnValue(tableName, columnName, "_id=?", new Object[]{systemId});
     }
 
     @NonNull
     public static String conditionToStringColumnValue(String tableName, String columnName, String condition) {
+        return conditionToStringColumnValue(tableName, columnName, condition, null);
+    }
+
+    /** @param args Values of "?" parameters of the condition. If not null, the compiled statement is reused */
+    @NonNull
+    private static String conditionToStringColumnValue(String tableName, String columnName, String condition,
+                                                       Object[] args) {
         String method = "cond2str";
         SQLiteDatabase db = MyContextHolder.get().getDatabase();
         if (db == null) {
@@ -517,8 +610,14 @@ public class MyQuery {
         } else if (TextUtils.isEmpty(columnName)) {
             throw new IllegalArgumentException("columnName is empty: " + sql);
         } else {
-            try (SQLiteStatement prog = db.compileStatement(sql)) {
-                columnValue = prog.simpleQueryForString();
+            try {
+                if (args == null) {
+                    try (SQLiteStatement prog = db.compileStatement(sql)) {
+                        columnValue = prog.simpleQueryForString();
+                    }
+                } else {
+                    columnValue = StatementPool.simpleQueryForString(db, sql, args);
+                }
             } catch (SQLiteDoneException e) {
                 MyLog.ignored(TAG, e);
             } catch (Exception e) {
@@ -526,7 +625,8 @@ public class MyQuery {
                 return "";
             }
             if (MyLog.isVerboseEnabled()) {
-                MyLog.v(TAG, method + "; '" + sql + "' -> " + columnValue );
+                MyLog.v(TAG, method + "; '" + sql + "'" + (args == null ? "" : ", args=" + Arrays.toString(args))
+                        + " -> " + columnValue );
             }
         }
         return TextUtils.isEmpty(columnValue) ? "" : columnValue;
@@ -622,8 +722,8 @@ public class MyQuery {
                 throw new IllegalArgumentException( method + "; Illegal column '" + columnNameIn + "'");
         }
         return MyQuery.conditionToLongColumnValue(databaseIn, method, ActivityTable.TABLE_NAME, columnName,
-                ActivityTable.MSG_ID + "=" + msgId +  " AND " + condition
-                        + " ORDER BY " + ActivityTable.UPDATED_DATE + " DESC LIMIT 1");
+                ActivityTable.MSG_ID + "=? AND " + condition
+                        + " ORDER BY " + ActivityTable.UPDATED_DATE + " DESC LIMIT 1", new Object[]{msgId});
     }
 
     public static long webFingerIdToId(long originId, String webFingerId) {
@@ -650,22 +750,17 @@ public class MyQuery {
             return 0;
         }
         long id = 0;
-        SQLiteStatement prog = null;
         String sql = "";
         try {
             sql = "SELECT " + BaseColumns._ID + " FROM " + UserTable.TABLE_NAME
-                    + " WHERE " + UserTable.ORIGIN_ID + "=" + originId + " AND " + columnName + "='"
-                    + columnValue + "'";
-            prog = db.compileStatement(sql);
-            id = prog.simpleQueryForLong();
+                    + " WHERE " + UserTable.ORIGIN_ID + "=? AND " + columnName + "=?";
+            id = StatementPool.simpleQueryForLong(db, sql, originId, columnValue);
         } catch (SQLiteDoneException e) {
             MyLog.ignored(MyQuery.TAG, e);
             id = 0;
         } catch (Exception e) {
             MyLog.e(MyQuery.TAG, method + ": SQL:'" + sql + "'", e);
             id = 0;
-        } finally {
-            DbUtils.closeSilently(prog);
         }
         if (MyLog.isVerboseEnabled()) {
             MyLog.v(MyQuery.TAG, method + ":" + originId + "+" + columnValue + " -> " + id);
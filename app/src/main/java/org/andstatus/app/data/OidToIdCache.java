@@ -0,0 +1,283 @@
+/*
+ * Copyright (c) 2017 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.data;
+
+import android.database.sqlite.SQLiteDatabase;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Recently resolved ids of messages, users and activities by their oids, shared by all threads.
+ * Found ids are kept longer than "not found" results, because rows are rarely deleted,
+ * but often added during synchronization.
+ * Rows, added or re-keyed by {@link MyProvider} and {@link OidToIdMap#put}, are updated here,
+ * deletions invalidate all entries of the table. The cache is cleared, when the database is changed.
+ * Ids, which are put or queried inside {@link DbUtils#inTransaction}, may be of rows, which are not committed yet,
+ * so they are kept for the current thread only and are shared after the commit, see {@link #onCommitted()}
+ * @author yvolk@yurivolkov.com
+ */
+public class OidToIdCache {
+    static final int MAX_ENTRIES = 2000;
+    private static final long FOUND_TTL_MS = 10 * 60 * 1000;
+    private static final long NOT_FOUND_TTL_MS = 5 * 1000;
+
+    private static final Map<String, Entry> entries = new LinkedHashMap<>(MAX_ENTRIES + 1, 0.75f, true);
+    /** Key of each found id, so an old oid is forgotten, when the oid of the row is changed */
+    private static final Map<String, String> keysOfIds = new HashMap<>();
+    private static SQLiteDatabase database = null;
+    /** Entries of the current thread, which are not shared until the transaction is committed */
+    private static final ThreadLocal<Map<String, Uncommitted>> uncommitted = new ThreadLocal<>();
+
+    private static long hits = 0;
+    private static long notFoundHits = 0;
+    private static long misses = 0;
+    private static long evictions = 0;
+
+    private static class Entry {
+        final long id;
+        final long expiresAt;
+
+        Entry(long id) {
+            this.id = id;
+            expiresAt = System.currentTimeMillis() + (id == 0 ? NOT_FOUND_TTL_MS : FOUND_TTL_MS);
+        }
+    }
+
+    private static class Uncommitted {
+        final SQLiteDatabase db;
+        final OidEnum oidEnum;
+        final long id;
+        final boolean queried;
+
+        Uncommitted(SQLiteDatabase db, OidEnum oidEnum, long id, boolean queried) {
+            this.db = db;
+            this.oidEnum = oidEnum;
+            this.id = id;
+            this.queried = queried;
+        }
+    }
+
+    private OidToIdCache() {
+        // Empty
+    }
+
+    /** @return null if the id is not cached */
+    static Long get(SQLiteDatabase db, OidEnum oidEnum, long originId, String oid) {
+        String key = keyOf(oidEnum, originId, oid);
+        Map<String, Uncommitted> uncommittedEntries = uncommitted.get();
+        if (uncommittedEntries != null) {
+            Uncommitted entry = uncommittedEntries.get(key);
+            if (entry != null && (entry.db == null || entry.db == db)) {
+                return entry.id;
+            }
+        }
+        synchronized (entries) {
+            if (database != db) {
+                clearInternal();
+                database = db;
+            }
+            Entry entry = entries.get(key);
+            if (entry != null && entry.expiresAt < System.currentTimeMillis()) {
+                removeEntry(oidEnum, key, entry);
+                entry = null;
+            }
+            if (entry == null) {
+                misses++;
+                return null;
+            }
+            if (entry.id == 0) {
+                notFoundHits++;
+            } else {
+                hits++;
+            }
+            return entry.id;
+        }
+    }
+
+    /**
+     * Result of a database query for the oid, 0 if not found.
+     * "Not found" doesn't replace a found id, as the query may have been done before the row was added
+     */
+    static void onQueried(SQLiteDatabase db, OidEnum oidEnum, long originId, String oid, long id) {
+        String key = keyOf(oidEnum, originId, oid);
+        if (DbUtils.isInTransaction()) {
+            putUncommitted(key, new Uncommitted(db, oidEnum, id, true));
+            return;
+        }
+        synchronized (entries) {
+            onQueriedInternal(db, oidEnum, key, id);
+        }
+    }
+
+    private static void onQueriedInternal(SQLiteDatabase db, OidEnum oidEnum, String key, long id) {
+        if (database != db) {
+            return;
+        }
+        if (id == 0) {
+            Entry entry = entries.get(key);
+            if (entry != null && entry.id != 0) {
+                return;
+            }
+        }
+        putInternal(oidEnum, key, id);
+    }
+
+    /** The row was added or its oid was changed */
+    public static void put(OidEnum oidEnum, long originId, String oid, long id) {
+        if (id <= 0) {
+            return;
+        }
+        String key = keyOf(oidEnum, originId, oid);
+        if (DbUtils.isInTransaction()) {
+            putUncommitted(key, new Uncommitted(null, oidEnum, id, false));
+            return;
+        }
+        synchronized (entries) {
+            putInternal(oidEnum, key, id);
+        }
+    }
+
+    private static void putUncommitted(String key, Uncommitted entry) {
+        Map<String, Uncommitted> uncommittedEntries = uncommitted.get();
+        if (uncommittedEntries == null) {
+            uncommittedEntries = new LinkedHashMap<>();
+            uncommitted.set(uncommittedEntries);
+        }
+        Uncommitted oldEntry = uncommittedEntries.remove(key);
+        if (entry.queried && entry.id == 0 && oldEntry != null && oldEntry.id != 0) {
+            uncommittedEntries.put(key, oldEntry);
+        } else {
+            uncommittedEntries.put(key, entry);
+        }
+    }
+
+    /** Changes of the current thread were committed, so its entries are shared with other threads */
+    static void onCommitted() {
+        Map<String, Uncommitted> uncommittedEntries = uncommitted.get();
+        if (uncommittedEntries == null) {
+            return;
+        }
+        uncommitted.remove();
+        synchronized (entries) {
+            for (Map.Entry<String, Uncommitted> mapEntry : uncommittedEntries.entrySet()) {
+                Uncommitted entry = mapEntry.getValue();
+                if (entry.queried) {
+                    onQueriedInternal(entry.db, entry.oidEnum, mapEntry.getKey(), entry.id);
+                } else {
+                    putInternal(entry.oidEnum, mapEntry.getKey(), entry.id);
+                }
+            }
+        }
+    }
+
+    /** Changes of the current thread were rolled back */
+    static void onRolledBack() {
+        uncommitted.remove();
+    }
+
+    /** Rows were deleted, so found ids of this kind are not valid any more */
+    public static void onDeleted(OidEnum oidEnum) {
+        Map<String, Uncommitted> uncommittedEntries = uncommitted.get();
+        if (uncommittedEntries != null) {
+            Iterator<Uncommitted> iterator = uncommittedEntries.values().iterator();
+            while (iterator.hasNext()) {
+                Uncommitted entry = iterator.next();
+                if (entry.id != 0 && entry.oidEnum == oidEnum) {
+                    iterator.remove();
+                }
+            }
+        }
+        synchronized (entries) {
+            Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<String, Entry> mapEntry = iterator.next();
+                if (mapEntry.getValue().id != 0 && mapEntry.getKey().startsWith(oidEnum + ":")) {
+                    keysOfIds.remove(idKeyOf(oidEnum, mapEntry.getValue().id));
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    public static void clear() {
+        synchronized (entries) {
+            clearInternal();
+        }
+    }
+
+    public static String getStats() {
+        synchronized (entries) {
+            long requests = hits + notFoundHits + misses;
+            return "oid cache: " + entries.size() + " entries, " + requests + " requests, hits "
+                    + (requests == 0 ? 0 : (hits + notFoundHits) * 100 / requests) + "% (not found: "
+                    + notFoundHits + "), evictions: " + evictions;
+        }
+    }
+
+    private static void putInternal(OidEnum oidEnum, String key, long id) {
+        if (id != 0) {
+            String oldKey = keysOfIds.put(idKeyOf(oidEnum, id), key);
+            if (oldKey != null && !oldKey.equals(key)) {
+                entries.remove(oldKey);
+            }
+        }
+        Entry oldEntry = entries.put(key, new Entry(id));
+        if (oldEntry != null && oldEntry.id != 0 && oldEntry.id != id) {
+            keysOfIds.remove(idKeyOf(oidEnum, oldEntry.id));
+        }
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (entries.size() > MAX_ENTRIES && iterator.hasNext()) {
+            Map.Entry<String, Entry> eldest = iterator.next();
+            if (eldest.getValue().id != 0) {
+                keysOfIds.remove(idKeyOf(oidEnumOf(eldest.getKey()), eldest.getValue().id));
+            }
+            iterator.remove();
+            evictions++;
+        }
+    }
+
+    private static void removeEntry(OidEnum oidEnum, String key, Entry entry) {
+        entries.remove(key);
+        if (entry.id != 0) {
+            keysOfIds.remove(idKeyOf(oidEnum, entry.id));
+        }
+    }
+
+    private static void clearInternal() {
+        entries.clear();
+        keysOfIds.clear();
+        hits = 0;
+        notFoundHits = 0;
+        misses = 0;
+        evictions = 0;
+    }
+
+    private static String keyOf(OidEnum oidEnum, long originId, String oid) {
+        return oidEnum + ":" + originId + ":" + oid;
+    }
+
+    private static String idKeyOf(OidEnum oidEnum, long id) {
+        return oidEnum + ":" + id;
+    }
+
+    private static OidEnum oidEnumOf(String key) {
+        return OidEnum.valueOf(key.substring(0, key.indexOf(':')));
+    }
+}
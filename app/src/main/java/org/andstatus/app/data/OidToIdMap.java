@@ -0,0 +1,245 @@
+/*
+ * Copyright (c) 2017 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.data;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.provider.BaseColumns;
+import android.support.annotation.NonNull;
+import android.text.TextUtils;
+
+import org.andstatus.app.context.MyContext;
+import org.andstatus.app.database.table.ActivityTable;
+import org.andstatus.app.database.table.MsgTable;
+import org.andstatus.app.database.table.UserTable;
+import org.andstatus.app.net.social.MbActivity;
+import org.andstatus.app.net.social.MbMessage;
+import org.andstatus.app.net.social.MbUser;
+import org.andstatus.app.util.MyLog;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Ids of messages, users and activities of a downloaded page, resolved from their oids
+ * by several "oid IN (...)" queries before the page is stored,
+ * so {@link MyQuery#oidToId} doesn't query the database for each of them.
+ * The map is used in the thread, which stores the page. It is updated, when rows are added
+ * or their oids are changed. 0 means, that there is no row with such oid
+ * @author yvolk@yurivolkov.com
+ */
+public class OidToIdMap {
+    private static final String TAG = OidToIdMap.class.getSimpleName();
+    /** SQLite allows up to 999 parameters in a statement */
+    private static final int MAX_OIDS_IN_QUERY = 500;
+    /** Protects from too deep nesting of activities */
+    private static final int MAX_DEPTH = 10;
+    private static final ThreadLocal<OidToIdMap> current = new ThreadLocal<>();
+
+    private final Map<OidEnum, Map<Long, Set<String>>> oidsToLoad = new EnumMap<>(OidEnum.class);
+    private final Map<String, Long> ids = new HashMap<>();
+    /** Key of each found id, so an old oid is forgotten, when the oid of the row is changed */
+    private final Map<String, String> keysOfIds = new HashMap<>();
+
+    private OidToIdMap() {
+        // Empty
+    }
+
+    /** Runs the action, while ids of the activities are known. Nested calls use the map of the outer call */
+    public static void withIdsOf(@NonNull MyContext myContext, @NonNull List<MbActivity> activities,
+                                 @NonNull Runnable action) {
+        SQLiteDatabase db = myContext.getDatabase();
+        if (current.get() != null || db == null) {
+            action.run();
+            return;
+        }
+        OidToIdMap map = new OidToIdMap();
+        for (MbActivity activity : activities) {
+            map.collect(activity, 0);
+        }
+        map.load(db);
+        current.set(map);
+        try {
+            action.run();
+        } finally {
+            current.remove();
+        }
+    }
+
+    /** @return null if the id wasn't resolved in advance */
+    static Long get(OidEnum oidEnum, long originId, String oid) {
+        OidToIdMap map = current.get();
+        return map == null ? null : map.ids.get(keyOf(oidEnum, originId, oid));
+    }
+
+    /** Should be called, after the row was added or its oid was changed. Updates {@link OidToIdCache} also */
+    public static void put(OidEnum oidEnum, long originId, String oid, long id) {
+        if (id <= 0 || !isLoadable(oid)) {
+            return;
+        }
+        OidToIdCache.put(oidEnum, originId, oid, id);
+        OidToIdMap map = current.get();
+        if (map == null) {
+            return;
+        }
+        String key = keyOf(oidEnum, originId, oid);
+        String oldKey = map.keysOfIds.put(oidEnum + ":" + id, key);
+        if (oldKey != null && !oldKey.equals(key)) {
+            map.ids.put(oldKey, 0L);
+        }
+        map.ids.put(key, id);
+    }
+
+    private void collect(MbActivity activity, int depth) {
+        if (activity == null || activity.isEmpty() || depth > MAX_DEPTH) {
+            return;
+        }
+        if (activity.getTimelinePosition().nonEmpty()) {
+            add(OidEnum.ACTIVITY_OID, activity.accountUser.originId, activity.getTimelinePosition().getPosition());
+        }
+        collect(activity.getActor(), depth);
+        collect(activity.getAuthor(), depth);
+        collect(activity.getUser(), depth);
+        MbMessage message = activity.getMessage();
+        if (!message.isEmpty()) {
+            add(OidEnum.MSG_OID, message.originId, message.oid);
+            for (MbUser recipient : message.audience().getRecipients()) {
+                collect(recipient, depth);
+            }
+            collect(message.getInReplyTo(), depth + 1);
+            for (MbActivity reply : message.replies) {
+                collect(reply, depth + 1);
+            }
+        }
+        collect(activity.getActivity(), depth + 1);
+    }
+
+    /** The same oids, as in {@link MbUser#lookupUserId()} */
+    private void collect(MbUser user, int depth) {
+        if (user.isEmpty()) {
+            return;
+        }
+        if (user.isOidReal()) {
+            add(OidEnum.USER_OID, user.originId, user.oid);
+        }
+        add(OidEnum.USER_OID, user.originId, user.getTempOid());
+        if (user.hasAltTempOid()) {
+            add(OidEnum.USER_OID, user.originId, user.getAltTempOid());
+        }
+        if (user.hasLatestMessage()) {
+            collect(user.getLatestActivity(), depth + 1);
+        }
+    }
+
+    private void add(OidEnum oidEnum, long originId, String oid) {
+        if (originId == 0 || !isLoadable(oid)) {
+            return;
+        }
+        Map<Long, Set<String>> origins = oidsToLoad.get(oidEnum);
+        if (origins == null) {
+            origins = new HashMap<>();
+            oidsToLoad.put(oidEnum, origins);
+        }
+        Set<String> oids = origins.get(originId);
+        if (oids == null) {
+            oids = new LinkedHashSet<>();
+            origins.put(originId, oids);
+        }
+        oids.add(oid);
+    }
+
+    /** Oids, which {@link MyQuery#quoteIfNotQuoted(String)} changes, are looked up as before */
+    static boolean isLoadable(String oid) {
+        return !TextUtils.isEmpty(oid) && oid.equals(oid.trim()) && oid.indexOf('\'') < 0;
+    }
+
+    private void load(SQLiteDatabase db) {
+        int oidsCount = 0;
+        int queriesCount = 0;
+        long startTime = System.currentTimeMillis();
+        for (Map.Entry<OidEnum, Map<Long, Set<String>>> entry : oidsToLoad.entrySet()) {
+            for (Map.Entry<Long, Set<String>> originEntry : entry.getValue().entrySet()) {
+                List<String> oids = new ArrayList<>(originEntry.getValue());
+                for (int from = 0; from < oids.size(); from += MAX_OIDS_IN_QUERY) {
+                    List<String> chunk = oids.subList(from, Math.min(oids.size(), from + MAX_OIDS_IN_QUERY));
+                    load(db, entry.getKey(), originEntry.getKey(), chunk);
+                    oidsCount += chunk.size();
+                    queriesCount++;
+                }
+            }
+        }
+        oidsToLoad.clear();
+        if (MyLog.isVerboseEnabled()) {
+            MyLog.v(TAG, "Resolved " + oidsCount + " oids by " + queriesCount + " queries in "
+                    + (System.currentTimeMillis() - startTime) + "ms, found " + keysOfIds.size());
+        }
+    }
+
+    private void load(SQLiteDatabase db, OidEnum oidEnum, long originId, List<String> oids) {
+        String table;
+        String originColumn;
+        String oidColumn;
+        switch (oidEnum) {
+            case MSG_OID:
+                table = MsgTable.TABLE_NAME;
+                originColumn = MsgTable.ORIGIN_ID;
+                oidColumn = MsgTable.MSG_OID;
+                break;
+            case USER_OID:
+                table = UserTable.TABLE_NAME;
+                originColumn = UserTable.ORIGIN_ID;
+                oidColumn = UserTable.USER_OID;
+                break;
+            case ACTIVITY_OID:
+                table = ActivityTable.TABLE_NAME;
+                originColumn = ActivityTable.ORIGIN_ID;
+                oidColumn = ActivityTable.ACTIVITY_OID;
+                break;
+            default:
+                throw new IllegalArgumentException("Cannot resolve " + oidEnum);
+        }
+        StringBuilder sql = new StringBuilder("SELECT " + BaseColumns._ID + ", " + oidColumn + " FROM " + table
+                + " WHERE " + originColumn + "=" + originId + " AND " + oidColumn + " IN (");
+        for (int ind = 0; ind < oids.size(); ind++) {
+            sql.append(ind == 0 ? "?" : ",?");
+            ids.put(keyOf(oidEnum, originId, oids.get(ind)), 0L);
+        }
+        sql.append(")");
+        try (Cursor cursor = db.rawQuery(sql.toString(), oids.toArray(new String[oids.size()]))) {
+            while (cursor.moveToNext()) {
+                String key = keyOf(oidEnum, originId, cursor.getString(1));
+                long id = cursor.getLong(0);
+                ids.put(key, id);
+                keysOfIds.put(oidEnum + ":" + id, key);
+            }
+        } catch (Exception e) {
+            MyLog.e(TAG, "Failed to resolve " + oids.size() + " " + oidEnum + "s; sql='" + sql + "'", e);
+            for (String oid : oids) {
+                ids.remove(keyOf(oidEnum, originId, oid));
+            }
+        }
+    }
+
+    private static String keyOf(OidEnum oidEnum, long originId, String oid) {
+        return oidEnum + ":" + originId + ":" + oid;
+    }
+}
@@ -62,18 +62,15 @@ public class ProjectionMap {
         MSG.put(UserTable.AUTHOR_NAME, UserTable.AUTHOR_NAME);
         MSG.put(DownloadTable.DOWNLOAD_STATUS, DownloadTable.DOWNLOAD_STATUS);
         MSG.put(DownloadTable.FILE_NAME, DownloadTable.FILE_NAME);
-        MSG.put(DownloadTable.AVATAR_FILE_NAME, AVATAR_IMAGE_TABLE_ALIAS + "." + DownloadTable.FILE_NAME
-                + " AS " + DownloadTable.AVATAR_FILE_NAME);
-        MSG.put(DownloadTable.ACTOR_AVATAR_FILE_NAME, ACTOR_AVATAR_IMAGE_TABLE_ALIAS + "." + DownloadTable.FILE_NAME
-                + " AS " + DownloadTable.ACTOR_AVATAR_FILE_NAME);
-        MSG.put(DownloadTable.IMAGE_FILE_NAME, ATTACHMENT_IMAGE_TABLE_ALIAS + "." + DownloadTable.FILE_NAME
-                + " AS " + DownloadTable.IMAGE_FILE_NAME);
-        MSG.put(DownloadTable.IMAGE_ID, ATTACHMENT_IMAGE_TABLE_ALIAS + "." + DownloadTable._ID
-                + " AS " + DownloadTable.IMAGE_ID);
-        MSG.put(DownloadTable.IMAGE_URL, ATTACHMENT_IMAGE_TABLE_ALIAS + "." + DownloadTable.URI
-                + " AS " + DownloadTable.IMAGE_URL);
+        // Aliased in the joined tables and stored in the TimelineItemTable under the same names
+        MSG.put(DownloadTable.AVATAR_FILE_NAME, DownloadTable.AVATAR_FILE_NAME);
+        MSG.put(DownloadTable.ACTOR_AVATAR_FILE_NAME, DownloadTable.ACTOR_AVATAR_FILE_NAME);
+        MSG.put(DownloadTable.IMAGE_FILE_NAME, DownloadTable.IMAGE_FILE_NAME);
+        MSG.put(DownloadTable.IMAGE_ID, DownloadTable.IMAGE_ID);
+        MSG.put(DownloadTable.IMAGE_URL, DownloadTable.IMAGE_URL);
         MSG.put(UserTable.ACTOR_NAME, UserTable.ACTOR_NAME);
         MSG.put(MsgTable.BODY, MsgTable.BODY);
+        MSG.put(MsgTable.BODY_SIMHASH, MsgTable.BODY_SIMHASH);
         MSG.put(MsgTable.VIA, MsgTable.VIA);
         MSG.put(MsgTable.URL, MsgTable.URL);
         MSG.put(MsgTable.IN_REPLY_TO_MSG_ID, MsgTable.IN_REPLY_TO_MSG_ID);
@@ -24,8 +24,10 @@ import org.andstatus.app.net.social.MbUser;
 import org.andstatus.app.timeline.meta.Timeline;
 import org.andstatus.app.timeline.meta.TimelineType;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -73,6 +75,30 @@ public class SelectedUserIds {
         return sb.toString();
     }
 
+    /** The same as {@link #getSql()}, but with bound parameters. See {@link #getArgs()} */
+    public String getSqlWithArgs() {
+        if (size() == 0) {
+            return "";
+        } else if (size() == 1) {
+            return "=?";
+        } else {
+            StringBuilder sb = new StringBuilder(" IN (");
+            for (int ind = 0; ind < size(); ind++) {
+                sb.append(ind == 0 ? "?" : ", ?");
+            }
+            return sb.append(")").toString();
+        }
+    }
+
+    @NonNull
+    public List<String> getArgs() {
+        List<String> args = new ArrayList<>();
+        for (long id : ids) {
+            args.add(Long.toString(id));
+        }
+        return args;
+    }
+
     public String getSql() {
         if (size() == 0) {
             return "";
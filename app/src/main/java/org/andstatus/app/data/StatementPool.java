@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2017 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.data;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteDoneException;
+import android.database.sqlite.SQLiteStatement;
+import android.support.annotation.NonNull;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Compiled single value queries and inserts with arguments, which are reused, so a lookup costs binding
+ * of the arguments and a step instead of parsing of SQL.
+ * A statement cannot be used by several threads at once, so each thread has its own pool.
+ * A pool lives, while its thread works with the database: it is released by the thread, which executes
+ * commands, when it finishes, see {@link DbUtils#releaseStatements()}. Other threads, e.g. of loaders,
+ * are pooled and keep up to {@link #MAX_STATEMENTS} statements.
+ * Statements of the previous database are closed by the thread on its next query,
+ * when the database is changed, as statements of other threads cannot be closed safely
+ * @author yvolk@yurivolkov.com
+ */
+final class StatementPool {
+    static final int MAX_STATEMENTS = 32;
+    private static final ThreadLocal<StatementPool> pools = new ThreadLocal<>();
+
+    private final SQLiteDatabase db;
+    private final Map<String, SQLiteStatement> statements =
+            new LinkedHashMap<String, SQLiteStatement>(MAX_STATEMENTS + 1, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, SQLiteStatement> eldest) {
+                    if (size() > MAX_STATEMENTS) {
+                        DbUtils.closeSilently(eldest.getValue());
+                        return true;
+                    }
+                    return false;
+                }
+            };
+
+    private StatementPool(SQLiteDatabase db) {
+        this.db = db;
+    }
+
+    /**
+     * @param args Long, String or null values of the "?" parameters
+     * @throws SQLiteDoneException if no rows
+     */
+    static long simpleQueryForLong(@NonNull SQLiteDatabase db, @NonNull String sql, Object... args) {
+        return statementOf(db, sql, args).simpleQueryForLong();
+    }
+
+    /** The same as {@link #simpleQueryForLong} */
+    static String simpleQueryForString(@NonNull SQLiteDatabase db, @NonNull String sql, Object... args) {
+        return statementOf(db, sql, args).simpleQueryForString();
+    }
+
+    /** @return row ID of the inserted row or -1, e.g. if the row was ignored by "INSERT OR IGNORE" */
+    static long executeInsert(@NonNull SQLiteDatabase db, @NonNull String sql, Object... args) {
+        return statementOf(db, sql, args).executeInsert();
+    }
+
+    /** Closes statements of the current thread */
+    static void release() {
+        StatementPool pool = pools.get();
+        if (pool != null) {
+            pools.remove();
+            pool.close();
+        }
+    }
+
+    static int size() {
+        StatementPool pool = pools.get();
+        return pool == null ? 0 : pool.statements.size();
+    }
+
+    private static SQLiteStatement statementOf(SQLiteDatabase db, String sql, Object[] args) {
+        StatementPool pool = pools.get();
+        if (pool == null || pool.db != db || !db.isOpen()) {
+            if (pool != null) {
+                pool.close();
+            }
+            pool = new StatementPool(db);
+            pools.set(pool);
+        }
+        SQLiteStatement statement = pool.statements.get(sql);
+        if (statement == null) {
+            statement = db.compileStatement(sql);
+            pool.statements.put(sql, statement);
+        }
+        statement.clearBindings();
+        for (int ind = 0; ind < args.length; ind++) {
+            Object arg = args[ind];
+            if (arg == null) {
+                statement.bindNull(ind + 1);
+            } else if (arg instanceof Long || arg instanceof Integer) {
+                statement.bindLong(ind + 1, ((Number) arg).longValue());
+            } else {
+                statement.bindString(ind + 1, arg.toString());
+            }
+        }
+        return statement;
+    }
+
+    private void close() {
+        for (SQLiteStatement statement : statements.values()) {
+            DbUtils.closeSilently(statement);
+        }
+        statements.clear();
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2017 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.data;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.support.annotation.NonNull;
+
+import org.andstatus.app.database.table.AudienceTable;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Stores audiences of messages as sets of recipient ids: one delete of removed recipients
+ * and a compiled "INSERT OR IGNORE" of added ones, so it works inside of a transaction of a page.
+ * Recently stored audiences are remembered, so an unchanged audience is not written at all.
+ * The memory is cleared, when audience rows are deleted or changed elsewhere, or the database is changed
+ * @author yvolk@yurivolkov.com
+ */
+public class StoredAudiences {
+    static final int MAX_ENTRIES = 1000;
+    private static final String INSERT_SQL = "INSERT OR IGNORE INTO " + AudienceTable.TABLE_NAME
+            + " (" + AudienceTable.MSG_ID + ", " + AudienceTable.USER_ID + ") VALUES (?, ?)";
+
+    private static final Map<Long, Set<Long>> audiences = new LinkedHashMap<>(MAX_ENTRIES + 1, 0.75f, true);
+    private static SQLiteDatabase database = null;
+    private static long skipped = 0;
+    private static long saved = 0;
+
+    private StoredAudiences() {
+        // Empty
+    }
+
+    /** @param userIds ids of all recipients of the message */
+    public static void save(@NonNull SQLiteDatabase db, long msgId, @NonNull Set<Long> userIds) {
+        Set<Long> stored = get(db, msgId);
+        if (userIds.equals(stored)) {
+            synchronized (audiences) {
+                skipped++;
+            }
+            return;
+        }
+        if (stored == null || !userIds.containsAll(stored)) {
+            db.delete(AudienceTable.TABLE_NAME, AudienceTable.MSG_ID + "=" + msgId
+                    + (userIds.isEmpty() ? "" : " AND " + AudienceTable.USER_ID + " NOT IN ("
+                    + idsToList(userIds) + ")"), null);
+        }
+        for (long userId : userIds) {
+            if (stored == null || !stored.contains(userId)) {
+                StatementPool.executeInsert(db, INSERT_SQL, msgId, userId);
+            }
+        }
+        synchronized (audiences) {
+            if (database == db) {
+                audiences.put(msgId, new HashSet<>(userIds));
+                if (audiences.size() > MAX_ENTRIES) {
+                    audiences.remove(audiences.keySet().iterator().next());
+                }
+            }
+            saved++;
+        }
+    }
+
+    /** Audience rows were deleted or changed not by {@link #save} */
+    public static void onChanged() {
+        synchronized (audiences) {
+            audiences.clear();
+        }
+    }
+
+    public static String getStats() {
+        synchronized (audiences) {
+            return "audiences: " + saved + " saved, " + skipped + " unchanged";
+        }
+    }
+
+    /** @return null if the stored audience is not known */
+    private static Set<Long> get(SQLiteDatabase db, long msgId) {
+        synchronized (audiences) {
+            if (database != db) {
+                audiences.clear();
+                database = db;
+                skipped = 0;
+                saved = 0;
+            }
+            return audiences.get(msgId);
+        }
+    }
+
+    private static String idsToList(Set<Long> ids) {
+        StringBuilder sb = new StringBuilder();
+        for (long id : ids) {
+            if (sb.length() > 0) {
+                sb.append(", ");
+            }
+            sb.append(Long.toString(id));
+        }
+        return sb.toString();
+    }
+}
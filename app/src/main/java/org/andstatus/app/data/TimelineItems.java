@@ -0,0 +1,245 @@
+/*
+ * Copyright (c) 2017 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.data;
+
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.provider.BaseColumns;
+
+import org.andstatus.app.context.MyPreferences;
+import org.andstatus.app.database.table.ActivityTable;
+import org.andstatus.app.database.table.DownloadTable;
+import org.andstatus.app.database.table.FriendshipTable;
+import org.andstatus.app.database.table.MsgTable;
+import org.andstatus.app.database.table.TimelineItemTable;
+import org.andstatus.app.database.table.UserTable;
+import org.andstatus.app.util.MyLog;
+import org.andstatus.app.util.SharedPreferencesUtil;
+
+/**
+ * Keeps the {@link TimelineItemTable} in sync with activities, messages, users, downloads and friendships.
+ * All rows are calculated by one SQL, so the table may be refreshed for any subset of activities
+ * @author yvolk@yurivolkov.com
+ */
+public class TimelineItems {
+    private static final String TAG = TimelineItems.class.getSimpleName();
+    private static final String ACTIVITY_ALIAS = "a";
+    private static final String MSG_ALIAS = "m";
+    private static final String COLUMNS = BaseColumns._ID + ", "
+            + ActivityTable.ORIGIN_ID + ", "
+            + ActivityTable.ACCOUNT_ID + ", "
+            + ActivityTable.ACTIVITY_TYPE + ", "
+            + ActivityTable.ACTOR_ID + ", "
+            + ActivityTable.MSG_ID + ", "
+            + ActivityTable.USER_ID + ", "
+            + ActivityTable.OBJ_ACTIVITY_ID + ", "
+            + ActivityTable.SUBSCRIBED + ", "
+            + ActivityTable.NOTIFIED + ", "
+            + ActivityTable.INS_DATE + ", "
+            + ActivityTable.UPDATED_DATE + ", "
+            + UserTable.LINKED_USER_ID + ", "
+            + TimelineItemTable.AUTHOR_ID + ", "
+            + TimelineItemTable.IN_REPLY_TO_USER_ID + ", "
+            + UserTable.AUTHOR_NAME + ", "
+            + UserTable.ACTOR_NAME + ", "
+            + UserTable.IN_REPLY_TO_NAME + ", "
+            + DownloadTable.AVATAR_FILE_NAME + ", "
+            + DownloadTable.ACTOR_AVATAR_FILE_NAME + ", "
+            + DownloadTable.IMAGE_ID + ", "
+            + DownloadTable.IMAGE_FILE_NAME + ", "
+            + DownloadTable.IMAGE_URL + ", "
+            + FriendshipTable.AUTHOR_FOLLOWED + ", "
+            + FriendshipTable.ACTOR_FOLLOWED;
+
+    private TimelineItems() {
+        // Empty
+    }
+
+    /**
+     * @return true if names of users in the table are formatted according to the current preferences,
+     * so the table may be used instead of joining users to activities
+     */
+    public static boolean isUsable() {
+        return MyPreferences.getUserInTimeline().save().equals(
+                SharedPreferencesUtil.getString(MyPreferences.KEY_TIMELINE_ITEMS_USER_IN_TIMELINE, ""));
+    }
+
+    /** All rows of the table are up to date now */
+    public static void onBuilt() {
+        SharedPreferencesUtil.putString(MyPreferences.KEY_TIMELINE_ITEMS_USER_IN_TIMELINE,
+                MyPreferences.getUserInTimeline().save());
+    }
+
+    public static void refreshActivity(SQLiteDatabase db, long activityId) {
+        if (activityId != 0) {
+            refresh(db, ACTIVITY_ALIAS + "." + BaseColumns._ID + "=" + activityId);
+        }
+    }
+
+    /** All activities of the message */
+    public static void refreshMessage(SQLiteDatabase db, long msgId) {
+        if (msgId != 0) {
+            refresh(db, ACTIVITY_ALIAS + "." + ActivityTable.MSG_ID + "=" + msgId);
+        }
+    }
+
+    /** Activities, where the user is an actor, an author or the user, who was replied to */
+    public static void refreshUser(SQLiteDatabase db, long userId) {
+        if (userId != 0) {
+            refresh(db, ACTIVITY_ALIAS + "." + BaseColumns._ID + " IN (SELECT " + BaseColumns._ID
+                    + " FROM " + TimelineItemTable.TABLE_NAME + " WHERE "
+                    + ActivityTable.ACTOR_ID + "=" + userId
+                    + " OR " + TimelineItemTable.AUTHOR_ID + "=" + userId
+                    + " OR " + TimelineItemTable.IN_REPLY_TO_USER_ID + "=" + userId + ")");
+        }
+    }
+
+    /** Activities of the account, where the friend is an actor or an author */
+    public static void refreshFriendship(SQLiteDatabase db, long accountUserId, long friendId) {
+        if (accountUserId != 0 && friendId != 0) {
+            refresh(db, ACTIVITY_ALIAS + "." + BaseColumns._ID + " IN (SELECT " + BaseColumns._ID
+                    + " FROM " + TimelineItemTable.TABLE_NAME + " WHERE ("
+                    + ActivityTable.ACTOR_ID + "=" + friendId
+                    + " OR " + TimelineItemTable.AUTHOR_ID + "=" + friendId + ")"
+                    + " AND " + ActivityTable.ACCOUNT_ID + "=" + accountUserId + ")");
+        }
+    }
+
+    /**
+     * @return number of rows, which are absent, stale or don't have their activities
+     */
+    public static long countInconsistent(SQLiteDatabase db) {
+        return DatabaseUtils.longForQuery(db, "SELECT COUNT(*) FROM (" + getInconsistentSql() + ")", null)
+                + DatabaseUtils.longForQuery(db, "SELECT COUNT(*) FROM " + TimelineItemTable.TABLE_NAME
+                + " WHERE " + getOrphanCondition(), null);
+    }
+
+    /**
+     * Refreshes only rows, which are absent or stale, and deletes rows without their activities
+     * @return number of changed rows
+     */
+    public static long fixInconsistent(SQLiteDatabase db) {
+        long count = countInconsistent(db);
+        if (count > 0) {
+            DbUtils.execSQL(db, "DELETE FROM " + TimelineItemTable.TABLE_NAME + " WHERE " + getOrphanCondition());
+            DbUtils.execSQL(db, "INSERT OR REPLACE INTO " + TimelineItemTable.TABLE_NAME
+                    + " (" + COLUMNS + ") " + getInconsistentSql());
+        }
+        onBuilt();
+        return count;
+    }
+
+    private static String getInconsistentSql() {
+        return getSourceSql("") + " EXCEPT SELECT " + COLUMNS + " FROM " + TimelineItemTable.TABLE_NAME;
+    }
+
+    private static String getOrphanCondition() {
+        return BaseColumns._ID + " NOT IN (SELECT " + BaseColumns._ID + " FROM " + ActivityTable.TABLE_NAME
+                + " WHERE " + ActivityTable.UPDATED_DATE + ">0)";
+    }
+
+    /** Rows of messages, which are about to be deleted */
+    static void deleteMessages(SQLiteDatabase db, String msgSelection, String[] selectionArgs) {
+        db.delete(TimelineItemTable.TABLE_NAME, " EXISTS ("
+                + "SELECT * FROM " + MsgTable.TABLE_NAME + " WHERE ("
+                + MsgTable.TABLE_NAME + "." + BaseColumns._ID + "="
+                + TimelineItemTable.TABLE_NAME + "." + ActivityTable.MSG_ID
+                + ") AND (" + msgSelection + "))", selectionArgs);
+    }
+
+    static void deleteActivity(SQLiteDatabase db, long activityId) {
+        db.delete(TimelineItemTable.TABLE_NAME, BaseColumns._ID + "=" + activityId, null);
+    }
+
+    private static void refresh(SQLiteDatabase db, String activityCondition) {
+        if (db == null) {
+            MyLog.v(TAG, "refresh; Database is null");
+            return;
+        }
+        String sql = "INSERT OR REPLACE INTO " + TimelineItemTable.TABLE_NAME + " (" + COLUMNS + ") "
+                + getSourceSql(activityCondition);
+        try {
+            DbUtils.execSQL(db, sql);
+        } catch (Exception e) {
+            MyLog.w(TAG, "refresh; SQL:'" + sql + "'", e);
+        }
+    }
+
+    /** The same values, which {@link TimelineSql} gets by joining tables at query time */
+    private static String getSourceSql(String activityCondition) {
+        final String msgAuthorId = MSG_ALIAS + "." + MsgTable.AUTHOR_ID;
+        final String actorId = ACTIVITY_ALIAS + "." + ActivityTable.ACTOR_ID;
+        final String msgId = ACTIVITY_ALIAS + "." + ActivityTable.MSG_ID;
+        final String imageId = "(SELECT MIN(d." + DownloadTable._ID + ") FROM " + DownloadTable.TABLE_NAME
+                + " AS d WHERE d." + DownloadTable.MSG_ID + "=" + msgId
+                + " AND d." + DownloadTable.MSG_ID + "!=0"
+                + " AND d." + DownloadTable.CONTENT_TYPE + "=" + MyContentType.IMAGE.save() + ")";
+        return "SELECT "
+                + ACTIVITY_ALIAS + "." + BaseColumns._ID + ", "
+                + ACTIVITY_ALIAS + "." + ActivityTable.ORIGIN_ID + ", "
+                + ACTIVITY_ALIAS + "." + ActivityTable.ACCOUNT_ID + ", "
+                + ACTIVITY_ALIAS + "." + ActivityTable.ACTIVITY_TYPE + ", "
+                + actorId + ", "
+                + msgId + ", "
+                + ACTIVITY_ALIAS + "." + ActivityTable.USER_ID + ", "
+                + ACTIVITY_ALIAS + "." + ActivityTable.OBJ_ACTIVITY_ID + ", "
+                + ACTIVITY_ALIAS + "." + ActivityTable.SUBSCRIBED + ", "
+                + ACTIVITY_ALIAS + "." + ActivityTable.NOTIFIED + ", "
+                + ACTIVITY_ALIAS + "." + ActivityTable.INS_DATE + ", "
+                + ACTIVITY_ALIAS + "." + ActivityTable.UPDATED_DATE + ", "
+                + ACTIVITY_ALIAS + "." + ActivityTable.ACCOUNT_ID + ", "
+                + "IFNULL(" + msgAuthorId + ", 0), "
+                + "IFNULL(" + MSG_ALIAS + "." + MsgTable.IN_REPLY_TO_USER_ID + ", 0), "
+                + userNameSql(msgAuthorId) + ", "
+                + userNameSql(actorId) + ", "
+                + userNameSql(MSG_ALIAS + "." + MsgTable.IN_REPLY_TO_USER_ID) + ", "
+                + avatarFileNameSql(msgAuthorId) + ", "
+                + avatarFileNameSql(actorId) + ", "
+                + imageId + ", "
+                + downloadColumnSql(DownloadTable.FILE_NAME, imageId) + ", "
+                + downloadColumnSql(DownloadTable.URI, imageId) + ", "
+                + followedSql(msgAuthorId) + ", "
+                + followedSql(actorId)
+                + " FROM " + ActivityTable.TABLE_NAME + " AS " + ACTIVITY_ALIAS
+                + " LEFT JOIN " + MsgTable.TABLE_NAME + " AS " + MSG_ALIAS
+                + " ON " + MSG_ALIAS + "." + BaseColumns._ID + "=" + msgId
+                + " WHERE " + ACTIVITY_ALIAS + "." + ActivityTable.UPDATED_DATE + ">0"
+                + (activityCondition.length() == 0 ? "" : " AND (" + activityCondition + ")");
+    }
+
+    private static String userNameSql(String userIdField) {
+        return "(SELECT " + TimelineSql.userNameField() + " FROM " + UserTable.TABLE_NAME
+                + " AS u WHERE u." + BaseColumns._ID + "=" + userIdField + ")";
+    }
+
+    private static String avatarFileNameSql(String userIdField) {
+        return "(SELECT " + DownloadTable.FILE_NAME + " FROM " + DownloadTable.TABLE_NAME
+                + " AS av WHERE av." + DownloadTable.USER_ID + "=" + userIdField
+                + " AND av." + DownloadTable.DOWNLOAD_STATUS + "=" + DownloadStatus.LOADED.save() + " LIMIT 1)";
+    }
+
+    private static String downloadColumnSql(String columnName, String downloadIdSql) {
+        return "(SELECT " + columnName + " FROM " + DownloadTable.TABLE_NAME
+                + " AS img WHERE img." + DownloadTable._ID + "=" + downloadIdSql + ")";
+    }
+
+    private static String followedSql(String friendIdField) {
+        return "(SELECT " + FriendshipTable.FOLLOWED + " FROM " + FriendshipTable.TABLE_NAME
+                + " AS f WHERE f." + FriendshipTable.USER_ID + "=" + ACTIVITY_ALIAS + "." + ActivityTable.ACCOUNT_ID
+                + " AND f." + FriendshipTable.FRIEND_ID + "=" + friendIdField + ")";
+    }
+}
@@ -16,13 +16,14 @@
 
 package org.andstatus.app.data;
 
-import android.database.Cursor;
 import android.database.sqlite.SQLiteQueryBuilder;
 import android.net.Uri;
 import android.provider.BaseColumns;
 import android.support.annotation.NonNull;
-import android.text.TextUtils;
+import android.support.v4.util.Pair;
 
+import org.andstatus.app.account.MyAccount;
+import org.andstatus.app.context.MyContext;
 import org.andstatus.app.context.MyContextHolder;
 import org.andstatus.app.context.MyPreferences;
 import org.andstatus.app.context.UserInTimeline;
@@ -30,6 +31,7 @@ import org.andstatus.app.database.table.ActivityTable;
 import org.andstatus.app.database.table.DownloadTable;
 import org.andstatus.app.database.table.FriendshipTable;
 import org.andstatus.app.database.table.MsgTable;
+import org.andstatus.app.database.table.TimelineItemTable;
 import org.andstatus.app.database.table.UserTable;
 import org.andstatus.app.origin.Origin;
 import org.andstatus.app.origin.OriginType;
@@ -38,12 +40,22 @@ import org.andstatus.app.timeline.meta.TimelineType;
 import org.andstatus.app.util.SharedPreferencesUtil;
 import org.andstatus.app.util.TriState;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class TimelineSql {
+    static final int TABLES_CACHE_SIZE_MAX = 100;
+    /** Tables SQL by a query shape. Variable ids are bound parameters in it, so the same SQL
+     * (and its compiled statement, cached by a database connection) is reused for different ids */
+    private static final Map<String, String> tablesCache = new ConcurrentHashMap<>();
+    private static volatile long tablesCachePreferencesChangeTime = 0;
 
     private TimelineSql() {
         // Empty
@@ -53,12 +65,90 @@ public class TimelineSql {
      * @param uri the same as uri for
      *            {@link MyProvider#query(Uri, String[], String, String[], String)}
      * @param projection Projection
-     * @return String for {@link SQLiteQueryBuilder#setTables(String)}
+     * @return 1. String for {@link SQLiteQueryBuilder#setTables(String)} and
+     *  2. values of its parameters, to be bound before parameters of the selection
      */
-    static String tablesForTimeline(Uri uri, String[] projection) {
+    @NonNull
+    static Pair<String, String[]> tablesForTimeline(Uri uri, String[] projection) {
         Timeline timeline = Timeline.fromParsedUri(MyContextHolder.get(), ParsedUri.fromUri(uri), "");
         SelectedUserIds selectedAccounts = new SelectedUserIds(timeline);
-    
+        long preferencesChangeTime = MyPreferences.getPreferencesChangeTime();
+        if (tablesCachePreferencesChangeTime != preferencesChangeTime
+                || tablesCache.size() >= TABLES_CACHE_SIZE_MAX) {
+            tablesCache.clear();
+            tablesCachePreferencesChangeTime = preferencesChangeTime;
+        }
+        boolean useTimelineItems = isServedByTimelineItems(timeline.getTimelineType()) && TimelineItems.isUsable();
+        String key = getQueryShapeKey(timeline, selectedAccounts, useTimelineItems, projection);
+        String tables = tablesCache.get(key);
+        if (tables == null) {
+            tables = buildTablesForTimeline(timeline, selectedAccounts, useTimelineItems, projection);
+            tablesCache.put(key, tables);
+        }
+        return new Pair<>(tables, getTablesArgs(timeline, selectedAccounts));
+    }
+
+    /** All what {@link #buildTablesForTimeline(Timeline, SelectedUserIds, boolean, String[])} depends on,
+     * except for values of the bound parameters and the preferences */
+    @NonNull
+    private static String getQueryShapeKey(Timeline timeline, SelectedUserIds selectedAccounts,
+                                           boolean useTimelineItems, String[] projection) {
+        StringBuilder builder = new StringBuilder(timeline.getTimelineType().save())
+                .append(timeline.isCombined() ? ",combined" : "")
+                .append(useTimelineItems ? ",items" : "")
+                .append(",accounts:").append(selectedAccounts.size());
+        for (String column : new TreeSet<>(Arrays.asList(projection))) {
+            builder.append(",").append(column);
+        }
+        return builder.toString();
+    }
+
+    /** Values of the bound parameters of the tables, in the order of their appearance in the tables SQL */
+    @NonNull
+    private static String[] getTablesArgs(Timeline timeline, SelectedUserIds selectedAccounts) {
+        List<String> args = new ArrayList<>();
+        switch (timeline.getTimelineType()) {
+            case FOLLOWERS:
+            case MY_FOLLOWERS:
+            case FRIENDS:
+            case MY_FRIENDS:
+            case USER:
+            case SENT:
+                args.addAll(selectedAccounts.getArgs());
+                break;
+            case MESSAGES_TO_ACT:
+                if (selectedAccounts.size() == 1) {
+                    args.addAll(selectedAccounts.getArgs());
+                }
+                break;
+            default:
+                break;
+        }
+        if (timeline.getTimelineType().isAtOrigin() && !timeline.isCombined()) {
+            args.add(Long.toString(timeline.getOrigin().getId()));
+        }
+        if (timeline.getTimelineType().isForAccount() && !timeline.isCombined()) {
+            args.add(Long.toString(timeline.getMyAccount().getUserId()));
+        }
+        return args.toArray(new String[]{});
+    }
+
+    /** Rows of these timelines don't depend on a user, linked to the timeline, so they are in the {@link TimelineItemTable} */
+    private static boolean isServedByTimelineItems(TimelineType timelineType) {
+        switch (timelineType) {
+            case FOLLOWERS:
+            case MY_FOLLOWERS:
+            case FRIENDS:
+            case MY_FRIENDS:
+            case MESSAGES_TO_ACT:
+                return false;
+            default:
+                return true;
+        }
+    }
+
+    private static String buildTablesForTimeline(Timeline timeline, SelectedUserIds selectedAccounts,
+                                                 boolean useTimelineItems, String[] projection) {
         Collection<String> columns = new java.util.HashSet<>(Arrays.asList(projection));
 
         final String msgTablePlaceholder = "$msgTable";
@@ -85,7 +175,7 @@ public class TimelineSql {
                 tables = "(SELECT " + fUserIdColumnName + " AS fUserId, "
                         + fUserLinkedUserIdColumnName + " AS " + UserTable.LINKED_USER_ID
                         + " FROM " + FriendshipTable.TABLE_NAME
-                        + " WHERE (" + UserTable.LINKED_USER_ID + selectedAccounts.getSql()
+                        + " WHERE (" + UserTable.LINKED_USER_ID + selectedAccounts.getSqlWithArgs()
                         + " AND " + FriendshipTable.FOLLOWED + "=1 )"
                         + ") as fUser";
                 boolean defineAuthorName = columns.contains(UserTable.AUTHOR_NAME);
@@ -106,7 +196,7 @@ public class TimelineSql {
                 break;
             case MESSAGES_TO_ACT:
                 if (selectedAccounts.size() == 1) {
-                    linkedUserField = selectedAccounts.getList();  // Constant ID as a field
+                    linkedUserField = "CAST(? AS INTEGER)";  // Constant ID as a field
                 }
                 break;
             case HOME:
@@ -133,9 +223,8 @@ public class TimelineSql {
                 break;
             case USER:
             case SENT:
-                SelectedUserIds userIds = new SelectedUserIds(timeline);
                 // All actions by this User(s)
-                activityWhere.append(ActivityTable.ACTOR_ID + " " + userIds.getSql());
+                activityWhere.append(ActivityTable.ACTOR_ID + " " + selectedAccounts.getSqlWithArgs());
                 break;
             case NOTIFICATIONS:
                 activityWhere.append(ActivityTable.NOTIFIED + "=" + TriState.TRUE.id);
@@ -146,12 +235,15 @@ public class TimelineSql {
 
         if (tables.contains(msgTablePlaceholder)) {
             if (timeline.getTimelineType().isAtOrigin() && !timeline.isCombined()) {
-                activityWhere.append(ActivityTable.ORIGIN_ID + "=" + timeline.getOrigin().getId());
+                activityWhere.append(ActivityTable.ORIGIN_ID + "=?");
             }
             if (timeline.getTimelineType().isForAccount() && !timeline.isCombined()) {
-                activityWhere.append(ActivityTable.ACCOUNT_ID + "=" + timeline.getMyAccount().getUserId());
+                activityWhere.append(ActivityTable.ACCOUNT_ID + "=?");
             }
-            String activityTable = "(SELECT "
+            String activityTable = useTimelineItems
+                    ? "(SELECT * FROM " + TimelineItemTable.TABLE_NAME + activityWhere.getWhere()
+                        + ") AS " + ProjectionMap.ACTIVITY_TABLE_ALIAS
+                    : "(SELECT "
                     + ActivityTable._ID + ", "
                     + ActivityTable.ORIGIN_ID + ", "
                     + ActivityTable.INS_DATE + ", "
@@ -173,6 +265,10 @@ public class TimelineSql {
                     + " ON (" + ProjectionMap.MSG_TABLE_ALIAS + "." + BaseColumns._ID + "="
                         + ProjectionMap.ACTIVITY_TABLE_ALIAS + "." + ActivityTable.MSG_ID + ")";
             tables = tables.replace(msgTablePlaceholder, msgTable);
+            if (useTimelineItems) {
+                // Names, avatars, attachments and "followed" flags are already there
+                return tables;
+            }
         }
 
         if (!authorNameDefined && columns.contains(UserTable.AUTHOR_NAME)) {
@@ -189,7 +285,7 @@ public class TimelineSql {
             tables = "(" + tables + ") LEFT OUTER JOIN (SELECT "
                     + DownloadTable.USER_ID + ", "
                     + DownloadTable.DOWNLOAD_STATUS + ", "
-                    + DownloadTable.FILE_NAME
+                    + DownloadTable.FILE_NAME + " AS " + DownloadTable.AVATAR_FILE_NAME
                     + " FROM " + DownloadTable.TABLE_NAME + ") AS " + ProjectionMap.AVATAR_IMAGE_TABLE_ALIAS
                     + " ON "
                     + ProjectionMap.AVATAR_IMAGE_TABLE_ALIAS + "." + DownloadTable.DOWNLOAD_STATUS
@@ -200,11 +296,12 @@ public class TimelineSql {
         if (columns.contains(DownloadTable.IMAGE_FILE_NAME)) {
             tables = "(" + tables + ") LEFT OUTER JOIN (" +
                     "SELECT "
-                    + DownloadTable._ID + ", "
+                    + DownloadTable._ID + " AS " + DownloadTable.IMAGE_ID + ", "
                     + DownloadTable.MSG_ID + ", "
                     + DownloadTable.CONTENT_TYPE + ", "
-                    + (columns.contains(DownloadTable.IMAGE_URL) ? DownloadTable.URI + ", " : "")
-                    + DownloadTable.FILE_NAME
+                    + (columns.contains(DownloadTable.IMAGE_URL)
+                        ? DownloadTable.URI + " AS " + DownloadTable.IMAGE_URL + ", " : "")
+                    + DownloadTable.FILE_NAME + " AS " + DownloadTable.IMAGE_FILE_NAME
                     + " FROM " + DownloadTable.TABLE_NAME
                     + " WHERE " + DownloadTable.MSG_ID + "!=0"
                     + ") AS " + ProjectionMap.ATTACHMENT_IMAGE_TABLE_ALIAS
@@ -225,7 +322,7 @@ public class TimelineSql {
                 tables = "(" + tables + ") LEFT OUTER JOIN (SELECT "
                         + DownloadTable.USER_ID + ", "
                         + DownloadTable.DOWNLOAD_STATUS + ", "
-                        + DownloadTable.FILE_NAME
+                        + DownloadTable.FILE_NAME + " AS " + DownloadTable.ACTOR_AVATAR_FILE_NAME
                         + " FROM " + DownloadTable.TABLE_NAME + ") AS " + ProjectionMap.ACTOR_AVATAR_IMAGE_TABLE_ALIAS
                         + " ON "
                         + ProjectionMap.ACTOR_AVATAR_IMAGE_TABLE_ALIAS + "." + DownloadTable.DOWNLOAD_STATUS
@@ -270,6 +367,25 @@ public class TimelineSql {
         return tables;
     }
 
+    /**
+     * The same as {@link org.andstatus.app.account.PersistentAccounts#isMeOrMyFriend(long)}
+     * for the author of the message, which the message replies to. Not replies are selected also
+     */
+    @NonNull
+    public static String getRepliesToMeOrMyFriendsSelection(@NonNull MyContext myContext) {
+        final String inReplyToUserId = ProjectionMap.MSG_TABLE_ALIAS + "." + MsgTable.IN_REPLY_TO_USER_ID;
+        StringBuilder accountUserIds = new StringBuilder();
+        for (MyAccount ma : myContext.persistentAccounts().list()) {
+            if (ma.isValid()) {
+                accountUserIds.append(accountUserIds.length() > 0 ? ", " : "").append(ma.getUserId());
+            }
+        }
+        return "(" + inReplyToUserId + " IS NULL OR " + inReplyToUserId + "=0"
+                + (accountUserIds.length() > 0 ? " OR " + inReplyToUserId + " IN (" + accountUserIds + ")" : "")
+                + " OR " + inReplyToUserId + " IN (SELECT " + FriendshipTable.FRIEND_ID
+                + " FROM " + FriendshipTable.TABLE_NAME + " WHERE " + FriendshipTable.FOLLOWED + "=1))";
+    }
+
     /**
      * Table columns to use for activities
      */
@@ -293,6 +409,7 @@ public class TimelineSql {
     public static Set<String> getTimelineProjection() {
         Set<String> columnNames = getBaseProjection();
         columnNames.add(ActivityTable.ACTIVITY_ID);
+        columnNames.add(ActivityTable.UPDATED_DATE);
         columnNames.add(MsgTable.AUTHOR_ID);
         columnNames.add(ActivityTable.ACTOR_ID);
         columnNames.add(UserTable.ACTOR_NAME);
@@ -307,6 +424,7 @@ public class TimelineSql {
         columnNames.add(ActivityTable.ORIGIN_ID);
         columnNames.add(UserTable.AUTHOR_NAME);
         columnNames.add(MsgTable.BODY);
+        columnNames.add(MsgTable.BODY_SIMHASH);
         columnNames.add(MsgTable.IN_REPLY_TO_MSG_ID);
         columnNames.add(UserTable.IN_REPLY_TO_NAME);
         columnNames.add(MsgTable.FAVORITED);
@@ -340,27 +458,16 @@ public class TimelineSql {
     }
 
     @NonNull
-    public static String userColumnNameToNameAtTimeline(Cursor cursor, String columnName, boolean showOrigin) {
-        return userColumnIndexToNameAtTimeline(cursor, cursor.getColumnIndex(columnName), showOrigin);
-    }
-
-    @NonNull
-    public static String userColumnIndexToNameAtTimeline(Cursor cursor, int columnIndex, boolean showOrigin) {
-        String userName = "";
-        if (columnIndex >= 0) {
-            userName = cursor.getString(columnIndex);
-            if (TextUtils.isEmpty(userName)) {
-                userName = "";
-            }
-        }
+    public static String userColumnNameToNameAtTimeline(CursorColumns columns, String columnName, boolean showOrigin) {
+        String userName = columns.getString(columnName);
         if (showOrigin) {
-            long originId = DbUtils.getLong(cursor, ActivityTable.ORIGIN_ID);
+            long originId = columns.getLong(ActivityTable.ORIGIN_ID);
             if (originId != 0) {
                 Origin origin = MyContextHolder.get().persistentOrigins().fromId(originId);
                 userName += " / " + origin.getName();
                 if (origin.getOriginType() == OriginType.GNUSOCIAL &&
                         MyPreferences.isShowDebuggingInfoInUi()) {
-                    long authorId = DbUtils.getLong(cursor, MsgTable.AUTHOR_ID);
+                    long authorId = columns.getLong(MsgTable.AUTHOR_ID);
                     if (authorId != 0) {
                         userName += " id:" + MyQuery.idToOid(OidEnum.USER_OID, authorId, 0);
                     }
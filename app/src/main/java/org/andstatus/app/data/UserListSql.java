@@ -19,9 +19,12 @@ package org.andstatus.app.data;
 import android.database.sqlite.SQLiteQueryBuilder;
 import android.net.Uri;
 import android.provider.BaseColumns;
+import android.support.v4.util.Pair;
 
 import org.andstatus.app.context.MyPreferences;
 import org.andstatus.app.database.table.DownloadTable;
+import org.andstatus.app.database.table.OriginTable;
+import org.andstatus.app.database.table.UserSearchTable;
 import org.andstatus.app.database.table.UserTable;
 
 import java.util.ArrayList;
@@ -30,6 +33,11 @@ import java.util.Collection;
 import java.util.List;
 
 public class UserListSql {
+    /** The lower, the better match, see {@link #tablesForSearch(Uri, String[], long, String)} */
+    static final String SEARCH_RANK = "search_rank";
+    private static final String FOUND_USER_ID = "found_user_id";
+    private static final String FOUND_USER_TABLE_ALIAS = "found";
+
     private UserListSql() {
         // Empty
     }
@@ -59,6 +67,27 @@ public class UserListSql {
         return tables;
     }
 
+    /**
+     * Users, found in the {@link UserSearchTable} by a prefix of any of their tokens.
+     * The best match of a user is in the {@link #SEARCH_RANK} column
+     * @param originId 0 for all origins
+     * @return String for {@link SQLiteQueryBuilder#setTables(String)} and its arguments
+     */
+    static Pair<String, String[]> tablesForSearch(Uri uri, String[] projection, long originId, String prefix) {
+        String tables = tablesForList(uri, projection) + " INNER JOIN (SELECT "
+                + UserSearchTable.USER_ID + " AS " + FOUND_USER_ID + ", "
+                + "MIN(" + UserSearchTable.TOKEN_RANK + ") AS " + SEARCH_RANK
+                + " FROM " + UserSearchTable.TABLE_NAME
+                + " WHERE " + UserSearchTable.ORIGIN_ID + (originId == 0
+                    ? " IN (SELECT " + BaseColumns._ID + " FROM " + OriginTable.TABLE_NAME + ")"
+                    : "=" + originId)
+                + " AND " + UserSearchTable.TOKEN + ">=? AND " + UserSearchTable.TOKEN + "<?"
+                + " GROUP BY " + UserSearchTable.USER_ID + ") AS " + FOUND_USER_TABLE_ALIAS
+                + " ON " + FOUND_USER_TABLE_ALIAS + "." + FOUND_USER_ID
+                + "=" + UserTable.TABLE_NAME + "." + BaseColumns._ID;
+        return new Pair<>(tables, UserSearchIndex.getPrefixRangeArgs(prefix));
+    }
+
     /**
      * Table columns to use for a User item content
      */
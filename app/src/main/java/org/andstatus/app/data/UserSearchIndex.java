@@ -0,0 +1,179 @@
+/*
+ * Copyright (c) 2017 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.data;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.provider.BaseColumns;
+import android.support.annotation.NonNull;
+import android.text.TextUtils;
+
+import org.andstatus.app.context.MyPreferences;
+import org.andstatus.app.database.table.UserSearchTable;
+import org.andstatus.app.database.table.UserTable;
+import org.andstatus.app.util.MyLog;
+import org.andstatus.app.util.SharedPreferencesUtil;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Keeps {@link UserSearchTable} in sync with names of users and finds users by a prefix of any of their tokens
+ * @author yvolk@yurivolkov.com
+ */
+public class UserSearchIndex {
+    private static final String TAG = UserSearchIndex.class.getSimpleName();
+    /** Whole {@link UserTable#USERNAME} or {@link UserTable#WEBFINGER_ID} */
+    static final int RANK_NAME = 0;
+    /** Whole {@link UserTable#REAL_NAME} */
+    static final int RANK_REAL_NAME = 1;
+    /** A word of any name */
+    static final int RANK_WORD = 2;
+
+    private UserSearchIndex() {
+        // Empty
+    }
+
+    /** @return false if the table is not filled yet, e.g. right after the database upgrade */
+    public static boolean isUsable() {
+        return SharedPreferencesUtil.getBoolean(MyPreferences.KEY_USER_SEARCH_INDEX_BUILT, false);
+    }
+
+    /** All rows of the table are up to date now */
+    public static void onBuilt() {
+        SharedPreferencesUtil.putBoolean(MyPreferences.KEY_USER_SEARCH_INDEX_BUILT, true);
+    }
+
+    /** @return the search query, as it is compared with the tokens */
+    @NonNull
+    public static String toPrefix(String query) {
+        return TextUtils.isEmpty(query) ? "" : query.trim().toLowerCase();
+    }
+
+    /** Arguments for the "token >= ? AND token < ?" condition, which finds all tokens starting with the prefix */
+    @NonNull
+    static String[] getPrefixRangeArgs(String prefix) {
+        return new String[]{prefix, prefix + Character.MAX_VALUE};
+    }
+
+    /** The same check, as the index does, for already loaded users */
+    public static boolean matches(String prefix, String userName, String webFingerId, String realName) {
+        for (String token : getTokens(userName, webFingerId, realName).keySet()) {
+            if (token.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** @return Map of tokens to their ranks */
+    @NonNull
+    public static Map<String, Integer> getTokens(String userName, String webFingerId, String realName) {
+        Map<String, Integer> tokens = new HashMap<>();
+        addToken(tokens, userName, RANK_NAME);
+        addToken(tokens, webFingerId, RANK_NAME);
+        addToken(tokens, realName, RANK_REAL_NAME);
+        addWords(tokens, userName);
+        addWords(tokens, webFingerId);
+        addWords(tokens, realName);
+        return tokens;
+    }
+
+    private static void addWords(Map<String, Integer> tokens, String name) {
+        if (TextUtils.isEmpty(name)) {
+            return;
+        }
+        int wordStart = -1;
+        for (int ind = 0; ind <= name.length(); ind++) {
+            boolean inWord = ind < name.length() && Character.isLetterOrDigit(name.charAt(ind));
+            if (inWord && wordStart < 0) {
+                wordStart = ind;
+            } else if (!inWord && wordStart >= 0) {
+                addToken(tokens, name.substring(wordStart, ind), RANK_WORD);
+                wordStart = -1;
+            }
+        }
+    }
+
+    private static void addToken(Map<String, Integer> tokens, String token, int rank) {
+        String token2 = toPrefix(token);
+        if (token2.isEmpty()) {
+            return;
+        }
+        Integer rankStored = tokens.get(token2);
+        if (rankStored == null || rankStored > rank) {
+            tokens.put(token2, rank);
+        }
+    }
+
+    static void refreshUser(SQLiteDatabase db, long userId) {
+        if (db == null || userId == 0) {
+            return;
+        }
+        String sql = "SELECT " + UserTable.ORIGIN_ID + ", " + UserTable.USERNAME + ", " + UserTable.WEBFINGER_ID
+                + ", " + UserTable.REAL_NAME + " FROM " + UserTable.TABLE_NAME
+                + " WHERE " + BaseColumns._ID + "=" + userId;
+        try (Cursor c = db.rawQuery(sql, null)) {
+            if (c.moveToNext()) {
+                write(db, userId, c.getLong(0), getTokens(c.getString(1), c.getString(2), c.getString(3)));
+            } else {
+                db.delete(UserSearchTable.TABLE_NAME, UserSearchTable.USER_ID + "=" + userId, null);
+            }
+        } catch (Exception e) {
+            MyLog.w(TAG, "refreshUser; userId:" + userId, e);
+        }
+    }
+
+    /** @return Map of tokens to their ranks */
+    @NonNull
+    public static Map<String, Integer> getStored(SQLiteDatabase db, long userId) {
+        Map<String, Integer> tokens = new HashMap<>();
+        String sql = "SELECT " + UserSearchTable.TOKEN + ", " + UserSearchTable.TOKEN_RANK
+                + " FROM " + UserSearchTable.TABLE_NAME + " WHERE " + UserSearchTable.USER_ID + "=" + userId;
+        try (Cursor c = db.rawQuery(sql, null)) {
+            while (c.moveToNext()) {
+                tokens.put(c.getString(0), c.getInt(1));
+            }
+        }
+        return tokens;
+    }
+
+    public static void write(SQLiteDatabase db, long userId, long originId, @NonNull Map<String, Integer> tokens) {
+        db.delete(UserSearchTable.TABLE_NAME, UserSearchTable.USER_ID + "=" + userId, null);
+        for (Map.Entry<String, Integer> entry : tokens.entrySet()) {
+            ContentValues values = new ContentValues();
+            values.put(UserSearchTable.ORIGIN_ID, originId);
+            values.put(UserSearchTable.TOKEN, entry.getKey());
+            values.put(UserSearchTable.USER_ID, userId);
+            values.put(UserSearchTable.TOKEN_RANK, entry.getValue());
+            db.insert(UserSearchTable.TABLE_NAME, null, values);
+        }
+    }
+
+    /** @param userSelection condition on {@link UserTable} rows */
+    static void deleteUsers(SQLiteDatabase db, String userSelection, String[] selectionArgs) {
+        db.delete(UserSearchTable.TABLE_NAME, UserSearchTable.USER_ID + " IN (SELECT " + BaseColumns._ID
+                + " FROM " + UserTable.TABLE_NAME + " WHERE " + userSelection + ")", selectionArgs);
+    }
+
+    /** @return number of deleted rows of users, which don't exist anymore */
+    public static int deleteOrphans(SQLiteDatabase db) {
+        return db.delete(UserSearchTable.TABLE_NAME, UserSearchTable.USER_ID + " NOT IN (SELECT "
+                + BaseColumns._ID + " FROM " + UserTable.TABLE_NAME + ")", null);
+    }
+}
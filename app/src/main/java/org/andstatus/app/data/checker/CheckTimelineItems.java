@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2017 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.data.checker;
+
+import org.andstatus.app.data.TimelineItems;
+import org.andstatus.app.util.MyLog;
+
+/**
+ * Rebuilds absent and stale rows of the {@link org.andstatus.app.database.table.TimelineItemTable}
+ * @author yvolk@yurivolkov.com
+ */
+class CheckTimelineItems extends DataChecker {
+
+    @Override
+    long fixInternal(boolean countOnly) {
+        logger.logProgress("Checking timeline items");
+        long changedCount = 0;
+        try {
+            changedCount = countOnly
+                    ? TimelineItems.countInconsistent(myContext.getDatabase())
+                    : TimelineItems.fixInconsistent(myContext.getDatabase());
+        } catch (Exception e) {
+            String logMsg = "Error: " + e.getMessage();
+            logger.logProgress(logMsg);
+            MyLog.e(this, logMsg, e);
+        }
+        logger.logProgress(changedCount == 0
+                ? "No changes to timeline items were needed"
+                : (countOnly ? "Need to change " : "Changed ") + changedCount + " timeline items");
+        return changedCount;
+    }
+}
@@ -68,6 +68,25 @@ public abstract class DataChecker {
                 });
     }
 
+    /** Names of users in timeline items depend on the preferences, so we need to rebuild them on a change */
+    public static void fixTimelineItemsAsync() {
+        AsyncTaskLauncher.execute(
+                DataChecker.class,
+                false,
+                new MyAsyncTask<Void, Void, Void>(CheckTimelineItems.class.getSimpleName(),
+                MyAsyncTask.PoolEnum.LONG_UI) {
+
+                    @Override
+                    protected Void doInBackground2(Void... params) {
+                        MyContext myContext = MyContextHolder.get();
+                        if (myContext.isReady()) {
+                            new CheckTimelineItems().setMyContext(myContext).setLogger(ProgressLogger.getEmpty()).fix();
+                        }
+                        return null;
+                    }
+                });
+    }
+
     public static void fixData(final ProgressLogger logger, final boolean includeLong) {
         MyContext myContext = MyContextHolder.get();
         if (!myContext.isReady()) {
@@ -75,7 +94,7 @@ public abstract class DataChecker {
         }
         MyLog.i(DataChecker.class, "fixData started" + (includeLong ? ", including long tasks" : ""));
         for(DataChecker checker : new DataChecker[]{new MergeUsers(),
-                new CheckConversations(), new CheckTimelines(), new SearchIndexUpdate()}) {
+                new CheckConversations(), new CheckTimelines(), new CheckTimelineItems(), new SearchIndexUpdate()}) {
             if (includeLong || checker.notLong()) checker.setMyContext(myContext).setLogger(logger).fix();
         }
     }
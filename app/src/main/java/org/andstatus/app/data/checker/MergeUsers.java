@@ -20,11 +20,15 @@ import android.database.Cursor;
 import android.support.annotation.NonNull;
 
 import org.andstatus.app.data.DbUtils;
+import org.andstatus.app.data.OidEnum;
+import org.andstatus.app.data.OidToIdCache;
+import org.andstatus.app.data.StoredAudiences;
 import org.andstatus.app.database.table.ActivityTable;
 import org.andstatus.app.database.table.AudienceTable;
 import org.andstatus.app.database.table.DownloadTable;
 import org.andstatus.app.database.table.FriendshipTable;
 import org.andstatus.app.database.table.MsgTable;
+import org.andstatus.app.database.table.UserSearchTable;
 import org.andstatus.app.database.table.UserTable;
 import org.andstatus.app.net.social.MbActivity;
 import org.andstatus.app.net.social.MbActivityType;
@@ -46,6 +50,10 @@ class MergeUsers extends DataChecker {
             mergeUser(activity);
             changedCount++;
         }
+        if (changedCount > 0) {
+            OidToIdCache.onDeleted(OidEnum.USER_OID);
+            StoredAudiences.onChanged();
+        }
         return changedCount;
     }
 
@@ -131,6 +139,7 @@ class MergeUsers extends DataChecker {
         deleteRows(logMsg, user, FriendshipTable.TABLE_NAME, FriendshipTable.FRIEND_ID);
 
         deleteRows(logMsg, user, DownloadTable.TABLE_NAME, DownloadTable.USER_ID);
+        deleteRows(logMsg, user, UserSearchTable.TABLE_NAME, UserSearchTable.USER_ID);
 
         deleteRows(logMsg, user, UserTable.TABLE_NAME, UserTable._ID);
     }
@@ -17,11 +17,18 @@
 package org.andstatus.app.data.checker;
 
 import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
 
+import org.andstatus.app.data.MsgSearchIndex;
+import org.andstatus.app.data.UserSearchIndex;
 import org.andstatus.app.database.table.MsgTable;
+import org.andstatus.app.database.table.UserTable;
 import org.andstatus.app.service.MyServiceManager;
 import org.andstatus.app.util.MyHtml;
 import org.andstatus.app.util.MyLog;
+import org.andstatus.app.util.SimHash;
+
+import java.util.Map;
 
 import static org.andstatus.app.data.MyQuery.quoteIfNotQuoted;
 
@@ -40,6 +47,7 @@ class SearchIndexUpdate extends DataChecker {
         String sql = "SELECT " + MsgTable._ID
                 + ", " + MsgTable.BODY
                 + ", " + MsgTable.BODY_TO_SEARCH
+                + ", " + MsgTable.BODY_SIMHASH
                 + " FROM " + MsgTable.TABLE_NAME
                 ;
         long rowsCount = 0;
@@ -60,6 +68,15 @@ class SearchIndexUpdate extends DataChecker {
                             + " WHERE " + MsgTable._ID + "=" + id;
                     myContext.getDatabase().execSQL(sql);
                 }
+                long simHashExpected = SimHash.of(MyHtml.getCleanedBody(body));
+                if (simHashExpected != c.getLong(3)) {
+                    changedCount++;
+                    sql = "UPDATE " + MsgTable.TABLE_NAME
+                            + " SET "
+                            + MsgTable.BODY_SIMHASH + "=" + simHashExpected
+                            + " WHERE " + MsgTable._ID + "=" + id;
+                    myContext.getDatabase().execSQL(sql);
+                }
                 if (logger.loggedMoreSecondsAgoThan(PROGRESS_REPORT_PERIOD_SECONDS)) {
                     logger.logProgress("Updating search index"
                             + (changedCount == 0 ? ". " : ", changed " + changedCount + " of ")
@@ -76,7 +93,71 @@ class SearchIndexUpdate extends DataChecker {
         logger.logProgress(changedCount == 0
                 ? "No changes to search index were needed. " + rowsCount + " messages"
                 : "Changed search index for " + changedCount + " of " + rowsCount + " messages");
+        return changedCount + fixFullTextIndex(countOnly) + fixUserSearchIndex(countOnly);
+    }
+
+    private long fixUserSearchIndex(boolean countOnly) {
+        String sql = "SELECT " + UserTable._ID
+                + ", " + UserTable.ORIGIN_ID
+                + ", " + UserTable.USERNAME
+                + ", " + UserTable.WEBFINGER_ID
+                + ", " + UserTable.REAL_NAME
+                + " FROM " + UserTable.TABLE_NAME
+                ;
+        long rowsCount = 0;
+        long changedCount = 0;
+        SQLiteDatabase db = myContext.getDatabase();
+        try (Cursor c = db.rawQuery(sql, null)) {
+            while (c.moveToNext()) {
+                rowsCount++;
+                long id = c.getLong(0);
+                Map<String, Integer> tokens = UserSearchIndex.getTokens(c.getString(2), c.getString(3), c.getString(4));
+                if (!tokens.equals(UserSearchIndex.getStored(db, id))) {
+                    changedCount++;
+                    if (!countOnly) {
+                        UserSearchIndex.write(db, id, c.getLong(1), tokens);
+                    }
+                }
+                if (logger.loggedMoreSecondsAgoThan(PROGRESS_REPORT_PERIOD_SECONDS)) {
+                    logger.logProgress("Updating user search index"
+                            + (changedCount == 0 ? ". " : ", changed " + changedCount + " of ")
+                            + rowsCount + " users"
+                    );
+                    MyServiceManager.setServiceUnavailable();
+                }
+            }
+            if (!countOnly) {
+                changedCount += UserSearchIndex.deleteOrphans(db);
+                UserSearchIndex.onBuilt();
+            }
+        } catch (Exception e) {
+            String logMsg = "Error: " + e.getMessage() + ", SQL:" + sql;
+            logger.logProgress(logMsg);
+            MyLog.e(this, logMsg, e);
+        }
+        logger.logProgress(changedCount == 0
+                ? "No changes to user search index were needed. " + rowsCount + " users"
+                : "Changed user search index for " + changedCount + " of " + rowsCount + " users");
         return changedCount;
     }
 
+    private long fixFullTextIndex(boolean countOnly) {
+        long inconsistentCount = 0;
+        try {
+            inconsistentCount = MsgSearchIndex.countInconsistent(myContext.getDatabase());
+            if (inconsistentCount > 0 && !countOnly) {
+                MsgSearchIndex.rebuild(myContext.getDatabase());
+            }
+        } catch (Exception e) {
+            String logMsg = "Error: " + e.getMessage() + ", while fixing full text search index";
+            logger.logProgress(logMsg);
+            MyLog.e(this, logMsg, e);
+        }
+        logger.logProgress(inconsistentCount == 0
+                ? "No changes to full text search index were needed"
+                : (countOnly ? "Need to rebuild" : "Rebuilt") + " full text search index, "
+                    + inconsistentCount + " rows were inconsistent");
+        return inconsistentCount;
+    }
+
 }
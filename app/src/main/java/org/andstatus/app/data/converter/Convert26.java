@@ -17,6 +17,7 @@
 package org.andstatus.app.data.converter;
 
 import org.andstatus.app.data.DbUtils;
+import org.andstatus.app.util.MyLog;
 
 class Convert26 extends ConvertOneStep {
     Convert26() {
@@ -27,7 +28,7 @@ class Convert26 extends ConvertOneStep {
     protected void execute2() {
 
         // Table creation statements for v.27
-        sql = "CREATE TABLE msg (_id INTEGER PRIMARY KEY AUTOINCREMENT,origin_id INTEGER NOT NULL,msg_oid TEXT NOT NULL,msg_status INTEGER NOT NULL DEFAULT 0,conversation_id INTEGER NOT NULL DEFAULT 0,conversation_oid TEXT,url TEXT,body TEXT,body_to_search TEXT,via TEXT,msg_author_id INTEGER NOT NULL,in_reply_to_msg_id INTEGER,in_reply_to_user_id INTEGER,private INTEGER NOT NULL DEFAULT 0,favorited INTEGER NOT NULL DEFAULT 0,reblogged INTEGER NOT NULL DEFAULT 0,mentioned INTEGER NOT NULL DEFAULT 0,favorite_count INTEGER NOT NULL DEFAULT 0,reblog_count INTEGER NOT NULL DEFAULT 0,reply_count INTEGER NOT NULL DEFAULT 0,msg_ins_date INTEGER NOT NULL,msg_updated_date INTEGER NOT NULL DEFAULT 0)";
+        sql = "CREATE TABLE msg (_id INTEGER PRIMARY KEY AUTOINCREMENT,origin_id INTEGER NOT NULL,msg_oid TEXT NOT NULL,msg_status INTEGER NOT NULL DEFAULT 0,conversation_id INTEGER NOT NULL DEFAULT 0,conversation_oid TEXT,url TEXT,body TEXT,body_to_search TEXT,via TEXT,msg_author_id INTEGER NOT NULL,in_reply_to_msg_id INTEGER,in_reply_to_user_id INTEGER,private INTEGER NOT NULL DEFAULT 0,favorited INTEGER NOT NULL DEFAULT 0,reblogged INTEGER NOT NULL DEFAULT 0,mentioned INTEGER NOT NULL DEFAULT 0,favorite_count INTEGER NOT NULL DEFAULT 0,reblog_count INTEGER NOT NULL DEFAULT 0,reply_count INTEGER NOT NULL DEFAULT 0,msg_ins_date INTEGER NOT NULL,msg_updated_date INTEGER NOT NULL DEFAULT 0,body_simhash INTEGER NOT NULL DEFAULT 0)";
         sql = "CREATE UNIQUE INDEX idx_msg_origin ON msg (origin_id, msg_oid)";
         sql = "CREATE INDEX idx_msg_in_reply_to_msg_id ON msg (in_reply_to_msg_id)";
         sql = "CREATE INDEX idx_msg_conversation_id ON msg (conversation_id)";
@@ -78,7 +79,7 @@ class Convert26 extends ConvertOneStep {
         sql = "ALTER TABLE msg RENAME TO oldmsg";
         DbUtils.execSQL(db, sql);
 
-        sql = "CREATE TABLE msg (_id INTEGER PRIMARY KEY AUTOINCREMENT,origin_id INTEGER NOT NULL,msg_oid TEXT NOT NULL,msg_status INTEGER NOT NULL DEFAULT 0,conversation_id INTEGER NOT NULL DEFAULT 0,conversation_oid TEXT,url TEXT,body TEXT,body_to_search TEXT,via TEXT,msg_author_id INTEGER NOT NULL,in_reply_to_msg_id INTEGER,in_reply_to_user_id INTEGER,private INTEGER NOT NULL DEFAULT 0,favorited INTEGER NOT NULL DEFAULT 0,reblogged INTEGER NOT NULL DEFAULT 0,mentioned INTEGER NOT NULL DEFAULT 0,favorite_count INTEGER NOT NULL DEFAULT 0,reblog_count INTEGER NOT NULL DEFAULT 0,reply_count INTEGER NOT NULL DEFAULT 0,msg_ins_date INTEGER NOT NULL,msg_updated_date INTEGER NOT NULL DEFAULT 0)";
+        sql = "CREATE TABLE msg (_id INTEGER PRIMARY KEY AUTOINCREMENT,origin_id INTEGER NOT NULL,msg_oid TEXT NOT NULL,msg_status INTEGER NOT NULL DEFAULT 0,conversation_id INTEGER NOT NULL DEFAULT 0,conversation_oid TEXT,url TEXT,body TEXT,body_to_search TEXT,via TEXT,msg_author_id INTEGER NOT NULL,in_reply_to_msg_id INTEGER,in_reply_to_user_id INTEGER,private INTEGER NOT NULL DEFAULT 0,favorited INTEGER NOT NULL DEFAULT 0,reblogged INTEGER NOT NULL DEFAULT 0,mentioned INTEGER NOT NULL DEFAULT 0,favorite_count INTEGER NOT NULL DEFAULT 0,reblog_count INTEGER NOT NULL DEFAULT 0,reply_count INTEGER NOT NULL DEFAULT 0,msg_ins_date INTEGER NOT NULL,msg_updated_date INTEGER NOT NULL DEFAULT 0,body_simhash INTEGER NOT NULL DEFAULT 0)";
         DbUtils.execSQL(db, sql);
         sql = "CREATE UNIQUE INDEX idx_msg_origin ON msg (origin_id, msg_oid)";
         DbUtils.execSQL(db, sql);
@@ -389,5 +390,39 @@ class Convert26 extends ConvertOneStep {
         DbUtils.execSQL(db, sql);
         sql = "DROP TABLE IF EXISTS msgofuser";
         DbUtils.execSQL(db, sql);
+
+        progressLogger.logProgress(stepTitle + ": Creating timeline items table. It will be filled by a data checker");
+        sql = "CREATE TABLE timeline_item (_id INTEGER PRIMARY KEY,activity_origin_id INTEGER NOT NULL,account_id INTEGER NOT NULL,activity_type INTEGER NOT NULL,actor_id INTEGER NOT NULL,activity_msg_id INTEGER NOT NULL,activity_user_id INTEGER NOT NULL,obj_activity_id INTEGER NOT NULL,subscribed INTEGER NOT NULL DEFAULT 0,notified INTEGER NOT NULL DEFAULT 0,activity_ins_date INTEGER NOT NULL,activity_updated_date INTEGER NOT NULL DEFAULT 0,linked_user_id INTEGER NOT NULL,item_author_id INTEGER NOT NULL DEFAULT 0,item_in_reply_to_user_id INTEGER NOT NULL DEFAULT 0,author_name TEXT,actor_name TEXT,in_reply_to_name TEXT,avatar_file_name TEXT,actor_avatar_file_name TEXT,image_id INTEGER,image_file_name TEXT,image_url TEXT,author_followed INTEGER,actor_followed INTEGER)";
+        DbUtils.execSQL(db, sql);
+        sql = "CREATE INDEX idx_timeline_item_timeline ON timeline_item (activity_updated_date)";
+        DbUtils.execSQL(db, sql);
+        sql = "CREATE INDEX idx_timeline_item_actor_timeline ON timeline_item (actor_id, activity_updated_date)";
+        DbUtils.execSQL(db, sql);
+        sql = "CREATE INDEX idx_timeline_item_subscribed_timeline ON timeline_item (subscribed, activity_updated_date)";
+        DbUtils.execSQL(db, sql);
+        sql = "CREATE INDEX idx_timeline_item_notified_timeline ON timeline_item (notified, activity_updated_date)";
+        DbUtils.execSQL(db, sql);
+        sql = "CREATE INDEX idx_timeline_item_message ON timeline_item (activity_msg_id)";
+        DbUtils.execSQL(db, sql);
+        sql = "CREATE INDEX idx_timeline_item_author ON timeline_item (item_author_id)";
+        DbUtils.execSQL(db, sql);
+        sql = "CREATE INDEX idx_timeline_item_in_reply_to_user ON timeline_item (item_in_reply_to_user_id)";
+        DbUtils.execSQL(db, sql);
+
+        progressLogger.logProgress(stepTitle + ": Creating user search table. It will be filled by a data checker");
+        sql = "CREATE TABLE user_search (origin_id INTEGER NOT NULL,token TEXT NOT NULL,user_id INTEGER NOT NULL,token_rank INTEGER NOT NULL DEFAULT 0, CONSTRAINT pk_user_search PRIMARY KEY (origin_id, token, user_id))";
+        DbUtils.execSQL(db, sql);
+        sql = "CREATE INDEX idx_user_search_user ON user_search (user_id)";
+        DbUtils.execSQL(db, sql);
+
+        progressLogger.logProgress(stepTitle + ": Creating full text search index of messages");
+        try {
+            sql = "CREATE VIRTUAL TABLE msg_search USING fts4(body_to_search, tokenize=simple)";
+            DbUtils.execSQL(db, sql);
+            sql = "INSERT INTO msg_search (docid, body_to_search) SELECT _id, body_to_search FROM msg";
+            DbUtils.execSQL(db, sql);
+        } catch (Exception e) {
+            MyLog.i(this, "Full text search is unavailable, SQL: " + sql, e);
+        }
     }
 }
@@ -20,14 +20,19 @@ import android.database.sqlite.SQLiteDatabase;
 import android.provider.BaseColumns;
 
 import org.andstatus.app.data.DbUtils;
+import org.andstatus.app.data.TimelineItems;
+import org.andstatus.app.data.UserSearchIndex;
 import org.andstatus.app.database.table.ActivityTable;
 import org.andstatus.app.database.table.AudienceTable;
 import org.andstatus.app.database.table.CommandTable;
 import org.andstatus.app.database.table.DownloadTable;
 import org.andstatus.app.database.table.FriendshipTable;
+import org.andstatus.app.database.table.MsgSearchTable;
 import org.andstatus.app.database.table.MsgTable;
 import org.andstatus.app.database.table.OriginTable;
+import org.andstatus.app.database.table.TimelineItemTable;
 import org.andstatus.app.database.table.TimelineTable;
+import org.andstatus.app.database.table.UserSearchTable;
 import org.andstatus.app.database.table.UserTable;
 import org.andstatus.app.util.MyLog;
 
@@ -41,6 +46,8 @@ public class DatabaseCreator {
      *
      * v.27 2017-11-04 app.v.36 Moving to ActivityStreams data model.
      *                 ActivityTable and AudienceTable added, MsOfUserTable dropped. Others refactored.
+     *                 TimelineItemTable, MsgSearchTable (full text search) and UserSearchTable added.
+     *                 MsgTable.BODY_SIMHASH added.
      * v.26 2016-11-27 app.v.31 Conversation ID added to MsgTable, see https://github.com/andstatus/andstatus/issues/361
      * v.25 2016-06-07 app.v.27 TimelineTable and CommandTable added
      * v.24 2016-02-27 app.v.23 several attributes added to User, https://github.com/andstatus/andstatus/issues/320
@@ -88,6 +95,11 @@ public class DatabaseCreator {
         TimelineTable.create(db);
         CommandTable.create(db);
         ActivityTable.create(db);
+        TimelineItemTable.create(db);
+        TimelineItems.onBuilt();
+        MsgSearchTable.create(db);
+        UserSearchTable.create(db);
+        UserSearchIndex.onBuilt();
         return this;
     }
 
@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2017 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.database.table;
+
+import android.database.sqlite.SQLiteDatabase;
+
+import org.andstatus.app.data.DbUtils;
+import org.andstatus.app.util.MyLog;
+
+/**
+ * Full text search index of {@link MsgTable#BODY_TO_SEARCH},
+ * see <a href="https://www.sqlite.org/fts3.html">SQLite FTS3 and FTS4 Extensions</a>.
+ * {@link #DOC_ID} is {@link MsgTable#_ID}
+ */
+public final class MsgSearchTable {
+    public static final String TABLE_NAME = "msg_search";
+    /** Implicit rowid of a full text search table */
+    public static final String DOC_ID = "docid";
+    public static final String BODY_TO_SEARCH = MsgTable.BODY_TO_SEARCH;
+
+    private MsgSearchTable() {
+        // Empty
+    }
+
+    /** The table is optional: message search falls back to "LIKE", if the FTS module is unavailable */
+    public static void create(SQLiteDatabase db) {
+        try {
+            DbUtils.execSQL(db, "CREATE VIRTUAL TABLE " + TABLE_NAME + " USING fts4("
+                    + BODY_TO_SEARCH + ", tokenize=simple)");
+        } catch (Exception e) {
+            MyLog.w(TABLE_NAME, "Full text search is unavailable", e);
+        }
+    }
+}
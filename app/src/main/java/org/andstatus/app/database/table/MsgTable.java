@@ -71,6 +71,11 @@ public final class MsgTable implements BaseColumns {
      * Body text, prepared for easy searching in a database
      */
     public static final String BODY_TO_SEARCH = "body_to_search";
+    /**
+     * Locality sensitive fingerprint of the body, used to find similar messages,
+     * see {@link org.andstatus.app.util.SimHash}
+     */
+    public static final String BODY_SIMHASH = "body_simhash";
     /**
      * String generally describing Client's software used to post this message
      * It's like "User Agent" string in the browsers?!: "via ..."
@@ -142,7 +147,8 @@ public final class MsgTable implements BaseColumns {
                 + REBLOG_COUNT + " INTEGER NOT NULL DEFAULT 0,"
                 + REPLY_COUNT + " INTEGER NOT NULL DEFAULT 0,"
                 + INS_DATE + " INTEGER NOT NULL,"
-                + UPDATED_DATE + " INTEGER NOT NULL DEFAULT 0"
+                + UPDATED_DATE + " INTEGER NOT NULL DEFAULT 0,"
+                + BODY_SIMHASH + " INTEGER NOT NULL DEFAULT 0"
                 + ")");
 
         DbUtils.execSQL(db, "CREATE UNIQUE INDEX idx_msg_origin ON " + TABLE_NAME + " ("
@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2017 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.database.table;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.provider.BaseColumns;
+
+import org.andstatus.app.data.DbUtils;
+
+/**
+ * Denormalized copy of the {@link ActivityTable} rows with names of users, avatar and attachment file names
+ * and "followed" flags already resolved, so a timeline is selected from this table joined with {@link MsgTable} only.
+ * {@link BaseColumns#_ID} is the same as in the {@link ActivityTable}.
+ * Rows are maintained by {@link org.andstatus.app.data.TimelineItems}
+ */
+public final class TimelineItemTable implements BaseColumns {
+    public static final String TABLE_NAME = "timeline_item";
+
+    /** {@link MsgTable#AUTHOR_ID} of the message of this activity. Used to find rows to refresh */
+    public static final String AUTHOR_ID = "item_author_id";
+    /** {@link MsgTable#IN_REPLY_TO_USER_ID} of the message of this activity. Used to find rows to refresh */
+    public static final String IN_REPLY_TO_USER_ID = "item_in_reply_to_user_id";
+
+    private TimelineItemTable() {
+        // Empty
+    }
+
+    public static void create(SQLiteDatabase db) {
+        DbUtils.execSQL(db, "CREATE TABLE " + TABLE_NAME + " ("
+                + BaseColumns._ID + " INTEGER PRIMARY KEY,"
+                + ActivityTable.ORIGIN_ID + " INTEGER NOT NULL,"
+                + ActivityTable.ACCOUNT_ID + " INTEGER NOT NULL,"
+                + ActivityTable.ACTIVITY_TYPE + " INTEGER NOT NULL,"
+                + ActivityTable.ACTOR_ID + " INTEGER NOT NULL,"
+                + ActivityTable.MSG_ID + " INTEGER NOT NULL,"
+                + ActivityTable.USER_ID + " INTEGER NOT NULL,"
+                + ActivityTable.OBJ_ACTIVITY_ID + " INTEGER NOT NULL,"
+                + ActivityTable.SUBSCRIBED + " INTEGER NOT NULL DEFAULT 0,"
+                + ActivityTable.NOTIFIED + " INTEGER NOT NULL DEFAULT 0,"
+                + ActivityTable.INS_DATE + " INTEGER NOT NULL,"
+                + ActivityTable.UPDATED_DATE + " INTEGER NOT NULL DEFAULT 0,"
+                + UserTable.LINKED_USER_ID + " INTEGER NOT NULL,"
+                + AUTHOR_ID + " INTEGER NOT NULL DEFAULT 0,"
+                + IN_REPLY_TO_USER_ID + " INTEGER NOT NULL DEFAULT 0,"
+                + UserTable.AUTHOR_NAME + " TEXT,"
+                + UserTable.ACTOR_NAME + " TEXT,"
+                + UserTable.IN_REPLY_TO_NAME + " TEXT,"
+                + DownloadTable.AVATAR_FILE_NAME + " TEXT,"
+                + DownloadTable.ACTOR_AVATAR_FILE_NAME + " TEXT,"
+                + DownloadTable.IMAGE_ID + " INTEGER,"
+                + DownloadTable.IMAGE_FILE_NAME + " TEXT,"
+                + DownloadTable.IMAGE_URL + " TEXT,"
+                + FriendshipTable.AUTHOR_FOLLOWED + " INTEGER,"
+                + FriendshipTable.ACTOR_FOLLOWED + " INTEGER"
+                + ")");
+
+        DbUtils.execSQL(db, "CREATE INDEX idx_timeline_item_timeline ON " + TABLE_NAME + " ("
+                + ActivityTable.UPDATED_DATE
+                + ")"
+        );
+
+        DbUtils.execSQL(db, "CREATE INDEX idx_timeline_item_actor_timeline ON " + TABLE_NAME + " ("
+                + ActivityTable.ACTOR_ID + ", "
+                + ActivityTable.UPDATED_DATE
+                + ")"
+        );
+
+        DbUtils.execSQL(db, "CREATE INDEX idx_timeline_item_subscribed_timeline ON " + TABLE_NAME + " ("
+                + ActivityTable.SUBSCRIBED + ", "
+                + ActivityTable.UPDATED_DATE
+                + ")"
+        );
+
+        DbUtils.execSQL(db, "CREATE INDEX idx_timeline_item_notified_timeline ON " + TABLE_NAME + " ("
+                + ActivityTable.NOTIFIED + ", "
+                + ActivityTable.UPDATED_DATE
+                + ")"
+        );
+
+        DbUtils.execSQL(db, "CREATE INDEX idx_timeline_item_message ON " + TABLE_NAME + " ("
+                + ActivityTable.MSG_ID
+                + ")"
+        );
+
+        DbUtils.execSQL(db, "CREATE INDEX idx_timeline_item_author ON " + TABLE_NAME + " ("
+                + AUTHOR_ID
+                + ")"
+        );
+
+        DbUtils.execSQL(db, "CREATE INDEX idx_timeline_item_in_reply_to_user ON " + TABLE_NAME + " ("
+                + IN_REPLY_TO_USER_ID
+                + ")"
+        );
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2017 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.database.table;
+
+import android.database.sqlite.SQLiteDatabase;
+
+import org.andstatus.app.data.DbUtils;
+
+/**
+ * Lowercase tokens of user names and WebFinger IDs. A prefix of a token is found by a range scan
+ * of the primary key. Rows are maintained by {@link org.andstatus.app.data.UserSearchIndex}
+ */
+public final class UserSearchTable {
+    public static final String TABLE_NAME = "user_search";
+
+    public static final String USER_ID = UserTable.USER_ID;
+    public static final String ORIGIN_ID = UserTable.ORIGIN_ID;
+    public static final String TOKEN = "token";
+    /** How good is the match: the lower, the better, see {@link org.andstatus.app.data.UserSearchIndex} */
+    public static final String TOKEN_RANK = "token_rank";
+
+    private UserSearchTable() {
+        // Empty
+    }
+
+    public static void create(SQLiteDatabase db) {
+        DbUtils.execSQL(db, "CREATE TABLE " + TABLE_NAME + " ("
+                + ORIGIN_ID + " INTEGER NOT NULL,"
+                + TOKEN + " TEXT NOT NULL,"
+                + USER_ID + " INTEGER NOT NULL,"
+                + TOKEN_RANK + " INTEGER NOT NULL DEFAULT 0,"
+                + " CONSTRAINT pk_user_search PRIMARY KEY (" + ORIGIN_ID + ", " + TOKEN + ", " + USER_ID + ")"
+                + ")");
+
+        DbUtils.execSQL(db, "CREATE INDEX idx_user_search_user ON " + TABLE_NAME + " ("
+                + USER_ID
+                + ")"
+        );
+    }
+}
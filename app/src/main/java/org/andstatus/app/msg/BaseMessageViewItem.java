@@ -28,16 +28,24 @@ import org.andstatus.app.context.MyPreferences;
 import org.andstatus.app.data.AttachedImageFile;
 import org.andstatus.app.data.AvatarFile;
 import org.andstatus.app.data.DownloadStatus;
+import org.andstatus.app.data.MyQuery;
+import org.andstatus.app.database.table.MsgTable;
+import org.andstatus.app.net.social.MbUser;
 import org.andstatus.app.timeline.DuplicationLink;
 import org.andstatus.app.timeline.TimelineFilter;
 import org.andstatus.app.timeline.ViewItem;
 import org.andstatus.app.util.I18n;
 import org.andstatus.app.util.MyHtml;
+import org.andstatus.app.util.MyLog;
 import org.andstatus.app.util.RelativeTime;
 import org.andstatus.app.util.SharedPreferencesUtil;
+import org.andstatus.app.util.SimHash;
 
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
 public class BaseMessageViewItem<T extends BaseMessageViewItem<T>> extends ViewItem<T> {
@@ -65,6 +73,7 @@ public class BaseMessageViewItem<T extends BaseMessageViewItem<T>> extends ViewI
 
     private String body = "";
     private String cleanedBody = "";
+    private BodyFingerprint bodyFingerprint = BodyFingerprint.EMPTY;
 
     boolean favorited = false;
     boolean isFavoritingAction = false;
@@ -136,10 +145,11 @@ public class BaseMessageViewItem<T extends BaseMessageViewItem<T>> extends ViewI
         }
         if (link == DuplicationLink.NONE) {
             if (Math.abs(updatedDate - other.updatedDate) < TimeUnit.HOURS.toMillis(24)) {
-                if (cleanedBody.length() < MIN_LENGTH_TO_COMPARE ||
-                        other.cleanedBody.length() < MIN_LENGTH_TO_COMPARE) {
+                if (bodyFingerprint.length < MIN_LENGTH_TO_COMPARE ||
+                        other.bodyFingerprint.length < MIN_LENGTH_TO_COMPARE) {
                     // Too short to compare
-                } else if (cleanedBody.equals(other.cleanedBody)) {
+                } else if (bodyFingerprint.mayBeEqual(other.bodyFingerprint)
+                        && cleanedBody.equals(other.cleanedBody)) {
                     if (updatedDate == other.updatedDate) {
                         link = duplicatesByFavoritedAndReblogged(other);
                     } else if (updatedDate < other.updatedDate) {
@@ -147,10 +157,14 @@ public class BaseMessageViewItem<T extends BaseMessageViewItem<T>> extends ViewI
                     } else {
                         link = DuplicationLink.DUPLICATES;
                     }
-                } else if (cleanedBody.contains(other.cleanedBody)) {
+                } else if (bodyFingerprint.mayContain(other.bodyFingerprint)
+                        && cleanedBody.contains(other.cleanedBody)) {
                     link = DuplicationLink.DUPLICATES;
-                } else if (other.cleanedBody.contains(cleanedBody)) {
+                } else if (other.bodyFingerprint.mayContain(bodyFingerprint)
+                        && other.cleanedBody.contains(cleanedBody)) {
                     link = DuplicationLink.IS_DUPLICATED;
+                } else if (bodyFingerprint.isSimilarTo(other.bodyFingerprint)) {
+                    link = updatedDate <= other.updatedDate ? DuplicationLink.IS_DUPLICATED : DuplicationLink.DUPLICATES;
                 }
             }
         }
@@ -229,9 +243,15 @@ public class BaseMessageViewItem<T extends BaseMessageViewItem<T>> extends ViewI
     }
 
     public BaseMessageViewItem setBody(String body) {
+        return setBody(body, SimHash.EMPTY);
+    }
+
+    /** @param bodySimHash {@link MsgTable#BODY_SIMHASH} of the stored message */
+    BaseMessageViewItem setBody(String body, long bodySimHash) {
         this.body = body;
         this.isFavoritingAction = MyHtml.isFavoritingAction(body);
         cleanedBody = MyHtml.getCleanedBody(body);
+        bodyFingerprint = BodyFingerprint.of(cleanedBody, bodySimHash);
         return this;
     }
 
@@ -249,6 +269,16 @@ public class BaseMessageViewItem<T extends BaseMessageViewItem<T>> extends ViewI
         return updatedDate;
     }
 
+    @Override
+    public long getEstimatedMemoryBytes() {
+        return 2 * super.getEstimatedMemoryBytes() + 2L * (lengthOf(body) + lengthOf(cleanedBody)
+                + lengthOf(authorName) + lengthOf(recipientName) + lengthOf(inReplyToName) + lengthOf(messageSource));
+    }
+
+    private static int lengthOf(String text) {
+        return text == null ? 0 : text.length();
+    }
+
     @Override
     public boolean matches(TimelineFilter filter) {
         if (!filter.keywordsFilter.isEmpty() || !filter.searchQuery.isEmpty()) {
@@ -269,4 +299,30 @@ public class BaseMessageViewItem<T extends BaseMessageViewItem<T>> extends ViewI
     public void hideActor(long userId) {
         rebloggers.remove(userId);
     }
+
+    /** Loads rebloggers of all the messages at once */
+    static void loadRebloggers(@NonNull List<? extends BaseMessageViewItem> items) {
+        if (items.isEmpty()) {
+            return;
+        }
+        long startTime = System.currentTimeMillis();
+        Set<Long> msgIds = new HashSet<>();
+        for (BaseMessageViewItem item : items) {
+            msgIds.add(item.getMsgId());
+        }
+        Map<Long, List<MbUser>> rebloggers = MyQuery.getRebloggers(
+                items.get(0).getMyContext().getDatabase(), msgIds);
+        for (BaseMessageViewItem item : items) {
+            List<MbUser> users = rebloggers.get(item.getMsgId());
+            if (users != null) {
+                for (MbUser user : users) {
+                    item.rebloggers.put(user.userId, user.getWebFingerId());
+                }
+            }
+        }
+        if (MyLog.isVerboseEnabled()) {
+            MyLog.v(BaseMessageViewItem.class, "Rebloggers of " + msgIds.size() + " messages: "
+                    + (System.currentTimeMillis() - startTime) + "ms");
+        }
+    }
 }
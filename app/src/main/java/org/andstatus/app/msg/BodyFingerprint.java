@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2017 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.msg;
+
+import android.support.annotation.NonNull;
+
+import org.andstatus.app.util.SimHash;
+
+/**
+ * Precomputed summary of a cleaned message body (see {@link org.andstatus.app.util.MyHtml#getCleanedBody(String)}),
+ * which allows to compare bodies of timeline items without comparing their texts in most cases.
+ * Words are separated by single spaces in a cleaned body.
+ * @author yvolk@yurivolkov.com
+ */
+final class BodyFingerprint {
+    static final BodyFingerprint EMPTY = of("");
+
+    final int length;
+    private final int hash;
+    /** One bit per each word of the body */
+    private final long wordsSignature;
+    /** The same for words, which are not at the start or at the end of the body.
+     * If a body contains other body, these words of the other body are whole words of the body also */
+    private final long innerWordsSignature;
+    private final long simHash;
+
+    private BodyFingerprint(int length, int hash, long wordsSignature, long innerWordsSignature, long simHash) {
+        this.length = length;
+        this.hash = hash;
+        this.wordsSignature = wordsSignature;
+        this.innerWordsSignature = innerWordsSignature;
+        this.simHash = simHash;
+    }
+
+    @NonNull
+    static BodyFingerprint of(String cleanedBody) {
+        return of(cleanedBody, SimHash.EMPTY);
+    }
+
+    /**
+     * @param storedSimHash {@link org.andstatus.app.database.table.MsgTable#BODY_SIMHASH} of the body,
+     *                      it is computed only if not stored yet (e.g. for rows, stored by older versions)
+     */
+    @NonNull
+    static BodyFingerprint of(String cleanedBody, long storedSimHash) {
+        if (cleanedBody == null) {
+            return of("", storedSimHash);
+        }
+        long wordsSignature = 0;
+        long innerWordsSignature = 0;
+        int wordHash = 0;
+        int wordStart = 0;
+        final int length = cleanedBody.length();
+        for (int ind = 0; ind <= length; ind++) {
+            char c = ind < length ? cleanedBody.charAt(ind) : ' ';
+            if (c == ' ') {
+                if (ind > wordStart) {
+                    long bit = 1L << ((wordHash ^ (wordHash >>> 16)) & 63);
+                    wordsSignature |= bit;
+                    if (wordStart > 0 && ind < length) {
+                        innerWordsSignature |= bit;
+                    }
+                }
+                wordHash = 0;
+                wordStart = ind + 1;
+            } else {
+                wordHash = 31 * wordHash + c;
+            }
+        }
+        return new BodyFingerprint(length, cleanedBody.hashCode(), wordsSignature, innerWordsSignature,
+                storedSimHash == SimHash.EMPTY ? SimHash.of(cleanedBody) : storedSimHash);
+    }
+
+    /** @return false if the bodies are definitely different */
+    boolean mayBeEqual(@NonNull BodyFingerprint other) {
+        return length == other.length && hash == other.hash;
+    }
+
+    /** @return false if this body definitely doesn't contain the other body */
+    boolean mayContain(@NonNull BodyFingerprint other) {
+        return length > other.length && (other.innerWordsSignature & ~wordsSignature) == 0;
+    }
+
+    /** @return true if the bodies are near duplicates, see {@link SimHash} */
+    boolean isSimilarTo(@NonNull BodyFingerprint other) {
+        return SimHash.areSimilar(simHash, other.simHash);
+    }
+}
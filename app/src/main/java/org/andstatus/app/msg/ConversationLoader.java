@@ -87,6 +87,7 @@ public abstract class ConversationLoader<T extends ConversationItem> extends Syn
         }
         load2(newOMsg(selectedMessageId));
         addMissedFromCache();
+        newOMsg(0).enrichPage(msgList);
         Collections.sort(msgList, replyLevelComparator);
         enumerateMessages();
     }
@@ -18,26 +18,26 @@ package org.andstatus.app.msg;
 
 import android.content.Context;
 import android.database.Cursor;
+import android.support.annotation.NonNull;
 import android.text.Html;
 import android.text.TextUtils;
 
-import org.andstatus.app.context.MyContextHolder;
 import org.andstatus.app.context.MyPreferences;
 import org.andstatus.app.data.AttachedImageFile;
 import org.andstatus.app.data.AvatarFile;
-import org.andstatus.app.data.DbUtils;
+import org.andstatus.app.data.CursorColumns;
 import org.andstatus.app.data.DownloadStatus;
-import org.andstatus.app.data.MyQuery;
 import org.andstatus.app.data.TimelineSql;
 import org.andstatus.app.database.table.ActivityTable;
 import org.andstatus.app.database.table.DownloadTable;
 import org.andstatus.app.database.table.MsgTable;
 import org.andstatus.app.database.table.UserTable;
-import org.andstatus.app.net.social.MbUser;
 import org.andstatus.app.util.I18n;
 import org.andstatus.app.util.MyHtml;
 import org.andstatus.app.util.TriState;
 
+import java.util.List;
+
 public class ConversationViewItem extends ConversationItem<ConversationViewItem> {
     public static final ConversationViewItem EMPTY = new ConversationViewItem();
 
@@ -60,9 +60,10 @@ public class ConversationViewItem extends ConversationItem<ConversationViewItem>
         /* IDs of all known senders of this message except for the Author
          * These "senders" reblogged the message
          */
+        CursorColumns columns = new CursorColumns(cursor);
         int ind=0;
         do {
-            long msgId = DbUtils.getLong(cursor, ActivityTable.MSG_ID);
+            long msgId = columns.getLong(ActivityTable.MSG_ID);
             if (msgId != getMsgId()) {
                 if (ind > 0) {
                     cursor.moveToPrevious();
@@ -70,36 +71,38 @@ public class ConversationViewItem extends ConversationItem<ConversationViewItem>
                 break;
             }
 
-            authorId = DbUtils.getLong(cursor, MsgTable.AUTHOR_ID);
+            authorId = columns.getLong(MsgTable.AUTHOR_ID);
             super.load(cursor);
-            msgStatus = DownloadStatus.load(DbUtils.getLong(cursor, MsgTable.MSG_STATUS));
-            authorName = TimelineSql.userColumnNameToNameAtTimeline(cursor, UserTable.AUTHOR_NAME, false);
-            setBody(MyHtml.prepareForView(DbUtils.getString(cursor, MsgTable.BODY)));
-            String via = DbUtils.getString(cursor, MsgTable.VIA);
+            msgStatus = DownloadStatus.load(columns.getLong(MsgTable.MSG_STATUS));
+            authorName = TimelineSql.userColumnNameToNameAtTimeline(columns, UserTable.AUTHOR_NAME, false);
+            setBody(MyHtml.prepareForView(columns.getString(MsgTable.BODY)),
+                    columns.getLong(MsgTable.BODY_SIMHASH));
+            String via = columns.getString(MsgTable.VIA);
             if (!TextUtils.isEmpty(via)) {
                 messageSource = Html.fromHtml(via).toString().trim();
             }
-            avatarFile = AvatarFile.fromCursor(authorId, cursor, DownloadTable.AVATAR_FILE_NAME);
-            if (MyPreferences.getDownloadAndDisplayAttachedImages()) {
-                attachedImageFile = AttachedImageFile.fromCursor(cursor);
+            avatarFile = AvatarFile.fromCursor(authorId, columns, DownloadTable.AVATAR_FILE_NAME);
+            if (columns.showAttachedImages) {
+                attachedImageFile = AttachedImageFile.fromCursor(columns);
             }
-            inReplyToMsgId = DbUtils.getLong(cursor, MsgTable.IN_REPLY_TO_MSG_ID);
-            inReplyToUserId = DbUtils.getLong(cursor, MsgTable.IN_REPLY_TO_USER_ID);
-            inReplyToName = TimelineSql.userColumnNameToNameAtTimeline(cursor, UserTable.IN_REPLY_TO_NAME, false);
+            inReplyToMsgId = columns.getLong(MsgTable.IN_REPLY_TO_MSG_ID);
+            inReplyToUserId = columns.getLong(MsgTable.IN_REPLY_TO_USER_ID);
+            inReplyToName = TimelineSql.userColumnNameToNameAtTimeline(columns, UserTable.IN_REPLY_TO_NAME, false);
             //TODO:  recipientName = TimelineSql.userColumnNameToNameAtTimeline(cursor, UserTable.RECIPIENT_NAME, false);
 
-            if (DbUtils.getTriState(cursor, MsgTable.REBLOGGED) == TriState.TRUE) {
+            if (columns.getTriState(MsgTable.REBLOGGED) == TriState.TRUE) {
                 reblogged = true;
             }
-            if (DbUtils.getTriState(cursor, MsgTable.FAVORITED) == TriState.TRUE) {
+            if (columns.getTriState(MsgTable.FAVORITED) == TriState.TRUE) {
                 favorited = true;
             }
 
             ind++;
         } while (cursor.moveToNext());
+    }
 
-        for (MbUser user : MyQuery.getRebloggers(MyContextHolder.get().getDatabase(), getOriginId(), getMsgId())) {
-            rebloggers.put(user.userId, user.getWebFingerId());
-        }
+    @Override
+    public void enrichPage(@NonNull List<ConversationViewItem> items) {
+        loadRebloggers(items);
     }
 }
@@ -19,6 +19,7 @@ package org.andstatus.app.msg;
 import android.support.annotation.NonNull;
 import android.text.TextUtils;
 
+import org.andstatus.app.database.table.MsgSearchTable;
 import org.andstatus.app.util.MyHtml;
 import org.andstatus.app.util.StringUtils;
 
@@ -28,7 +29,12 @@ import java.util.List;
 public class KeywordsFilter {
     final List<String> keywordsToFilter;
     private final List<String> keywordsRaw;
+    private volatile KeywordsMatcher matcher = null;
     private static final char DOUBLE_QUOTE = '"';
+    /** Each keyword is a "LIKE ?" of the SQL selection without the full text search index.
+     * SQLite allows up to 999 parameters in a statement, the rest are left for other parts of the selection.
+     * More keywords are checked by {@link #matchedAny(String)} only */
+    static final int MAX_KEYWORDS_IN_SQL = 900;
 
     public KeywordsFilter(String keywordsIn) {
         keywordsRaw = parseFilterString(keywordsIn);
@@ -94,24 +100,25 @@ public class KeywordsFilter {
         if (keywordsToFilter.isEmpty() || TextUtils.isEmpty(s)) {
             return false;
         }
-        for (String keyword : keywordsToFilter) {
-            if (s.contains(keyword)) {
-                return true;
-            }
-        }
-        return false;
+        return getMatcher().matchedAny(s);
     }
 
     public boolean matchedAll(String s) {
         if (keywordsToFilter.isEmpty() || TextUtils.isEmpty(s)) {
             return false;
         }
-        for (String keyword : keywordsToFilter) {
-            if (!s.contains(keyword)) {
-                return false;
-            }
+        return getMatcher().matchedAll(s);
+    }
+
+    /** The matcher is built on the first use only, as many filters are used for SQL selections only */
+    @NonNull
+    private KeywordsMatcher getMatcher() {
+        KeywordsMatcher matcherLocal = matcher;
+        if (matcherLocal == null) {
+            matcherLocal = KeywordsMatcher.of(keywordsToFilter);
+            matcher = matcherLocal;
         }
-        return true;
+        return matcherLocal;
     }
 
     @NonNull
@@ -129,6 +136,75 @@ public class KeywordsFilter {
         return selection.length() == 0 ? "" : "(" + selection.toString() + ")";
     }
 
+    /**
+     * Narrows the "LIKE" selection down to messages found in the full text search index,
+     * so the "LIKE" is checked only for these few rows and the search results are the same
+     * @param msgIdField {@link MsgSearchTable#DOC_ID} of the index is compared with this field
+     * @param useSearchIndex false if the index is unavailable
+     */
+    @NonNull
+    public String getSqlSelection(String fieldName, String msgIdField, boolean useSearchIndex) {
+        String selection = getSqlSelection(fieldName);
+        if (!useSearchIndex || TextUtils.isEmpty(getMatchQuery())) {
+            return selection;
+        }
+        return "(" + msgIdField + " IN (SELECT " + MsgSearchTable.DOC_ID + " FROM " + MsgSearchTable.TABLE_NAME
+                + " WHERE " + MsgSearchTable.TABLE_NAME + " MATCH ?) AND " + selection + ")";
+    }
+
+    /**
+     * @return false if there are too many keywords for the "LIKE" form of {@link #getSqlSelectionNoneMatched}
+     * and the full text search index cannot be used instead
+     */
+    public boolean isSqlSelectionNoneMatchedUsable(boolean useSearchIndex) {
+        return isSearchIndexUsableForNoneMatched(useSearchIndex) || keywordsToFilter.size() <= MAX_KEYWORDS_IN_SQL;
+    }
+
+    private boolean isSearchIndexUsableForNoneMatched(boolean useSearchIndex) {
+        return useSearchIndex && !TextUtils.isEmpty(getMatchQuery(true));
+    }
+
+    /**
+     * Selection of rows, which don't contain any of the keywords. Rows without the field
+     * (e.g. activities without a message) are selected also.
+     * If the full text search index is used, messages are excluded by the index only, using one argument
+     * for any number of keywords: a phrase of the index matches the same words, as the "LIKE"
+     * of the comma separated body to search does
+     * @param msgIdField {@link MsgSearchTable#DOC_ID} of the index is compared with this field
+     * @return empty selection if there are too many keywords,
+     * see {@link #isSqlSelectionNoneMatchedUsable(boolean)}
+     */
+    @NonNull
+    public String getSqlSelectionNoneMatched(String fieldName, String msgIdField, boolean useSearchIndex) {
+        if (isEmpty() || !isSqlSelectionNoneMatchedUsable(useSearchIndex)) {
+            return "";
+        }
+        if (isSearchIndexUsableForNoneMatched(useSearchIndex)) {
+            return "(" + fieldName + " IS NULL OR " + msgIdField + " NOT IN (SELECT " + MsgSearchTable.DOC_ID
+                    + " FROM " + MsgSearchTable.TABLE_NAME + " WHERE " + MsgSearchTable.TABLE_NAME + " MATCH ?))";
+        }
+        StringBuilder selection = new StringBuilder();
+        for (int ind = 0; ind < keywordsToFilter.size(); ind++) {
+            if (ind > 0) {
+                selection.append(" OR ");
+            }
+            selection.append(fieldName + " LIKE ?");
+        }
+        return "(" + fieldName + " IS NULL OR NOT (" + selection.toString() + "))";
+    }
+
+    /** Arguments for the {@link #getSqlSelectionNoneMatched(String, String, boolean)} */
+    @NonNull
+    public String[] getSqlSelectionArgsNoneMatched(boolean useSearchIndex) {
+        if (isEmpty() || !isSqlSelectionNoneMatchedUsable(useSearchIndex)) {
+            return new String[]{};
+        }
+        if (isSearchIndexUsableForNoneMatched(useSearchIndex)) {
+            return new String[]{getMatchQuery(true)};
+        }
+        return prependSqlSelectionArgs(new String[]{});
+    }
+
     @NonNull
     public String[] prependSqlSelectionArgs(String[] selectionArgs) {
         String[] selectionArgsOut = selectionArgs;
@@ -138,6 +214,62 @@ public class KeywordsFilter {
         return selectionArgsOut;
     }
 
+    /** Arguments for the {@link #getSqlSelection(String, String, boolean)} */
+    @NonNull
+    public String[] prependSqlSelectionArgs(String[] selectionArgs, boolean useSearchIndex) {
+        String[] selectionArgsOut = prependSqlSelectionArgs(selectionArgs);
+        String matchQuery = getMatchQuery();
+        if (useSearchIndex && !TextUtils.isEmpty(matchQuery)) {
+            selectionArgsOut = StringUtils.addBeforeArray(selectionArgsOut, matchQuery);
+        }
+        return selectionArgsOut;
+    }
+
+    /**
+     * Each keyword becomes a phrase of its tokens. Tokens are split the same way, as the "simple" tokenizer
+     * of the full text search index does it, so every message matched by "LIKE" is matched here also.
+     * Keywords without tokens are skipped
+     * @return empty string if nothing to match
+     */
+    @NonNull
+    String getMatchQuery() {
+        return getMatchQuery(false);
+    }
+
+    /**
+     * @param any Match any of the keywords. As a keyword without tokens cannot be found in the index,
+     *            there is nothing to match then
+     */
+    @NonNull
+    String getMatchQuery(boolean any) {
+        StringBuilder builder = new StringBuilder();
+        for (String keyword : keywordsToFilter) {
+            StringBuilder phrase = new StringBuilder();
+            StringBuilder token = new StringBuilder();
+            for (int ind = 0; ind <= keyword.length(); ind++) {
+                char c = ind < keyword.length() ? keyword.charAt(ind) : ' ';
+                if (c >= 128 || Character.isLetterOrDigit(c)) {
+                    token.append(c);
+                } else if (token.length() > 0) {
+                    if (phrase.length() > 0) {
+                        phrase.append(' ');
+                    }
+                    phrase.append(token);
+                    token.setLength(0);
+                }
+            }
+            if (phrase.length() > 0) {
+                if (builder.length() > 0) {
+                    builder.append(any ? " OR " : " ");
+                }
+                builder.append(DOUBLE_QUOTE).append(phrase).append(DOUBLE_QUOTE);
+            } else if (any) {
+                return "";
+            }
+        }
+        return builder.toString();
+    }
+
     @NonNull
     public String getFirstTagOrFirstKeyword() {
         for (String keyword : keywordsRaw) {
@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) 2017 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.msg;
+
+import android.support.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Finds all keywords in a text in one pass, using the
+ * <a href="https://en.wikipedia.org/wiki/Aho%E2%80%93Corasick_algorithm">Aho-Corasick</a> automaton.
+ * The same as {@link String#contains(CharSequence)} for each keyword, but the time doesn't depend
+ * on the number of keywords. Immutable, so matchers of recently used lists of keywords are shared
+ * @author yvolk@yurivolkov.com
+ */
+final class KeywordsMatcher {
+    private static final int MAX_CACHED_MATCHERS = 8;
+    private static final Map<List<String>, KeywordsMatcher> cache =
+            new LinkedHashMap<List<String>, KeywordsMatcher>(MAX_CACHED_MATCHERS + 1, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<List<String>, KeywordsMatcher> eldest) {
+                    return size() > MAX_CACHED_MATCHERS;
+                }
+            };
+
+    private static final int ROOT = 0;
+    private static final int NONE = -1;
+
+    final int keywordsCount;
+    /** Sorted labels of transitions from each node */
+    private final char[][] labels;
+    /** Target nodes of the transitions in the same order */
+    private final int[][] targets;
+    /** The node of the longest proper suffix, which is a prefix of some keyword */
+    private final int[] failure;
+    /** Index of the keyword, which ends at the node, or {@link #NONE} */
+    private final int[] keywordAt;
+    /** The nearest node in the failure chain, where a keyword ends, or {@link #NONE} */
+    private final int[] outputLink;
+
+    @NonNull
+    static KeywordsMatcher of(@NonNull List<String> keywords) {
+        synchronized (cache) {
+            KeywordsMatcher matcher = cache.get(keywords);
+            if (matcher == null) {
+                matcher = new KeywordsMatcher(keywords);
+                cache.put(new ArrayList<>(keywords), matcher);
+            }
+            return matcher;
+        }
+    }
+
+    /** @param keywords Non empty and distinct */
+    private KeywordsMatcher(@NonNull List<String> keywords) {
+        keywordsCount = keywords.size();
+        List<Map<Character, Integer>> trie = new ArrayList<>();
+        trie.add(new HashMap<>());
+        List<Integer> keywordAtList = new ArrayList<>();
+        keywordAtList.add(NONE);
+        for (int keywordIndex = 0; keywordIndex < keywords.size(); keywordIndex++) {
+            String keyword = keywords.get(keywordIndex);
+            int node = ROOT;
+            for (int ind = 0; ind < keyword.length(); ind++) {
+                Integer next = trie.get(node).get(keyword.charAt(ind));
+                if (next == null) {
+                    next = trie.size();
+                    trie.add(new HashMap<>());
+                    keywordAtList.add(NONE);
+                    trie.get(node).put(keyword.charAt(ind), next);
+                }
+                node = next;
+            }
+            keywordAtList.set(node, keywordIndex);
+        }
+
+        int nodesCount = trie.size();
+        labels = new char[nodesCount][];
+        targets = new int[nodesCount][];
+        keywordAt = new int[nodesCount];
+        for (int node = 0; node < nodesCount; node++) {
+            Map<Character, Integer> transitions = trie.get(node);
+            char[] nodeLabels = new char[transitions.size()];
+            int ind = 0;
+            for (Character label : transitions.keySet()) {
+                nodeLabels[ind++] = label;
+            }
+            Arrays.sort(nodeLabels);
+            int[] nodeTargets = new int[nodeLabels.length];
+            for (ind = 0; ind < nodeLabels.length; ind++) {
+                nodeTargets[ind] = transitions.get(nodeLabels[ind]);
+            }
+            labels[node] = nodeLabels;
+            targets[node] = nodeTargets;
+            keywordAt[node] = keywordAtList.get(node);
+        }
+
+        failure = new int[nodesCount];
+        outputLink = new int[nodesCount];
+        outputLink[ROOT] = NONE;
+        // Breadth first, so failure links of shorter prefixes are ready
+        int[] queue = new int[nodesCount];
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = ROOT;
+        while (head < tail) {
+            int node = queue[head++];
+            for (int ind = 0; ind < labels[node].length; ind++) {
+                int child = targets[node][ind];
+                int fail = node == ROOT ? ROOT : next(failure[node], labels[node][ind]);
+                failure[child] = fail;
+                outputLink[child] = keywordAt[fail] != NONE ? fail : outputLink[fail];
+                queue[tail++] = child;
+            }
+        }
+    }
+
+    /** @return the next state of the automaton */
+    private int next(int nodeIn, char c) {
+        int node = nodeIn;
+        while (true) {
+            int ind = Arrays.binarySearch(labels[node], c);
+            if (ind >= 0) {
+                return targets[node][ind];
+            }
+            if (node == ROOT) {
+                return ROOT;
+            }
+            node = failure[node];
+        }
+    }
+
+    boolean matchedAny(@NonNull String text) {
+        int node = ROOT;
+        for (int ind = 0; ind < text.length(); ind++) {
+            node = next(node, text.charAt(ind));
+            if (keywordAt[node] != NONE || outputLink[node] != NONE) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    boolean matchedAll(@NonNull String text) {
+        boolean[] found = new boolean[keywordsCount];
+        int foundCount = 0;
+        int node = ROOT;
+        for (int ind = 0; ind < text.length(); ind++) {
+            node = next(node, text.charAt(ind));
+            for (int output = keywordAt[node] != NONE ? node : outputLink[node]; output != NONE;
+                 output = outputLink[output]) {
+                if (!found[keywordAt[output]]) {
+                    found[keywordAt[output]] = true;
+                    if (++foundCount == keywordsCount) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+}
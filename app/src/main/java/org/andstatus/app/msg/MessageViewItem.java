@@ -15,30 +15,27 @@
  */
 package org.andstatus.app.msg;
 
-import android.database.Cursor;
 import android.support.annotation.NonNull;
 import android.text.Html;
 import android.text.TextUtils;
 
 import org.andstatus.app.context.MyContext;
-import org.andstatus.app.context.MyContextHolder;
-import org.andstatus.app.context.MyPreferences;
 import org.andstatus.app.data.AttachedImageFile;
 import org.andstatus.app.data.AvatarFile;
-import org.andstatus.app.data.DbUtils;
+import org.andstatus.app.data.CursorColumns;
 import org.andstatus.app.data.DownloadStatus;
-import org.andstatus.app.data.MyQuery;
 import org.andstatus.app.data.TimelineSql;
 import org.andstatus.app.database.table.ActivityTable;
 import org.andstatus.app.database.table.DownloadTable;
 import org.andstatus.app.database.table.MsgTable;
 import org.andstatus.app.database.table.UserTable;
-import org.andstatus.app.net.social.MbUser;
 import org.andstatus.app.util.I18n;
 import org.andstatus.app.util.MyHtml;
 import org.andstatus.app.util.MyLog;
 import org.andstatus.app.util.TriState;
 
+import java.util.List;
+
 /**
  * @author yvolk@yurivolkov.com
  */
@@ -47,58 +44,55 @@ public class MessageViewItem extends BaseMessageViewItem<MessageViewItem> {
 
     @Override
     @NonNull
-    public MessageViewItem fromCursor(Cursor cursor) {
-        return MessageViewItem.fromCursorRow(getMyContext(), cursor);
+    public MessageViewItem fromCursor(CursorColumns columns) {
+        return MessageViewItem.fromCursorRow(getMyContext(), columns);
     }
 
-    public static MessageViewItem fromCursorRow(MyContext myContext, Cursor cursor) {
+    public static MessageViewItem fromCursorRow(MyContext myContext, CursorColumns columns) {
         long startTime = System.currentTimeMillis();
         MessageViewItem item = new MessageViewItem();
         item.setMyContext(myContext);
-        item.setMsgId(DbUtils.getLong(cursor, ActivityTable.MSG_ID));
-        item.setOriginId(DbUtils.getLong(cursor, ActivityTable.ORIGIN_ID));
-        item.setLinkedUserAndAccount(DbUtils.getLong(cursor, UserTable.LINKED_USER_ID));
+        item.setMsgId(columns.getLong(ActivityTable.MSG_ID));
+        item.setOriginId(columns.getLong(ActivityTable.ORIGIN_ID));
+        item.setLinkedUserAndAccount(columns.getLong(UserTable.LINKED_USER_ID));
 
-        item.authorName = TimelineSql.userColumnIndexToNameAtTimeline(cursor,
-                cursor.getColumnIndex(UserTable.AUTHOR_NAME), MyPreferences.getShowOrigin());
-        item.setBody(MyHtml.prepareForView(DbUtils.getString(cursor, MsgTable.BODY)));
-        item.inReplyToMsgId = DbUtils.getLong(cursor, MsgTable.IN_REPLY_TO_MSG_ID);
-        item.inReplyToUserId = DbUtils.getLong(cursor, MsgTable.IN_REPLY_TO_USER_ID);
-        item.inReplyToName = DbUtils.getString(cursor, UserTable.IN_REPLY_TO_NAME);
-        item.recipientName = DbUtils.getString(cursor, UserTable.RECIPIENT_NAME);
-        item.activityInsDate = DbUtils.getLong(cursor, ActivityTable.INS_DATE);
-        item.updatedDate = DbUtils.getLong(cursor, MsgTable.UPDATED_DATE);
-        item.msgStatus = DownloadStatus.load(DbUtils.getLong(cursor, MsgTable.MSG_STATUS));
+        item.authorName = TimelineSql.userColumnNameToNameAtTimeline(columns, UserTable.AUTHOR_NAME,
+                columns.showOrigin);
+        item.setBody(MyHtml.prepareForView(columns.getString(MsgTable.BODY)),
+                columns.getLong(MsgTable.BODY_SIMHASH));
+        item.inReplyToMsgId = columns.getLong(MsgTable.IN_REPLY_TO_MSG_ID);
+        item.inReplyToUserId = columns.getLong(MsgTable.IN_REPLY_TO_USER_ID);
+        item.inReplyToName = columns.getString(UserTable.IN_REPLY_TO_NAME);
+        item.recipientName = columns.getString(UserTable.RECIPIENT_NAME);
+        item.activityInsDate = columns.getLong(ActivityTable.INS_DATE);
+        item.updatedDate = columns.getLong(MsgTable.UPDATED_DATE);
+        item.msgStatus = DownloadStatus.load(columns.getLong(MsgTable.MSG_STATUS));
 
-        item.authorId = DbUtils.getLong(cursor, MsgTable.AUTHOR_ID);
+        item.authorId = columns.getLong(MsgTable.AUTHOR_ID);
 
-        item.favorited = DbUtils.getTriState(cursor, MsgTable.FAVORITED) == TriState.TRUE;
-        item.reblogged = DbUtils.getTriState(cursor, MsgTable.REBLOGGED) == TriState.TRUE;
+        item.favorited = columns.getTriState(MsgTable.FAVORITED) == TriState.TRUE;
+        item.reblogged = columns.getTriState(MsgTable.REBLOGGED) == TriState.TRUE;
 
-        String via = DbUtils.getString(cursor, MsgTable.VIA);
+        String via = columns.getString(MsgTable.VIA);
         if (!TextUtils.isEmpty(via)) {
             item.messageSource = Html.fromHtml(via).toString().trim();
         }
 
-        item.avatarFile = AvatarFile.fromCursor(item.authorId, cursor, DownloadTable.AVATAR_FILE_NAME);
-        if (MyPreferences.getDownloadAndDisplayAttachedImages()) {
-            item.attachedImageFile = new AttachedImageFile(
-                    DbUtils.getLong(cursor, DownloadTable.IMAGE_ID),
-                    DbUtils.getString(cursor, DownloadTable.IMAGE_FILE_NAME));
-        }
-
-        long beforeRebloggers = System.currentTimeMillis();
-        for (MbUser user : MyQuery.getRebloggers(MyContextHolder.get().getDatabase(), item.getOriginId(),
-                item.getMsgId())) {
-            item.rebloggers.put(user.userId, user.getWebFingerId());
+        item.avatarFile = AvatarFile.fromCursor(item.authorId, columns, DownloadTable.AVATAR_FILE_NAME);
+        if (columns.showAttachedImages) {
+            item.attachedImageFile = AttachedImageFile.fromCursor(columns);
         }
         if (MyLog.isVerboseEnabled()) {
-            MyLog.v(item, ": " + (System.currentTimeMillis() - startTime) + "ms, "
-                    + item.rebloggers.size() + " rebloggers: " + (System.currentTimeMillis() - beforeRebloggers) + "ms");
+            MyLog.v(item, ": " + (System.currentTimeMillis() - startTime) + "ms");
         }
         return item;
     }
 
+    @Override
+    public void enrichPage(@NonNull List<MessageViewItem> items) {
+        loadRebloggers(items);
+    }
+
     @Override
     public String toString() {
         return MyLog.formatKeyValue(this, I18n.trimTextAt(MyHtml.fromHtml(getBody()), 40) + ","
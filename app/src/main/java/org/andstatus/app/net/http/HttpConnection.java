@@ -123,6 +123,26 @@ public abstract class HttpConnection {
         return getRequestCommon(path, true).getJsonArray(parentKey);
     }
 
+    /**
+     * Passes items of the JSON array of the response to the consumer one by one.
+     * They are read from the stream, if the connection supports this,
+     * otherwise, or when network level messages are logged, the whole response is parsed at once
+     */
+    public final void getRequestArrayItems(String path, String parentKey, JsonArrayReader.ItemConsumer consumer)
+            throws ConnectionException {
+        if (TextUtils.isEmpty(path)) {
+            throw new IllegalArgumentException("path is empty");
+        }
+        HttpReadResult result = new HttpReadResult(pathToUrlString(path));
+        if (!MyLog.isLogNetworkLevelMessages("get_response")) {
+            result.setItemConsumer(parentKey, consumer);
+        }
+        getRequest(result);
+        MyLog.logNetworkLevelMessage("get_response", data.getLogName(), result.strResponse);
+        result.parseAndThrow();
+        result.setItemConsumer(parentKey, consumer).consumeItems();
+    }
+
     public final void downloadFile(String url, File file) throws ConnectionException {
         HttpReadResult result = new HttpReadResult(url, file);
         getRequest(result);
@@ -25,8 +25,10 @@ import org.andstatus.app.util.MyLog;
 import org.andstatus.app.util.UrlUtils;
 import org.json.JSONObject;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.Charset;
 import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
@@ -156,6 +158,15 @@ public class HttpConnectionMock extends HttpConnection {
     private void getRequestInner(String method, HttpReadResult result) throws ConnectionException {
         onRequest(method, result);
         throwExceptionIfSet();
+        if (result.isStreamable() && !TextUtils.isEmpty(result.strResponse)) {
+            InputStream in = new ByteArrayInputStream(result.strResponse.getBytes(Charset.forName(HttpConnectionUtils.UTF_8)));
+            result.strResponse = "";
+            try {
+                result.readItems(in);
+            } catch (IOException e) {
+                result.setException(e);
+            }
+        }
     }
 
     @Override
@@ -149,6 +149,8 @@ public class HttpConnectionOAuth2JavaNet extends HttpConnectionOAuthJavaNet {
                     case OK:
                         if (result.fileResult != null) {
                             FileUtils.readStreamToFile(response.getStream(), result.fileResult);
+                        } else if (result.isStreamable()) {
+                            result.readItems(response.getStream());
                         } else {
                             result.strResponse = HttpConnectionUtils.readStreamToString(response.getStream());
                         }
@@ -217,6 +217,8 @@ public class HttpConnectionOAuthJavaNet extends HttpConnectionOAuth {
                     case OK:
                         if (result.fileResult != null) {
                             FileUtils.readStreamToFile(conn.getInputStream(), result.fileResult);
+                        } else if (result.isStreamable()) {
+                            result.readItems(conn.getInputStream());
                         } else {
                             result.strResponse = HttpConnectionUtils.readStreamToString(conn.getInputStream());
                         }
@@ -16,8 +16,11 @@
 
 package org.andstatus.app.net.http;
 
+import android.support.annotation.NonNull;
 import android.text.TextUtils;
+import android.util.MalformedJsonException;
 
+import org.andstatus.app.data.DbUtils;
 import org.andstatus.app.net.http.ConnectionException.StatusCode;
 import org.andstatus.app.util.I18n;
 import org.andstatus.app.util.MyLog;
@@ -27,6 +30,9 @@ import org.json.JSONObject;
 import org.json.JSONTokener;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.Iterator;
@@ -48,6 +54,9 @@ public class HttpReadResult {
     private StatusCode statusCode = StatusCode.UNKNOWN;
 
     boolean redirected = false;
+    private String arrayKey = "";
+    private JsonArrayReader.ItemConsumer itemConsumer = null;
+    private boolean itemsRead = false;
 
     public HttpReadResult(String urlIn) throws ConnectionException {
         this (urlIn, null);
@@ -183,6 +192,48 @@ public class HttpReadResult {
         return jsa;
     }
  
+    /** Items of the JSON array of the response will be read from the stream, see {@link #isStreamable()} */
+    HttpReadResult setItemConsumer(String arrayKey, @NonNull JsonArrayReader.ItemConsumer itemConsumer) {
+        this.arrayKey = arrayKey;
+        this.itemConsumer = itemConsumer;
+        return this;
+    }
+
+    /** If true, a successful response may be read by {@link #readItems(InputStream)} instead of into a String */
+    boolean isStreamable() {
+        return itemConsumer != null && fileResult == null;
+    }
+
+    void readItems(InputStream in) throws IOException, ConnectionException {
+        String method = "readItems; ";
+        try {
+            JsonArrayReader.read(new InputStreamReader(in, HttpConnectionUtils.UTF_8), arrayKey, itemConsumer);
+            itemsRead = true;
+        } catch (MalformedJsonException | JSONException | IllegalStateException e) {
+            throw ConnectionException.loggedJsonException(this, method + toString(), e, null);
+        } catch (ClassCastException e) {
+            throw ConnectionException.loggedHardJsonException(this, method + toString(), e, null);
+        } finally {
+            DbUtils.closeSilently(in);
+        }
+    }
+
+    /** Passes items to the consumer, if they were not read from the stream already */
+    void consumeItems() throws ConnectionException {
+        if (itemConsumer == null || itemsRead) {
+            return;
+        }
+        JSONArray jArr = getJsonArray(arrayKey);
+        try {
+            for (int index = 0; index < jArr.length(); index++) {
+                itemConsumer.accept(jArr.getJSONObject(index));
+            }
+        } catch (JSONException e) {
+            throw ConnectionException.loggedJsonException(this, "consumeItems; " + toString(), e, null);
+        }
+        itemsRead = true;
+    }
+
     public ConnectionException getExceptionFromJsonErrorResponse() {
         StatusCode statusCode = this.statusCode;
         ConnectionException ce = null;
@@ -209,7 +260,10 @@ public class HttpReadResult {
         if ( isStatusOk()) {
             MyLog.v(this, toString());
         } else {
-            if (!TextUtils.isEmpty(strResponse)) {
+            if (e1 instanceof ConnectionException && ((ConnectionException) e1).isHardError()) {
+                // E.g. from reading of items, see readItems
+                throw (ConnectionException) e1;
+            } else if (!TextUtils.isEmpty(strResponse)) {
                 throw getExceptionFromJsonErrorResponse();
             } else {
                 throw ConnectionException.fromStatusCodeAndThrowable(statusCode, toString(), e1);
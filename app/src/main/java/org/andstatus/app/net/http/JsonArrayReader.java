@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) 2017 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.net.http;
+
+import android.support.annotation.NonNull;
+import android.util.JsonReader;
+import android.util.JsonToken;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Reads items of a JSON array of a response by a pull parser, so neither the whole response,
+ * nor a tree of all its items is kept in memory: only one item at a time.
+ * The array is found the same way, as in {@link HttpReadResult#getJsonArray(String)}
+ * @author yvolk@yurivolkov.com
+ */
+public final class JsonArrayReader {
+
+    public interface ItemConsumer {
+        void accept(@NonNull JSONObject item) throws ConnectionException;
+    }
+
+    private JsonArrayReader() {
+        // Empty
+    }
+
+    /** Reads the whole response and closes the reader.
+     * @throws ClassCastException if there is no array in the response, the same as for the parsed response */
+    static void read(@NonNull Reader reader, String arrayKey, @NonNull ItemConsumer consumer)
+            throws IOException, JSONException, ConnectionException {
+        JsonReader jsonReader = new JsonReader(reader);
+        jsonReader.setLenient(true);
+        try {
+            JsonToken token;
+            try {
+                token = jsonReader.peek();
+            } catch (EOFException e) {
+                // The response is empty
+                return;
+            }
+            switch (token) {
+                case BEGIN_ARRAY:
+                    readItems(jsonReader, consumer);
+                    break;
+                case BEGIN_OBJECT:
+                    readItemsOfObject(jsonReader, arrayKey, consumer);
+                    break;
+                case END_DOCUMENT:
+                    break;
+                default:
+                    throw new ClassCastException("Neither an array nor an object: " + token);
+            }
+        } finally {
+            jsonReader.close();
+        }
+    }
+
+    /** An array by the key or, if there is no such key, the first array inside the object */
+    private static void readItemsOfObject(JsonReader jsonReader, String arrayKey, ItemConsumer consumer)
+            throws IOException, JSONException, ConnectionException {
+        boolean found = false;
+        JSONArray firstArray = null;
+        jsonReader.beginObject();
+        while (jsonReader.hasNext()) {
+            String name = jsonReader.nextName();
+            if (!found && name.equals(arrayKey)) {
+                if (jsonReader.peek() != JsonToken.BEGIN_ARRAY) {
+                    throw new JSONException("'" + arrayKey + "' is not an array?!");
+                }
+                readItems(jsonReader, consumer);
+                found = true;
+            } else if (!found && firstArray == null && jsonReader.peek() == JsonToken.BEGIN_ARRAY) {
+                firstArray = readArray(jsonReader);
+            } else {
+                jsonReader.skipValue();
+            }
+        }
+        jsonReader.endObject();
+        if (!found && firstArray == null) {
+            throw new ClassCastException("No array in the object");
+        }
+        if (!found) {
+            for (int index = 0; index < firstArray.length(); index++) {
+                consumer.accept(firstArray.getJSONObject(index));
+            }
+        }
+    }
+
+    private static void readItems(JsonReader jsonReader, ItemConsumer consumer)
+            throws IOException, JSONException, ConnectionException {
+        jsonReader.beginArray();
+        while (jsonReader.hasNext()) {
+            if (jsonReader.peek() != JsonToken.BEGIN_OBJECT) {
+                throw new JSONException("An item is not an object: " + jsonReader.peek());
+            }
+            consumer.accept(readObject(jsonReader));
+        }
+        jsonReader.endArray();
+    }
+
+    private static JSONObject readObject(JsonReader jsonReader) throws IOException, JSONException {
+        JSONObject jso = new JSONObject();
+        jsonReader.beginObject();
+        while (jsonReader.hasNext()) {
+            jso.put(jsonReader.nextName(), readValue(jsonReader));
+        }
+        jsonReader.endObject();
+        return jso;
+    }
+
+    private static JSONArray readArray(JsonReader jsonReader) throws IOException, JSONException {
+        JSONArray jsa = new JSONArray();
+        jsonReader.beginArray();
+        while (jsonReader.hasNext()) {
+            jsa.put(readValue(jsonReader));
+        }
+        jsonReader.endArray();
+        return jsa;
+    }
+
+    private static Object readValue(JsonReader jsonReader) throws IOException, JSONException {
+        switch (jsonReader.peek()) {
+            case BEGIN_OBJECT:
+                return readObject(jsonReader);
+            case BEGIN_ARRAY:
+                return readArray(jsonReader);
+            case BOOLEAN:
+                return jsonReader.nextBoolean();
+            case NULL:
+                jsonReader.nextNull();
+                return JSONObject.NULL;
+            case NUMBER:
+                return numberOf(jsonReader.nextString());
+            default:
+                return jsonReader.nextString();
+        }
+    }
+
+    /** The same types, as {@link org.json.JSONTokener} uses, so values are read by the same "opt" methods */
+    static Object numberOf(String literal) {
+        if (literal.indexOf('.') < 0 && literal.indexOf('e') < 0 && literal.indexOf('E') < 0) {
+            try {
+                long longValue = Long.parseLong(literal);
+                if (longValue <= Integer.MAX_VALUE && longValue >= Integer.MIN_VALUE) {
+                    return (int) longValue;
+                }
+                return longValue;
+            } catch (NumberFormatException e) {
+                // Not a long, e.g. too large
+            }
+        }
+        try {
+            return Double.valueOf(literal);
+        } catch (NumberFormatException e) {
+            return literal;
+        }
+    }
+}
@@ -31,6 +31,7 @@ import org.json.JSONException;
 import org.json.JSONObject;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -213,8 +214,7 @@ public abstract class ConnectionTwitterLike extends Connection {
             throws ConnectionException {
         Uri.Builder builder = getTimelineUriBuilder(apiRoutine, limit, userId);
         appendPositionParameters(builder, youngestPosition, oldestPosition);
-        JSONArray jArr = http.getRequestAsArray(builder.build().toString());
-        return jArrToTimeline(jArr, apiRoutine, builder.build().toString());
+        return getTimelineItems(builder.build().toString(), apiRoutine, builder.build().toString());
     }
 
     @NonNull
@@ -430,8 +430,7 @@ public abstract class ConnectionTwitterLike extends Connection {
         }
         appendPositionParameters(builder, youngestPosition, oldestPosition);
         builder.appendQueryParameter("count", strFixedDownloadLimit(limit, apiRoutine));
-        JSONArray jArr = http.getRequestAsArray(builder.build().toString());
-        return jArrToTimeline(jArr, apiRoutine, url);
+        return getTimelineItems(builder.build().toString(), apiRoutine, url);
     }
 
     void appendPositionParameters(Uri.Builder builder, TimelinePosition youngest, TimelinePosition oldest) {
@@ -450,6 +449,18 @@ public abstract class ConnectionTwitterLike extends Connection {
         }
     }
 
+    /**
+     * The same as {@link #jArrToTimeline}, but each item is parsed, as soon as it is read from the response,
+     * so the whole response is not kept in memory
+     */
+    List<MbActivity> getTimelineItems(String path, ApiRoutineEnum apiRoutine, String url) throws ConnectionException {
+        List<MbActivity> timeline = new ArrayList<>();
+        http.getRequestArrayItems(path, "items", item -> timeline.add(activityFromTwitterLikeJson(item)));
+        // Read the activities in chronological order
+        Collections.reverse(timeline);
+        return onTimelineParsed(timeline, apiRoutine, url);
+    }
+
     List<MbActivity> jArrToTimeline(JSONArray jArr, ApiRoutineEnum apiRoutine, String url) throws ConnectionException {
         List<MbActivity> timeline = new ArrayList<>();
         if (jArr != null) {
@@ -463,6 +474,10 @@ public abstract class ConnectionTwitterLike extends Connection {
                 }
             }
         }
+        return onTimelineParsed(timeline, apiRoutine, url);
+    }
+
+    private List<MbActivity> onTimelineParsed(List<MbActivity> timeline, ApiRoutineEnum apiRoutine, String url) {
         if (apiRoutine.isMsgPrivate()) {
             setMessagesPrivate(timeline);
         }
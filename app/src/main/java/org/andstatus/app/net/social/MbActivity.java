@@ -29,6 +29,8 @@ import org.andstatus.app.data.DownloadStatus;
 import org.andstatus.app.data.MyProvider;
 import org.andstatus.app.data.MyQuery;
 import org.andstatus.app.data.OidEnum;
+import org.andstatus.app.data.OidToIdMap;
+import org.andstatus.app.data.TimelineItems;
 import org.andstatus.app.database.table.ActivityTable;
 import org.andstatus.app.os.MyAsyncTask;
 import org.andstatus.app.util.I18n;
@@ -332,7 +334,16 @@ public class MbActivity extends AObject {
             DbUtils.updateRowWithRetry(myContext, ActivityTable.TABLE_NAME, getId(), toContentValues(), 3);
             MyLog.v(this, "Updated " + this);
         }
+        if (timelinePosition.nonEmpty()) {
+            OidToIdMap.put(OidEnum.ACTIVITY_OID, accountUser.originId, timelinePosition.getPosition(), id);
+        }
         afterSave(myContext);
+        if (getMessage().msgId == 0) {
+            TimelineItems.refreshActivity(myContext.getDatabase(), id);
+        } else {
+            // Other activities of this message may refer to its author also
+            TimelineItems.refreshMessage(myContext.getDatabase(), getMessage().msgId);
+        }
         return id;
     }
 
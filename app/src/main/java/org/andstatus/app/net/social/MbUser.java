@@ -452,6 +452,62 @@ public class MbUser implements Comparable<MbUser> {
         this.updatedDate = updatedDate;
     }
 
+    /** Fills empty attributes of this user with values of the other occurrence of the same user */
+    public MbUser mergeEmptyFieldsFrom(@NonNull MbUser other) {
+        if (this == EMPTY || this == other) {
+            return this;
+        }
+        if (userId == 0) {
+            userId = other.userId;
+        }
+        if (TextUtils.isEmpty(userName)) {
+            userName = other.userName;
+        }
+        if (TextUtils.isEmpty(webFingerId)) {
+            webFingerId = other.webFingerId;
+        }
+        if (TextUtils.isEmpty(realName)) {
+            realName = other.realName;
+        }
+        if (TextUtils.isEmpty(description)) {
+            description = other.description;
+        }
+        if (TextUtils.isEmpty(location)) {
+            location = other.location;
+        }
+        if (UriUtils.isEmpty(profileUri)) {
+            profileUri = other.profileUri;
+        }
+        if (TextUtils.isEmpty(homepage)) {
+            homepage = other.homepage;
+        }
+        if (TextUtils.isEmpty(avatarUrl)) {
+            avatarUrl = other.avatarUrl;
+        }
+        if (TextUtils.isEmpty(bannerUrl)) {
+            bannerUrl = other.bannerUrl;
+        }
+        if (msgCount == 0) {
+            msgCount = other.msgCount;
+        }
+        if (favoritesCount == 0) {
+            favoritesCount = other.favoritesCount;
+        }
+        if (followingCount == 0) {
+            followingCount = other.followingCount;
+        }
+        if (followersCount == 0) {
+            followersCount = other.followersCount;
+        }
+        if (createdDate == 0) {
+            createdDate = other.createdDate;
+        }
+        if (updatedDate == 0) {
+            updatedDate = other.updatedDate;
+        }
+        return this;
+    }
+
     @Override
     public int compareTo(MbUser another) {
         if (userId != 0 && another.userId != 0) {
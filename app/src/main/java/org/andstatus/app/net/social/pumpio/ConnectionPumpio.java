@@ -49,6 +49,7 @@ import org.json.JSONObject;
 
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -337,19 +338,11 @@ public class ConnectionPumpio extends Connection {
         }
         builder.appendQueryParameter("count", strFixedDownloadLimit(limit, apiRoutine));
         String url = builder.build().toString();
-        JSONArray jArr = conu.httpConnection.getRequestAsArray(url);
         List<MbActivity> activities = new ArrayList<>();
-        if (jArr != null) {
-            // Read the activities in the chronological order
-            for (int index = jArr.length() - 1; index >= 0; index--) {
-                try {
-                    JSONObject jso = jArr.getJSONObject(index);
-                    activities.add(activityFromJson(jso));
-                } catch (JSONException e) {
-                    throw ConnectionException.loggedJsonException(this, "Parsing timeline", e, null);
-                }
-            }
-        }
+        // Each activity is parsed, as soon as it is read from the response
+        conu.httpConnection.getRequestArrayItems(url, "items", jso -> activities.add(activityFromJson(jso)));
+        // Read the activities in the chronological order
+        Collections.reverse(activities);
         MyLog.d(TAG, "getTimeline '" + url + "' " + activities.size() + " messages");
         return activities;
     }
@@ -30,6 +30,7 @@ import org.andstatus.app.database.table.ActivityTable;
 import org.andstatus.app.database.table.UserTable;
 import org.andstatus.app.net.http.ConnectionException;
 import org.andstatus.app.net.social.Connection;
+import org.andstatus.app.net.social.MbActivity;
 import org.andstatus.app.net.social.MbActivityType;
 import org.andstatus.app.net.social.MbUser;
 import org.andstatus.app.timeline.meta.TimelineType;
@@ -208,20 +209,21 @@ public class CommandExecutorFollowers extends CommandExecutorStrategy {
     private boolean updateNewUsersAndTheirLatestMessages(List<MbUser> usersNew) {
         DataUpdater di = new DataUpdater(execContext);
         MbUser accountUser = execContext.getMyAccount().toPartialUser();
+        List<MbActivity> activities = new ArrayList<>();
+        for (MbUser user : usersNew) {
+            activities.add(user.update(accountUser));
+        }
+        broadcastProgress(execContext.getContext().getText(R.string.button_save) + ": " + activities.size(), true);
+        di.onActivities(activities, true);
         boolean allMessagesLoaded = true;
-        long count = 0;
         for (MbUser user : usersNew) {
-            count++;
-            broadcastProgress(String.valueOf(count) + ". " + execContext.getContext().getText(R.string.button_save)
-                    + ": " + user.getNamePreferablyWebFingerId(), true);
-            di.onActivity(user.update(accountUser), false);
             if (!user.hasLatestMessage()) {
                 allMessagesLoaded = false;
+                break;
             }
         }
-        di.saveLum();
         if (!allMessagesLoaded) {
-            count = 0;
+            long count = 0;
             for (MbUser mbUser : usersNew) {
                 if (mbUser.hasLatestMessage()) {
                     continue;
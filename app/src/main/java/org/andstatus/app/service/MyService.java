@@ -594,6 +594,7 @@ public class MyService extends Service {
             } while (true);
             MyLog.d(this, "Ended, " + breakReason + ", " + queues.totalSizeToExecute() + " commands left");
             queues.save();
+            DbUtils.releaseStatements();
             return true;
         }
 
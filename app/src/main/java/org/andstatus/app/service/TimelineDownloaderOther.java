@@ -104,8 +104,8 @@ class TimelineDownloaderOther extends TimelineDownloader {
                         && execContext.getTimeline().getTimelineType().isSubscribedByMe()) {
                         activity.setSubscribedByMe(TriState.TRUE);
                     }
-                    di.onActivity(activity, false);
                 }
+                di.onActivities(activities, false);
                 if (toDownload <= 0 || activities.isEmpty() || previousPosition.equals(syncTracker.getPreviousPosition())) {
                     break;
                 }
@@ -38,7 +38,7 @@ public abstract class BaseTimelineAdapter<T extends ViewItem<T>> extends BaseAda
     @NonNull
     protected final MyContext myContext;
     @NonNull
-    private final TimelineData<T> listData;
+    private volatile TimelineData<T> listData;
     private final float displayDensity;
     private volatile boolean positionRestored = false;
 
@@ -61,6 +61,12 @@ public abstract class BaseTimelineAdapter<T extends ViewItem<T>> extends BaseAda
         }
     }
 
+    /** Replaces the data with the next data of the same timeline, e.g. with a page added,
+     * so the list is updated without recreation of the adapter. Call {@link #notifyDataSetChanged()} after this */
+    public void setListData(@NonNull TimelineData<T> listData) {
+        this.listData = listData;
+    }
+
     @Override
     public int getCount() {
         return listData.size();
@@ -20,9 +20,10 @@ import android.support.v4.util.Pair;
 
 import org.andstatus.app.context.MyPreferences;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -81,41 +82,85 @@ public class DuplicatesCollapser<T extends ViewItem<T>> {
         }
     }
 
+    /**
+     * Collapses duplicates of the page, which was just added to the {@link #data}.
+     * Other pages were already processed, so only the page and its boundaries with neighbour pages are examined:
+     * remaining items of other pages are parents of already collapsed groups, and these groups are kept.
+     */
+    void collapseDuplicatesOfPage(TimelinePage<T> page) {
+        if (!collapseDuplicates) {
+            // Items of a newly loaded page are not collapsed
+            return;
+        }
+        int pageIndex = data.pages.indexOf(page);
+        if (pageIndex < 0 || page.items.isEmpty()) {
+            return;
+        }
+        List<Pair<TimelinePage<T>, T>> items = new ArrayList<>(page.items.size() + 2);
+        if (pageIndex > 0) {
+            TimelinePage<T> previous = data.pages.get(pageIndex - 1);
+            if (!previous.items.isEmpty()) {
+                items.add(new Pair<>(previous, previous.items.get(previous.items.size() - 1)));
+            }
+        }
+        addItemsOfPage(items, page);
+        if (pageIndex + 1 < data.pages.size()) {
+            TimelinePage<T> next = data.pages.get(pageIndex + 1);
+            if (!next.items.isEmpty()) {
+                items.add(new Pair<>(next, next.items.get(0)));
+            }
+        }
+        collapseDuplicates(items, 0);
+    }
+
     private void collapseDuplicates(long itemId) {
-        Set<Pair<TimelinePage<T>, T>> toCollapse = new HashSet<>();
-        innerCollapseDuplicates(itemId, toCollapse);
+        List<Pair<TimelinePage<T>, T>> items = new ArrayList<>();
+        for (TimelinePage<T> page : data.pages) {
+            addItemsOfPage(items, page);
+        }
+        collapseDuplicates(items, itemId);
+    }
+
+    private void addItemsOfPage(List<Pair<TimelinePage<T>, T>> items, TimelinePage<T> page) {
+        for (T item : page.items) {
+            items.add(new Pair<>(page, item));
+        }
+    }
+
+    private void collapseDuplicates(List<Pair<TimelinePage<T>, T>> items, long itemId) {
+        List<Pair<TimelinePage<T>, T>> toCollapse = new ArrayList<>();
+        innerCollapseDuplicates(items, itemId, toCollapse);
         for (Pair<TimelinePage<T>, T> pair : toCollapse) {
             pair.first.items.remove(pair.second);
         }
     }
 
-    private void innerCollapseDuplicates(long itemId, Collection<Pair<TimelinePage<T>, T>> toCollapse) {
+    /** Groups are formed of adjacent items only */
+    private void innerCollapseDuplicates(List<Pair<TimelinePage<T>, T>> items, long itemId,
+                                         Collection<Pair<TimelinePage<T>, T>> toCollapse) {
         Pair<TimelinePage<T>, T> parent = new Pair<>(null, null);
-        Set<Pair<TimelinePage<T>, T>> group = new HashSet<>();
-        for (TimelinePage<T> page : data.pages) {
-            for (T item : page.items) {
-                Pair<TimelinePage<T>, T> itemPair =new Pair<>(page, item);
-                switch (item.duplicates(parent.second)) {
-                    case DUPLICATES:
-                        break;
-                    case IS_DUPLICATED:
-                        parent = itemPair;
-                        break;
-                    default:
-                        if (collapseThisGroup(itemId, parent, group, toCollapse)) {
-                            return;
-                        }
-                        group.clear();
-                        parent = itemPair;
-                        break;
-                }
-                group.add(itemPair);
+        List<Pair<TimelinePage<T>, T>> group = new ArrayList<>();
+        for (Pair<TimelinePage<T>, T> itemPair : items) {
+            switch (itemPair.second.duplicates(parent.second)) {
+                case DUPLICATES:
+                    break;
+                case IS_DUPLICATED:
+                    parent = itemPair;
+                    break;
+                default:
+                    if (collapseThisGroup(itemId, parent, group, toCollapse)) {
+                        return;
+                    }
+                    group.clear();
+                    parent = itemPair;
+                    break;
             }
+            group.add(itemPair);
         }
         collapseThisGroup(itemId, parent, group, toCollapse);
     }
 
-    private boolean collapseThisGroup(long itemId, Pair<TimelinePage<T>, T> parent, Set<Pair<TimelinePage<T>, T>> group,
+    private boolean collapseThisGroup(long itemId, Pair<TimelinePage<T>, T> parent, List<Pair<TimelinePage<T>, T>> group,
                                       Collection<Pair<TimelinePage<T>, T>> toCollapse) {
         if (group.isEmpty()) {
             return false;
@@ -245,6 +245,11 @@ public abstract class LoadableListActivity<T extends ViewItem<T>> extends MyBase
 
     public interface ProgressPublisher {
         void publish(String progress);
+
+        /** Show the items, loaded so far, before the loading completes. Called not in UI thread */
+        void publishPartial(SyncLoader partialLoader);
+
+        boolean isCancelled();
     }
 
     /** Called not in UI thread */
@@ -280,6 +285,25 @@ public abstract class LoadableListActivity<T extends ViewItem<T>> extends MyBase
         public void publish(String progress) {
             publishProgress(progress);
         }
+
+        @Override
+        public void publishPartial(final SyncLoader partialLoader) {
+            if (isCancelled()) {
+                return;
+            }
+            runOnUiThread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        if (!isCancelled() && isResumedMy()) {
+                            onPartialLoad(partialLoader);
+                        }
+                    } catch (Exception e) {
+                        MyLog.d(AsyncLoader.this, "publishPartial", e);
+                    }
+                }
+            });
+        }
         
         @Override
         protected void onProgressUpdate(String... values) {
@@ -324,6 +348,12 @@ public abstract class LoadableListActivity<T extends ViewItem<T>> extends MyBase
         }
     }
 
+    /** Show a part of the page being loaded. Called in UI thread.
+     * The page is shown as a whole in {@link #onLoadFinished(boolean)} */
+    protected void onPartialLoad(SyncLoader partialLoader) {
+        // Empty
+    }
+
     public void onLoadFinished(boolean keepCurrentPosition) {
         if (keepCurrentPosition) {
             updateList(TriState.UNKNOWN, 0, true);
@@ -590,6 +620,11 @@ public abstract class LoadableListActivity<T extends ViewItem<T>> extends MyBase
     @Override
     public void onDestroy() {
         MyLog.v(this, "onDestroy");
+        synchronized (loaderLock) {
+            if (loaderIsWorking && mWorkingLoader != null) {
+                mWorkingLoader.cancelLogged(false);
+            }
+        }
         if (myServiceReceiver != null) {
             myServiceReceiver.unregisterReceiver(this);
         }
@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2017 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.timeline;
+
+import android.support.annotation.NonNull;
+
+import org.andstatus.app.context.MyPreferences;
+import org.andstatus.app.os.AsyncTaskLauncher;
+import org.andstatus.app.os.MyAsyncTask;
+import org.andstatus.app.util.MyLog;
+
+/**
+ * Loads the next older page of a timeline in background, before a user scrolls to the end of the list.
+ * The faster the user scrolls, the earlier loading starts.
+ * The loaded page is added to the shown pages by {@link TimelineActivity#onOlderPagePrefetched}
+ * @author yvolk@yurivolkov.com
+ */
+class OlderPagePrefetcher<T extends ViewItem<T>> {
+    /** Expected time to load a page */
+    private static final long LOAD_TIME_MS = 1500;
+    /** Scroll events, which are more distant in time, are not used to calculate the speed */
+    private static final long MAX_SCROLL_INTERVAL_MS = 500;
+
+    private final TimelineActivity<T> activity;
+    private volatile PrefetchTask task = null;
+    /** Read once per activity, because scroll events are frequent */
+    private int distance = -1;
+
+    private long lastScrollAt = 0;
+    private int lastFirstVisibleItem = 0;
+    /** Scrolling speed towards the end of the list, items per millisecond */
+    private float speed = 0;
+
+    OlderPagePrefetcher(@NonNull TimelineActivity<T> activity) {
+        this.activity = activity;
+    }
+
+    /** Called in UI thread */
+    void onScroll(int firstVisibleItem, int visibleItemCount, int totalItemCount) {
+        updateSpeed(firstVisibleItem);
+        if (distance < 0) {
+            distance = Math.max(0, MyPreferences.getPrefetchOlderPageDistance());
+        }
+        if (distance == 0 || visibleItemCount == 0 || isPrefetching()) {
+            return;
+        }
+        int itemsLeft = totalItemCount - firstVisibleItem - visibleItemCount;
+        if (itemsLeft > Math.max(distance, Math.round(speed * LOAD_TIME_MS))) {
+            return;
+        }
+        TimelineData<T> data = activity.getListData();
+        if (data.size() == 0 || !data.mayHaveOlderPage() || activity.isLoading()) {
+            return;
+        }
+        start(data);
+    }
+
+    private void updateSpeed(int firstVisibleItem) {
+        long now = System.currentTimeMillis();
+        long interval = now - lastScrollAt;
+        if (interval > 0 && interval < MAX_SCROLL_INTERVAL_MS) {
+            float currentSpeed = Math.max(0, firstVisibleItem - lastFirstVisibleItem) / (float) interval;
+            speed = (speed + currentSpeed) / 2;
+        } else if (interval >= MAX_SCROLL_INTERVAL_MS) {
+            speed = 0;
+        }
+        lastScrollAt = now;
+        lastFirstVisibleItem = firstVisibleItem;
+    }
+
+    private void start(TimelineData<T> data) {
+        TimelinePage<T> referencePage = data.pages.get(data.pages.size() - 1);
+        PrefetchTask newTask = new PrefetchTask(data, referencePage,
+                TimelineParameters.clone(referencePage.params, WhichPage.OLDER));
+        if (AsyncTaskLauncher.execute(this, false, newTask)) {
+            task = newTask;
+            MyLog.v(this, "Started, speed:" + speed + " items/ms, " + newTask.params.toSummary());
+        }
+    }
+
+    boolean isPrefetching() {
+        return task != null;
+    }
+
+    /** E.g. when another page or another timeline is requested */
+    void cancel() {
+        PrefetchTask taskToCancel = task;
+        task = null;
+        if (taskToCancel != null) {
+            taskToCancel.params.cancelled = true;
+            taskToCancel.cancelLogged(false);
+            MyLog.v(this, "Cancelled " + taskToCancel.params.toSummary());
+        }
+    }
+
+    private class PrefetchTask extends MyAsyncTask<Void, Void, TimelinePage<T>> {
+        /** The page is spliced only if it is still next to the last page of the same data */
+        final TimelineData<T> data;
+        final TimelinePage<T> referencePage;
+        final TimelineParameters params;
+
+        PrefetchTask(TimelineData<T> data, TimelinePage<T> referencePage, TimelineParameters params) {
+            super(OlderPagePrefetcher.this, PoolEnum.LONG_UI);
+            this.data = data;
+            this.referencePage = referencePage;
+            this.params = params;
+        }
+
+        @Override
+        protected TimelinePage<T> doInBackground2(Void... voids) {
+            TimelineLoader<T> loader = new TimelineLoader<>(params, instanceId);
+            loader.load(null);
+            return loader.getPage();
+        }
+
+        @Override
+        protected void onCancelled2(TimelinePage<T> page) {
+            onFinished();
+        }
+
+        @Override
+        protected void onPostExecute2(TimelinePage<T> page) {
+            if (onFinished() && page != null && !params.cancelled) {
+                activity.onOlderPagePrefetched(data, referencePage, page);
+            }
+        }
+
+        /** @return true if this task was the current one */
+        private boolean onFinished() {
+            if (task == this) {
+                task = null;
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -59,6 +59,8 @@ import org.andstatus.app.msg.MessageEditorListActivity;
 import org.andstatus.app.msg.MessageListContextMenuContainer;
 import org.andstatus.app.msg.MessageViewItem;
 import org.andstatus.app.origin.Origin;
+import org.andstatus.app.os.AsyncTaskLauncher;
+import org.andstatus.app.os.MyAsyncTask;
 import org.andstatus.app.service.CommandData;
 import org.andstatus.app.service.CommandEnum;
 import org.andstatus.app.service.MyServiceManager;
@@ -95,6 +97,9 @@ public class TimelineActivity<T extends ViewItem<T>> extends MessageEditorListAc
     /** Last parameters, requested to load. Thread safe. They are taken by a Loader at some time */
     private volatile TimelineParameters paramsToLoad;
     private volatile TimelineData<T> listData;
+    private final OlderPagePrefetcher<T> olderPagePrefetcher = new OlderPagePrefetcher<>(this);
+    /** Shown at a cold start, while the timeline is being loaded */
+    private volatile TimelineData<T> snapshotData = null;
 
     private ActivityContextMenu contextMenu;
 
@@ -357,8 +362,11 @@ public class TimelineActivity<T extends ViewItem<T>> extends MessageEditorListAc
         }
         hideLoading(method);
         hideSyncing(method);
+        olderPagePrefetcher.cancel();
+        TimelineDataCache.put(getListData());
         crashTest();
         saveListPosition();
+        saveSnapshot();
         myContext.persistentTimelines().saveChanged();
         super.onPause();
     }
@@ -385,6 +393,14 @@ public class TimelineActivity<T extends ViewItem<T>> extends MessageEditorListAc
         }
     }
 
+    private void saveSnapshot() {
+        ListView listView = getListView();
+        if (listView != null && getParamsLoaded().isLoaded() && isPositionRestored()) {
+            TimelineSnapshot.save(getListData(),
+                    listView.getFirstVisiblePosition() - listView.getHeaderViewsCount());
+        }
+    }
+
     @Override
     public boolean onContextItemSelected(MenuItem item) {
         contextMenu.onContextItemSelected(item);
@@ -530,6 +546,9 @@ public class TimelineActivity<T extends ViewItem<T>> extends MessageEditorListAc
     @Override
     public void onScroll(AbsListView view, int firstVisibleItem, int visibleItemCount,
                          int totalItemCount) {
+        if (isShowingSnapshot()) {
+            return;
+        }
         boolean up = false;
         if (firstVisibleItem == 0) {
             View v = getListView().getChildAt(0);
@@ -539,10 +558,13 @@ public class TimelineActivity<T extends ViewItem<T>> extends MessageEditorListAc
                 showList(WhichPage.YOUNGER);
             }
         }
+        if (!up) {
+            olderPagePrefetcher.onScroll(firstVisibleItem, visibleItemCount, totalItemCount);
+        }
         // Idea from http://stackoverflow.com/questions/1080811/android-endless-list
         if ( !up && (visibleItemCount > 0)
                 && (firstVisibleItem + visibleItemCount >= totalItemCount - 1)
-                && getListData().mayHaveOlderPage()) {
+                && getListData().mayHaveOlderPage() && !olderPagePrefetcher.isPrefetching()) {
             MyLog.d(this, "Start Loading older items, rows=" + totalItemCount);
             showList(WhichPage.OLDER);
         }
@@ -718,7 +740,12 @@ public class TimelineActivity<T extends ViewItem<T>> extends MessageEditorListAc
 
     private TimelineData<T> setAndGetListData(
             TimelinePage<T> pageLoaded) {
-        listData = new TimelineData<T>(listData, pageLoaded);
+        TimelineData<T> oldData = listData;
+        listData = new TimelineData<T>(oldData, pageLoaded);
+        snapshotData = null;
+        if (oldData != null && !listData.isSameTimeline) {
+            TimelineDataCache.put(oldData);
+        }
         BaseTimelineAdapter<T> listAdapter = getListAdapter();
         if (listAdapter != null) {
             // Old value of listData is modified also
@@ -769,6 +796,10 @@ public class TimelineActivity<T extends ViewItem<T>> extends MessageEditorListAc
             MyLog.v(this, method + "; ignored empty request");
             return;
         }
+        if (chainedRequest != TriState.TRUE && showCachedData(params)) {
+            showList(TimelineParameters.clone(getListData().pages.get(0).params, WhichPage.YOUNGER), TriState.FALSE);
+            return;
+        }
         boolean isDifferentRequest = !params.equals(paramsToLoad);
         paramsToLoad = params;
         if (isLoading() && chainedRequest != TriState.TRUE) {
@@ -784,6 +815,7 @@ public class TimelineActivity<T extends ViewItem<T>> extends MessageEditorListAc
                     + (chainedRequest == TriState.TRUE ? "; chained" : "")
                     + "; requesting " + (isDifferentRequest ? "" : "duplicating ")
                     + params.toSummary());
+            olderPagePrefetcher.cancel();
             saveListPosition();
             disableHeaderSyncButton(R.string.loading);
             disableFooterButton(R.string.loading);
@@ -791,7 +823,70 @@ public class TimelineActivity<T extends ViewItem<T>> extends MessageEditorListAc
                     + paramsToLoad.toSummary() + HORIZONTAL_ELLIPSIS);
             super.showList(chainedRequest.toBundle(paramsToLoad.whichPage.toBundle(),
                     IntentExtra.CHAINED_REQUEST.key));
+            showSnapshotWhileLoading(paramsToLoad);
+        }
+    }
+
+    /** At a cold start, shows the items of the default timeline, which were visible, when it was left */
+    private void showSnapshotWhileLoading(final TimelineParameters params) {
+        if (getListData().size() > 0 || !params.isAtHome()
+                || (params.whichPage != WhichPage.ANY && params.whichPage != WhichPage.CURRENT)) {
+            return;
+        }
+        AsyncTaskLauncher.execute(this, false,
+                new MyAsyncTask<Void, Void, TimelinePage<T>>("TimelineSnapshot" + getInstanceId(),
+                        MyAsyncTask.PoolEnum.QUICK_UI) {
+                    @Override
+                    protected TimelinePage<T> doInBackground2(Void... voids) {
+                        return TimelineSnapshot.load(params);
+                    }
+
+                    @Override
+                    protected void onPostExecute2(TimelinePage<T> page) {
+                        onSnapshotLoaded(params, page);
+                    }
+                });
+    }
+
+    private void onSnapshotLoaded(TimelineParameters params, TimelinePage<T> page) {
+        final String method = "onSnapshotLoaded";
+        if (page == null || page.items.isEmpty() || getListData().size() > 0 || !isLoading()
+                || paramsToLoad != params) {
+            MyLog.v(this, method + "; " + (page == null ? "no snapshot" : "discarded"));
+            return;
+        }
+        snapshotData = new TimelineData<>(null, page);
+        listData = snapshotData;
+        setListAdapter(newListAdapter());
+        new TimelinePositionStorage<T>(getListAdapter(), getListView(), page.params).restore();
+        MyLog.v(this, method + "; " + page.items.size() + " items of " + page.params.toSummary());
+    }
+
+    private boolean isShowingSnapshot() {
+        return snapshotData != null && snapshotData == listData;
+    }
+
+    /**
+     * Shows pages of the timeline, cached when the timeline was shown last time,
+     * so only younger items need to be loaded
+     * @return true if the cached data is shown
+     */
+    private boolean showCachedData(TimelineParameters params) {
+        if (isLoading() || (params.whichPage != WhichPage.ANY && params.whichPage != WhichPage.CURRENT)
+                || (getListData().size() > 0 && params.isSameTimeline(getParamsLoaded()))) {
+            return false;
+        }
+        TimelineData<T> cachedData = TimelineDataCache.take(params);
+        if (cachedData == null) {
+            return false;
         }
+        TimelineDataCache.put(getListData());
+        listData = cachedData;
+        setListAdapter(newListAdapter());
+        new TimelinePositionStorage<T>(getListAdapter(), getListView(), cachedData.params).restore();
+        updateScreen();
+        MyLog.v(this, "showCachedData; " + cachedData.size() + " items of " + cachedData.params.toSummary());
+        return true;
     }
 
     @Override
@@ -811,6 +906,17 @@ public class TimelineActivity<T extends ViewItem<T>> extends MessageEditorListAc
         return new TimelineLoader<>(params, BundleUtils.fromBundle(args, IntentExtra.INSTANCE_ID));
     }
 
+    @Override
+    protected void onPartialLoad(SyncLoader partialLoader) {
+        TimelinePage<T> page = ((TimelineLoader<T>) partialLoader).getPage();
+        if (paramsToLoad != null && !page.params.equals(paramsToLoad)) {
+            return;
+        }
+        setAndGetListData(page);
+        MyLog.v(this, "onPartialLoad; " + page.items.size() + " items of " + page.params.toSummary());
+        updateList(TriState.UNKNOWN, 0, true);
+    }
+
     @Override
     public void onLoadFinished(boolean keepCurrentPosition_in) {
         final String method = "onLoadFinished";
@@ -859,6 +965,38 @@ public class TimelineActivity<T extends ViewItem<T>> extends MessageEditorListAc
         }
     }
 
+    /** Adds the page, loaded in advance, to the shown pages without recreation of the list adapter */
+    void onOlderPagePrefetched(TimelineData<T> dataPrefetchedFor, TimelinePage<T> referencePage,
+                               TimelinePage<T> page) {
+        final String method = "onOlderPagePrefetched";
+        TimelineData<T> data = getListData();
+        BaseTimelineAdapter<T> listAdapter = getListAdapter();
+        if (data != dataPrefetchedFor || data.pages.get(data.pages.size() - 1) != referencePage
+                || listAdapter == null || isLoading() || !isResumedMy()) {
+            MyLog.v(this, method + "; discarded " + page.params.toSummary());
+            return;
+        }
+        // The position is taken before the data is changed, because a dropped youngest page shifts positions
+        ListView list = getListView();
+        long firstVisibleItemId = 0;
+        int y = 0;
+        if (list.getChildCount() > list.getHeaderViewsCount() + list.getFooterViewsCount()) {
+            int firstVisibleAdapterPosition = list.getFirstVisiblePosition() - list.getHeaderViewsCount();
+            firstVisibleItemId = listAdapter.getItemId(firstVisibleAdapterPosition);
+            y = getYOfPosition(list, listAdapter, firstVisibleAdapterPosition);
+        }
+        listData = new TimelineData<>(data, page);
+        listAdapter.setListData(listData);
+        listAdapter.notifyDataSetChanged();
+        int position = firstVisibleItemId == 0 ? -1 : listAdapter.getPositionById(firstVisibleItemId);
+        if (position >= 0) {
+            list.setSelectionFromTop(position + list.getHeaderViewsCount(), y);
+        }
+        listAdapter.setPositionRestored(position >= 0);
+        showSyncListButtons();
+        MyLog.v(this, method + "; " + page.items.size() + " items of " + page.params.toSummary());
+    }
+
     private void addSyncButtons() {
         final ListView listView = getListView();
         if (listView != null) {
@@ -17,11 +17,15 @@
 package org.andstatus.app.timeline;
 
 import android.support.annotation.NonNull;
+import android.util.LongSparseArray;
 
 import org.andstatus.app.util.MyLog;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * @author yvolk@yurivolkov.com
@@ -33,6 +37,9 @@ public class TimelineData<T extends ViewItem<T>> {
     public final TimelineParameters params;
     final boolean isSameTimeline;
     private final DuplicatesCollapser<T> duplicatesCollapser;
+    private int mergedItemsCount = 0;
+    private int droppedItemsCount = 0;
+    private volatile PositionIndex positionIndex = null;
 
     public TimelineData(TimelineData<T> oldData, @NonNull TimelinePage<T> thisPage) {
         duplicatesCollapser = new DuplicatesCollapser<>(this, oldData == null ? null : oldData.duplicatesCollapser);
@@ -41,8 +48,33 @@ public class TimelineData<T extends ViewItem<T>> {
                 params.getContentUri().equals(oldData.params.getContentUri());
         this.pages = isSameTimeline ? new ArrayList<>(oldData.pages) : new ArrayList<>();
         addThisPage(thisPage);
-        duplicatesCollapser.collapseDuplicates(isCollapseDuplicates(), 0);
+        if (mergedItemsCount > 0 || droppedItemsCount > 0) {
+            MyLog.v(this, "Page " + thisPage.params.whichPage + " spliced, merged: " + mergedItemsCount
+                    + ", dropped: " + droppedItemsCount);
+        }
+        if (!thisPage.isPartial) {
+            // Items of a partial page are shared with the loader, so they are collapsed, when the whole page is loaded
+            duplicatesCollapser.collapseDuplicatesOfPage(thisPage);
+        }
         dropExcessivePage(thisPage);
+        onItemsChanged();
+    }
+
+    /** A copy of the pages, which may be changed independently of pages of this data.
+     * Captured rows of {@link TimelineSnapshot} are not copied, so they are not kept in the cache */
+    private TimelineData(@NonNull TimelineData<T> source) {
+        duplicatesCollapser = new DuplicatesCollapser<>(this, source.duplicatesCollapser);
+        this.params = source.params;
+        isSameTimeline = false;
+        pages = new ArrayList<>(source.pages.size());
+        for (TimelinePage<T> page : source.pages) {
+            pages.add(new TimelinePage<>(page.params, new ArrayList<>(page.items)));
+        }
+    }
+
+    @NonNull
+    TimelineData<T> copy() {
+        return new TimelineData<>(this);
     }
 
     private void dropExcessivePage(TimelinePage<T> lastLoadedPage) {
@@ -75,11 +107,15 @@ public class TimelineData<T extends ViewItem<T>> {
                 pages.add(page);
                 break;
             case OLDER:
-                removeDuplicatesWithYounger(page, pages.size() - 1);
+                if (!page.params.isKeysetBounded()) {
+                    removeDuplicatesWithYounger(page, pages.size() - 1);
+                }
                 pages.add(page);
                 break;
             case YOUNGER:
-                removeDuplicatesWithOlder(page, 0);
+                if (!page.params.isKeysetBounded()) {
+                    removeDuplicatesWithOlder(page, 0);
+                }
                 pages.add(0, page);
                 break;
             default:
@@ -109,6 +145,9 @@ public class TimelineData<T extends ViewItem<T>> {
         }
     }
 
+    /** Items of the new page, which are already shown on an existing page, are merged into the existing items.
+     * Items of the pages are sorted by date (the youngest first), so pages may overlap at their edge dates only.
+     * Both pages are examined in one pass: at the overlap window only */
     private void removeDuplicatesWithYounger(TimelinePage<T> page, int indExistingPage) {
         if (indExistingPage < 0 || indExistingPage >= pages.size()
                 || pages.get(indExistingPage).items.isEmpty() || page.items.isEmpty()) {
@@ -121,35 +160,30 @@ public class TimelineData<T extends ViewItem<T>> {
             return;
         }
         long edgeDate = ePage.params.minSentDateLoaded;
-        List<T> toRemove = new ArrayList<>();
-        for (int ind = 0; ind < page.items.size(); ind++) {
+        LongSparseArray<T> window = new LongSparseArray<>();
+        for (int eInd = ePage.items.size() - 1; eInd >= 0; eInd--) {
+            T eItem = ePage.items.get(eInd);
+            if (eItem.getDate() > edgeDate) {
+                break;
+            }
+            window.put(eItem.getId(), eItem);
+        }
+        List<T> kept = new ArrayList<>();
+        int ind = 0;
+        for (; ind < page.items.size(); ind++) {
             T item = page.items.get(ind);
             if (item.getDate() < edgeDate) {
                 break;
-            } else if (item.getDate() > edgeDate) {
-                MyLog.e(this, "This page has an item younger than on a younger page: " + item);
-                toRemove.add(item);
-            } else {
-                for (int eInd = ePage.items.size() - 1; eInd >= 0; eInd--) {
-                    T eItem = ePage.items.get(eInd);
-                    if (eItem.getDate() > item.getDate()) {
-                        break;
-                    }
-                    if (eItem.getId() == item.getId()) {
-                        mergeWithExisting(item, eItem);
-                        toRemove.add(item);
-                        break;
-                    }
-                }
             }
+            spliceItem(item, edgeDate, window, kept);
+        }
+        if (kept.size() < ind) {
+            page.items.subList(0, ind).clear();
+            page.items.addAll(0, kept);
         }
-        page.items.removeAll(toRemove);
-    }
-
-    private void mergeWithExisting(T newItem, T existingItem) {
-        // TODO: Merge something...
     }
 
+    /** The same as {@link #removeDuplicatesWithYounger(TimelinePage, int)}, but the new page is younger */
     private void removeDuplicatesWithOlder(TimelinePage<T> page, int indExistingPage) {
         if (indExistingPage < 0 || indExistingPage >= pages.size()
                 || pages.get(indExistingPage).items.isEmpty() || page.items.isEmpty()) {
@@ -162,51 +196,142 @@ public class TimelineData<T extends ViewItem<T>> {
             return;
         }
         long edgeDate = ePage.params.maxSentDateLoaded;
-        List<T> toRemove = new ArrayList<>();
-        for (int ind = page.items.size() - 1; ind >= 0; ind--) {
+        LongSparseArray<T> window = new LongSparseArray<>();
+        for (int eInd = 0; eInd < ePage.items.size(); eInd++) {
+            T eItem = ePage.items.get(eInd);
+            if (eItem.getDate() < edgeDate) {
+                break;
+            }
+            window.put(eItem.getId(), eItem);
+        }
+        List<T> kept = new ArrayList<>();
+        int ind = page.items.size() - 1;
+        for (; ind >= 0; ind--) {
             T item = page.items.get(ind);
             if (item.getDate() > edgeDate) {
                 break;
-            } else if (item.getDate() < edgeDate) {
-                MyLog.e(this, "This page has an item older than on an older page: " + item);
-                toRemove.add(item);
-            } else {
-                for (int eInd = 0; eInd < ePage.items.size(); eInd++) {
-                    T eItem = ePage.items.get(eInd);
-                    if (eItem.getDate() < item.getDate()) {
-                        break;
-                    }
-                    if (eItem.getId() == item.getId()) {
-                        mergeWithExisting(item, eItem);
-                        toRemove.add(item);
-                        break;
+            }
+            spliceItem(item, edgeDate, window, kept);
+        }
+        if (kept.size() < page.items.size() - 1 - ind) {
+            Collections.reverse(kept);
+            page.items.subList(ind + 1, page.items.size()).clear();
+            page.items.addAll(kept);
+        }
+    }
+
+    private void spliceItem(T item, long edgeDate, LongSparseArray<T> window, List<T> kept) {
+        if (item.getDate() != edgeDate) {
+            MyLog.e(this, "This page has an item " + (item.getDate() > edgeDate ? "younger than on a younger page: "
+                    : "older than on an older page: ") + item);
+            droppedItemsCount++;
+            return;
+        }
+        T eItem = window.get(item.getId());
+        if (eItem == null) {
+            kept.add(item);
+        } else {
+            mergeWithExisting(item, eItem);
+            mergedItemsCount++;
+        }
+    }
+
+    private void mergeWithExisting(T newItem, T existingItem) {
+        // TODO: Merge something...
+    }
+
+    /** @return Number of items of the loaded page, which were merged into the same items of existing pages */
+    public int getMergedItemsCount() {
+        return mergedItemsCount;
+    }
+
+    /** @return Number of items of the loaded page, which were dropped, because they were out of order */
+    public int getDroppedItemsCount() {
+        return droppedItemsCount;
+    }
+
+    /** Positions of the items in the pages. Immutable, rebuilt after any change of the items */
+    private static class PositionIndex {
+        /** Position of the first item of each page. The last element is the total number of items */
+        final int[] pageOffsets;
+        /** Item id to its position */
+        final Map<Long, Integer> itemIdToPosition;
+        /** The same, plus collapsed children, which have positions of their parents */
+        final Map<Long, Integer> idToPosition;
+
+        <T extends ViewItem<T>> PositionIndex(List<TimelinePage<T>> pages) {
+            pageOffsets = new int[pages.size() + 1];
+            int position = 0;
+            for (int ind = 0; ind < pages.size(); ind++) {
+                pageOffsets[ind] = position;
+                position += pages.get(ind).items.size();
+            }
+            pageOffsets[pages.size()] = position;
+            itemIdToPosition = new HashMap<>(position * 2);
+            idToPosition = new HashMap<>(position * 2);
+            position = 0;
+            for (TimelinePage<T> page : pages) {
+                for (T item : page.items) {
+                    putIfAbsent(itemIdToPosition, item.getId(), position);
+                    putIfAbsent(idToPosition, item.getId(), position);
+                    for (T child : item.getChildren()) {
+                        putIfAbsent(idToPosition, child.getId(), position);
                     }
+                    position++;
+                }
+            }
+        }
+
+        /** Pages may be shared with the next {@link TimelineData}, which may collapse or expand their items */
+        <T extends ViewItem<T>> boolean isFor(List<TimelinePage<T>> pages) {
+            if (pageOffsets.length != pages.size() + 1) {
+                return false;
+            }
+            for (int ind = 0; ind < pages.size(); ind++) {
+                if (pageOffsets[ind + 1] - pageOffsets[ind] != pages.get(ind).items.size()) {
+                    return false;
                 }
             }
+            return true;
+        }
+
+        private static void putIfAbsent(Map<Long, Integer> map, long itemId, int position) {
+            if (itemId != 0 && !map.containsKey(itemId)) {
+                map.put(itemId, position);
+            }
         }
-        page.items.removeAll(toRemove);
+    }
+
+    @NonNull
+    private PositionIndex getPositionIndex() {
+        PositionIndex index = positionIndex;
+        if (index == null || !index.isFor(pages)) {
+            index = new PositionIndex(pages);
+            positionIndex = index;
+        }
+        return index;
+    }
+
+    /** Should be called after pages or items in them were added, removed, collapsed or expanded */
+    private void onItemsChanged() {
+        positionIndex = null;
     }
 
     // See http://stackoverflow.com/questions/300522/count-vs-length-vs-size-in-a-collection
     public int size() {
-        int count = 0;
-        for (TimelinePage page : pages) {
-            count += page.items.size();
-        }
-        return count;
+        int[] pageOffsets = getPositionIndex().pageOffsets;
+        return pageOffsets[pageOffsets.length - 1];
     }
 
     @NonNull
     public T getItem(int position) {
-        int firstPosition = 0;
-        for (TimelinePage<T> page : pages) {
-            if (position < firstPosition) {
-                break;
-            }
-            if (position < firstPosition + page.items.size()) {
-                return page.items.get(position - firstPosition);
+        int[] pageOffsets = getPositionIndex().pageOffsets;
+        if (position >= 0) {
+            for (int ind = 0; ind < pageOffsets.length - 1; ind++) {
+                if (position < pageOffsets[ind + 1]) {
+                    return pages.get(ind).items.get(position - pageOffsets[ind]);
+                }
             }
-            firstPosition += page.items.size();
         }
         return pages.get(0).getEmptyItem();
     }
@@ -214,33 +339,19 @@ public class TimelineData<T extends ViewItem<T>> {
     @NonNull
     public T getById(long itemId) {
         if (itemId != 0) {
-            for (TimelinePage<T> page : pages) {
-                for (T item : page.items) {
-                    if (item.getId() == itemId) {
-                        return item;
-                    }
-                }
+            Integer position = getPositionIndex().itemIdToPosition.get(itemId);
+            if (position != null) {
+                return getItem(position);
             }
         }
         return pages.get(0).getEmptyItem();
     }
 
     public int getPositionById(long itemId) {
-        int position = -1;
         if (itemId != 0) {
-            for (TimelinePage<T> page : pages) {
-                for (T item : page.items) {
-                    position++;
-                    if (item.getId() == itemId) {
-                        return position;
-                    } else if (item.isCollapsed()) {
-                        for (T child : item.getChildren()) {
-                            if (child.getId() == itemId) {
-                                return position;
-                            }
-                        }
-                    }
-                }
+            Integer position = getPositionIndex().idToPosition.get(itemId);
+            if (position != null) {
+                return position;
             }
         }
         return -1;
@@ -254,9 +365,25 @@ public class TimelineData<T extends ViewItem<T>> {
         return pages.size() == 0 || pages.get(pages.size() - 1).params.mayHaveOlderPage();
     }
 
+    /** Rough estimate of the memory, taken by all items, including collapsed ones */
+    public long getEstimatedMemoryBytes() {
+        long bytes = 0;
+        for (TimelinePage<T> page : pages) {
+            for (T item : page.items) {
+                bytes += item.getEstimatedMemoryBytes();
+                for (T child : item.getChildren()) {
+                    bytes += child.getEstimatedMemoryBytes();
+                }
+            }
+        }
+        return bytes;
+    }
+
     @Override
     public String toString() {
-        String s = "pages:" + pages.size() + ", total items:" + size() + ",";
+        String s = "pages:" + pages.size() + ", total items:" + size() + ","
+                + (mergedItemsCount > 0 ? " merged:" + mergedItemsCount + "," : "")
+                + (droppedItemsCount > 0 ? " dropped:" + droppedItemsCount + "," : "");
         for (TimelinePage page : pages) {
             s += "\nPage size:" + page.items.size() + ", params: " + page.params + ",";
         }
@@ -276,5 +403,6 @@ public class TimelineData<T extends ViewItem<T>> {
      */
     public void collapseDuplicates(boolean collapse, long itemId) {
         duplicatesCollapser.collapseDuplicates(collapse, itemId);
+        onItemsChanged();
     }
 }
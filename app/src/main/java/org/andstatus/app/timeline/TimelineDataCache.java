@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2017 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.timeline;
+
+import android.support.annotation.NonNull;
+
+import org.andstatus.app.context.MyContext;
+import org.andstatus.app.context.MyPreferences;
+import org.andstatus.app.util.MyLog;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Recently shown {@link TimelineData} of several timelines, so switching back to a timeline
+ * shows its pages immediately, and only younger items are loaded from the database.
+ * The least recently used data are evicted, when the estimated memory of all cached data exceeds the limit.
+ * The data are valid for the same {@link MyContext} and the same preferences (including filters) only.
+ * @author yvolk@yurivolkov.com
+ */
+class TimelineDataCache {
+    static final int MAX_ENTRIES = 4;
+    private static final long MAX_MEMORY_BYTES = Runtime.getRuntime().maxMemory() / 16;
+
+    private static final Map<String, Entry> entries = new LinkedHashMap<>(MAX_ENTRIES + 1, 0.75f, true);
+    private static long memoryBytes = 0;
+
+    private static class Entry {
+        final TimelineData<?> data;
+        final MyContext myContext;
+        final long preferencesChangeTime;
+        final long memoryBytes;
+
+        Entry(TimelineData<?> data) {
+            this.data = data;
+            myContext = data.params.getMyContext();
+            preferencesChangeTime = MyPreferences.getPreferencesChangeTime();
+            memoryBytes = data.getEstimatedMemoryBytes();
+        }
+
+        boolean isValidFor(TimelineParameters params) {
+            return myContext == params.getMyContext()
+                    && preferencesChangeTime == MyPreferences.getPreferencesChangeTime();
+        }
+    }
+
+    private TimelineDataCache() {
+        // Empty
+    }
+
+    /** Stores a copy of the data, so it is not affected by later changes of the data */
+    static void put(@NonNull TimelineData<?> data) {
+        if (data.size() == 0 || !data.params.isLoaded()) {
+            return;
+        }
+        Entry entry = new Entry(data.copy());
+        if (entry.memoryBytes > MAX_MEMORY_BYTES) {
+            return;
+        }
+        synchronized (entries) {
+            removeEntry(keyOf(data.params));
+            entries.put(keyOf(data.params), entry);
+            memoryBytes += entry.memoryBytes;
+            evictExcessive();
+        }
+        MyLog.v(TimelineDataCache.class, "Put " + data.size() + " items, ~" + entry.memoryBytes / 1024
+                + "KB; cached:" + entries.size() + ", ~" + memoryBytes / 1024 + "KB; " + data.params.toSummary());
+    }
+
+    /** The data is removed from the cache, because it is going to be changed
+     * @return null if no valid data for the timeline */
+    static <T extends ViewItem<T>> TimelineData<T> take(@NonNull TimelineParameters params) {
+        Entry entry;
+        synchronized (entries) {
+            entry = removeEntry(keyOf(params));
+        }
+        if (entry == null) {
+            return null;
+        }
+        if (!entry.isValidFor(params)) {
+            MyLog.v(TimelineDataCache.class, "Outdated data discarded; " + params.toSummary());
+            return null;
+        }
+        return (TimelineData<T>) entry.data;
+    }
+
+    static void clear() {
+        synchronized (entries) {
+            entries.clear();
+            memoryBytes = 0;
+        }
+    }
+
+    static int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private static String keyOf(TimelineParameters params) {
+        return params.getTimeline().getId() + ":" + params.getContentUri();
+    }
+
+    private static Entry removeEntry(String key) {
+        Entry entry = entries.remove(key);
+        if (entry != null) {
+            memoryBytes -= entry.memoryBytes;
+        }
+        return entry;
+    }
+
+    /** The eldest entry is the least recently used one */
+    private static void evictExcessive() {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext() && (entries.size() > MAX_ENTRIES || memoryBytes > MAX_MEMORY_BYTES)) {
+            memoryBytes -= iterator.next().memoryBytes;
+            iterator.remove();
+        }
+    }
+}
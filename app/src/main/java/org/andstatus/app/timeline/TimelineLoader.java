@@ -19,17 +19,22 @@ package org.andstatus.app.timeline;
 import android.database.Cursor;
 import android.support.annotation.NonNull;
 
+import org.andstatus.app.data.CursorColumns;
 import org.andstatus.app.data.DbUtils;
+import org.andstatus.app.database.table.ActivityTable;
 import org.andstatus.app.list.SyncLoader;
 import org.andstatus.app.util.I18n;
 import org.andstatus.app.util.MyLog;
 
 import java.util.ArrayList;
+import java.util.List;
 
 /**
 * @author yvolk@yurivolkov.com
 */
 public class TimelineLoader<T extends ViewItem<T>> extends SyncLoader<T> {
+    /** Roughly a screenful of rows, shown before the rest of the page is loaded */
+    static final int FIRST_CHUNK_SIZE = 20;
     private final TimelineParameters params;
     private final TimelinePage<T> page;
 
@@ -42,12 +47,20 @@ public class TimelineLoader<T extends ViewItem<T>> extends SyncLoader<T> {
         this.instanceId = instanceId;
     }
 
+    /** A snapshot of the items, loaded so far */
+    private TimelineLoader(@NonNull TimelineLoader<T> loading) {
+        this.page = loading.page.partialCopy();
+        this.params = page.params;
+        this.items = page.items;
+        this.instanceId = loading.instanceId;
+    }
+
     @Override
     public void load(LoadableListActivity.ProgressPublisher publisher) {
         markStart();
         if (params.whichPage != WhichPage.EMPTY) {
             Cursor cursor = queryDatabase();
-            loadFromCursor(cursor);
+            loadFromCursor(cursor, publisher);
         }
         params.endTime = System.nanoTime();
         logExecutionStats();
@@ -82,22 +95,55 @@ public class TimelineLoader<T extends ViewItem<T>> extends SyncLoader<T> {
         return cursor;
     }
 
-    private void loadFromCursor(Cursor cursor) {
+    /**
+     * Pages, which replace everything shown, are streamed: the first screenful of rows is shown at once,
+     * and then the shown part grows twice with each chunk until the whole page is loaded
+     */
+    private boolean isStreaming(LoadableListActivity.ProgressPublisher publisher) {
+        if (publisher == null) {
+            return false;
+        }
+        switch (params.whichPage) {
+            case CURRENT:
+            case TOP:
+            case YOUNGEST:
+                return !params.isSortOrderAscending();
+            default:
+                return false;
+        }
+    }
+
+    private void loadFromCursor(Cursor cursor, LoadableListActivity.ProgressPublisher publisher) {
         long startTime = System.currentTimeMillis();
         TimelineFilter filter = new TimelineFilter(getParams().getTimeline());
         int rowsCount = 0;
         int filteredOutCount = 0;
+        boolean streaming = isStreaming(publisher);
+        int nextChunkSize = FIRST_CHUNK_SIZE;
+        List<T> itemsToEnrich = new ArrayList<>();
         if (cursor != null && !cursor.isClosed()) {
             try {
                 if (cursor.moveToFirst()) {
+                    CursorColumns columns = new CursorColumns(cursor);
+                    TimelineSnapshot snapshot = TimelineSnapshot.newCapture(getParams(), cursor);
+                    page.snapshot = snapshot;
                     boolean reversedOrder = getParams().isSortOrderAscending();
+                    boolean keysetPagination = getParams().isKeysetPagination();
                     do {
                         long rowStartTime = System.currentTimeMillis();
                         rowsCount++;
-                        T item = (T) page.getEmptyItem().fromCursor(cursor);
+                        T item = (T) page.getEmptyItem().fromCursor(columns);
                         long afterFromCursor = System.currentTimeMillis();
                         getParams().rememberSentDateLoaded(item.getDate());
+                        if (keysetPagination) {
+                            getParams().rememberKeyLoaded(columns.getLong(ActivityTable.UPDATED_DATE),
+                                    columns.getLong(ActivityTable.ACTIVITY_ID));
+                        }
                         if (item.matches(filter)) {
+                            if (snapshot != null) {
+                                snapshot.addRow(item.getId(), cursor);
+                            }
+                            itemsToEnrich.add(item);
                             if (reversedOrder) {
                                 page.items.add(0, item);
                             } else {
@@ -115,17 +161,35 @@ public class TimelineLoader<T extends ViewItem<T>> extends SyncLoader<T> {
                                     + ": " + (System.currentTimeMillis() - rowStartTime) + "ms, fromCursor: "
                             + (afterFromCursor - rowStartTime) + "ms");
                         }
-                    } while (cursor.moveToNext());
+                        if (publisher != null && publisher.isCancelled()) {
+                            getParams().cancelled = true;
+                        } else if (streaming && page.items.size() >= nextChunkSize) {
+                            enrich(itemsToEnrich);
+                            publisher.publishPartial(new TimelineLoader<>(this));
+                            nextChunkSize *= 2;
+                        }
+                    } while (!getParams().cancelled && cursor.moveToNext());
                 }
             } finally {
                 cursor.close();
             }
         }
+        if (!getParams().cancelled) {
+            enrich(itemsToEnrich);
+        }
         MyLog.d(this, "Filtered out " + filteredOutCount + " of " + rowsCount + " rows, "
                 + (System.currentTimeMillis() - startTime) + "ms" );
         getParams().rowsLoaded = rowsCount;
     }
 
+    /** Bulk loading of the data, which are not in the timeline cursor */
+    private void enrich(List<T> itemsToEnrich) {
+        if (!itemsToEnrich.isEmpty()) {
+            page.getEmptyItem().enrichPage(itemsToEnrich);
+            itemsToEnrich.clear();
+        }
+    }
+
     public TimelineParameters getParams() {
         return params;
     }
@@ -18,6 +18,7 @@ package org.andstatus.app.timeline;
 
 import android.support.annotation.NonNull;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
@@ -30,6 +31,10 @@ public class TimelinePage<T extends ViewItem<T>> {
     private final T emptyItem;
     @NonNull
     public final List<T> items;
+    /** Items, loaded so far: the page is being loaded still, so its duplicates are not collapsed yet */
+    final boolean isPartial;
+    /** Rows of the items of the default timeline, see {@link TimelineSnapshot} */
+    volatile TimelineSnapshot snapshot = null;
 
     @NonNull
     public T getEmptyItem() {
@@ -37,8 +42,20 @@ public class TimelinePage<T extends ViewItem<T>> {
     }
 
     public TimelinePage(@NonNull TimelineParameters params, List<T> items) {
+        this(params, items, false);
+    }
+
+    private TimelinePage(@NonNull TimelineParameters params, List<T> items, boolean isPartial) {
         this.params = params;
         emptyItem = new ViewItem<T>().getEmpty(params.getTimelineType());
         this.items = items == null ? Collections.EMPTY_LIST : items;
+        this.isPartial = isPartial;
+    }
+
+    /** A copy of the page, which is being loaded, to be shown before the loading is finished.
+     * The copy doesn't share changeable state with the loader */
+    @NonNull
+    TimelinePage<T> partialCopy() {
+        return new TimelinePage<>(params.copyOfLoaded(), new ArrayList<>(items), true);
     }
 }
@@ -20,6 +20,7 @@ import android.app.LoaderManager;
 import android.database.Cursor;
 import android.net.Uri;
 import android.os.Bundle;
+import android.provider.BaseColumns;
 import android.support.annotation.NonNull;
 import android.text.TextUtils;
 
@@ -27,9 +28,12 @@ import org.andstatus.app.IntentExtra;
 import org.andstatus.app.account.MyAccount;
 import org.andstatus.app.context.MyContext;
 import org.andstatus.app.data.MatchedUri;
+import org.andstatus.app.data.MsgSearchIndex;
 import org.andstatus.app.data.ParsedUri;
+import org.andstatus.app.data.ProjectionMap;
 import org.andstatus.app.data.TimelineSql;
 import org.andstatus.app.database.table.ActivityTable;
+import org.andstatus.app.database.table.MsgTable;
 import org.andstatus.app.timeline.meta.Timeline;
 import org.andstatus.app.timeline.meta.TimelineTitle;
 import org.andstatus.app.timeline.meta.TimelineType;
@@ -49,15 +53,20 @@ public class TimelineParameters {
      * are being loaded in a case User scrolls down to the end of list.
      */
     static final int PAGE_SIZE = 200;
+    private static final String ACTIVITY_ID_FIELD = ProjectionMap.ACTIVITY_TABLE_ALIAS + "." + BaseColumns._ID;
     Timeline timeline = Timeline.EMPTY;
 
     WhichPage whichPage = WhichPage.EMPTY;
     private Set<String> mProjection;
 
     long maxSentDate = 0;
+    /** Keyset pagination: id of the activity at {@link #maxSentDate}, the bound is exclusive if non-zero */
+    long maxActivityId = 0;
 
     // These params are updated just before page loading
     volatile long minSentDate = 0;
+    /** Keyset pagination: id of the activity at {@link #minSentDate}, the bound is exclusive if non-zero */
+    volatile long minActivityId = 0;
     volatile SelectionAndArgs selectionAndArgs = new SelectionAndArgs();
     volatile String sortOrderAndLimit = "";
 
@@ -68,6 +77,11 @@ public class TimelineParameters {
     volatile int rowsLoaded = 0;
     volatile long minSentDateLoaded = 0;
     volatile long maxSentDateLoaded = 0;
+    // Keyset of the edge rows: (activity updated date, activity id)
+    volatile long minActivityDateLoaded = 0;
+    volatile long minActivityIdLoaded = 0;
+    volatile long maxActivityDateLoaded = 0;
+    volatile long maxActivityIdLoaded = 0;
 
     public static TimelineParameters clone(@NonNull TimelineParameters prev, WhichPage whichPage) {
         TimelineParameters params = new TimelineParameters(prev.myContext);
@@ -78,6 +92,34 @@ public class TimelineParameters {
         return params;
     }
 
+    /** A copy of the parameters and of the loaded state as of now,
+     * which is not changed by the loader, while it continues loading the page */
+    @NonNull
+    TimelineParameters copyOfLoaded() {
+        TimelineParameters params = new TimelineParameters(myContext);
+        params.mLoaderCallbacks = mLoaderCallbacks;
+        params.timeline = timeline;
+        params.whichPage = whichPage;
+        params.mProjection = mProjection;
+        params.maxSentDate = maxSentDate;
+        params.maxActivityId = maxActivityId;
+        params.minSentDate = minSentDate;
+        params.minActivityId = minActivityId;
+        params.selectionAndArgs = selectionAndArgs;
+        params.sortOrderAndLimit = sortOrderAndLimit;
+        params.startTime = startTime;
+        params.endTime = endTime;
+        params.cancelled = cancelled;
+        params.rowsLoaded = rowsLoaded;
+        params.minSentDateLoaded = minSentDateLoaded;
+        params.maxSentDateLoaded = maxSentDateLoaded;
+        params.minActivityDateLoaded = minActivityDateLoaded;
+        params.minActivityIdLoaded = minActivityIdLoaded;
+        params.maxActivityDateLoaded = maxActivityDateLoaded;
+        params.maxActivityIdLoaded = maxActivityIdLoaded;
+        return params;
+    }
+
     private static void enrichNonEmptyParameters(TimelineParameters params, TimelineParameters prev) {
         params.mLoaderCallbacks = prev.mLoaderCallbacks;
         params.timeline = prev.getTimeline();
@@ -86,16 +128,29 @@ public class TimelineParameters {
         switch (params.whichPage) {
             case OLDER:
                 if (prev.mayHaveOlderPage()) {
-                    params.maxSentDate = prev.minSentDateLoaded;
+                    if (params.isKeysetPagination() && prev.minActivityIdLoaded > 0) {
+                        params.maxSentDate = prev.minActivityDateLoaded;
+                        params.maxActivityId = prev.minActivityIdLoaded;
+                    } else {
+                        params.maxSentDate = prev.minSentDateLoaded;
+                    }
                 } else {
                     params.maxSentDate = prev.maxSentDate;
+                    params.maxActivityId = prev.maxActivityId;
                 }
                 break;
             case YOUNGER:
-                if (prev.mayHaveYoungerPage()) {
-                    params.minSentDate = prev.maxSentDateLoaded;
+                // The youngest page also may become outdated, e.g. while it was in TimelineDataCache
+                if (prev.mayHaveYoungerPage() || (prev.maxSentDate == 0 && prev.maxSentDateLoaded > 0)) {
+                    if (params.isKeysetPagination() && prev.maxActivityIdLoaded > 0) {
+                        params.minSentDate = prev.maxActivityDateLoaded;
+                        params.minActivityId = prev.maxActivityIdLoaded;
+                    } else {
+                        params.minSentDate = prev.maxSentDateLoaded;
+                    }
                 } else {
                     params.minSentDate = prev.minSentDate;
+                    params.minActivityId = prev.minActivityId;
                 }
                 break;
             default:
@@ -115,13 +170,36 @@ public class TimelineParameters {
 
     public boolean mayHaveYoungerPage() {
         return maxSentDate > 0 ||
-                (minSentDate > 0 && rowsLoaded > 0 && minSentDate < maxSentDateLoaded);
+                (minSentDate > 0 && rowsLoaded > 0 && (minSentDate < maxSentDateLoaded || minActivityId > 0));
     }
 
     public boolean mayHaveOlderPage() {
         return whichPage.equals(WhichPage.CURRENT) ||
                 minSentDate > 0 ||
-                (maxSentDate > 0 && rowsLoaded > 0 && maxSentDate > minSentDateLoaded);
+                (maxSentDate > 0 && rowsLoaded > 0 && (maxSentDate > minSentDateLoaded || maxActivityId > 0));
+    }
+
+    /**
+     * Pages are bounded by the (activity updated date, activity id) pair of the edge row of the previous page,
+     * so adjacent pages don't overlap, and the bound is seekable using the activity timeline index
+     * (rowid is implicitly a part of it).
+     * Friends/Followers timelines don't have an activity for each row, so they are bounded by dates only.
+     */
+    public boolean isKeysetPagination() {
+        switch (getTimelineType()) {
+            case FOLLOWERS:
+            case MY_FOLLOWERS:
+            case FRIENDS:
+            case MY_FRIENDS:
+                return false;
+            default:
+                return true;
+        }
+    }
+
+    /** @return true if this page doesn't overlap with the adjacent pages: no need to remove duplicates */
+    public boolean isKeysetBounded() {
+        return minActivityId > 0 || maxActivityId > 0;
     }
 
     public boolean isSortOrderAscending() {
@@ -149,6 +227,8 @@ public class TimelineParameters {
             //    + ", projection=" + Arrays.toString(mProjection)
                 + (minSentDate > 0 ? ", minSentDate=" + new Date(minSentDate).toString() : "")
                 + (maxSentDate > 0 ? ", maxSentDate=" + new Date(maxSentDate).toString() : "")
+                + (minActivityId > 0 ? ", minActivityId=" + minActivityId : "")
+                + (maxActivityId > 0 ? ", maxActivityId=" + maxActivityId : "")
                 + (selectionAndArgs.isEmpty() ? "" : ", sa=" + selectionAndArgs)
                 + (TextUtils.isEmpty(sortOrderAndLimit) ? "" : ", sortOrder=" + sortOrderAndLimit)
                 + (startTime > 0 ? ", startTime=" + startTime : "")
@@ -192,8 +272,9 @@ public class TimelineParameters {
         if (!timeline.equals(that.timeline)) return false;
         if (!whichPage.equals(WhichPage.CURRENT) && !that.whichPage.equals(WhichPage.CURRENT)) {
             if (minSentDate != that.minSentDate) return false;
+            if (minActivityId != that.minActivityId) return false;
         }
-        return maxSentDate == that.maxSentDate;
+        return maxSentDate == that.maxSentDate && maxActivityId == that.maxActivityId;
     }
 
     @Override
@@ -203,8 +284,10 @@ public class TimelineParameters {
             result = 31 * result + (-1 ^ (-1 >>> 32));
         } else {
             result = 31 * result + (int) (minSentDate ^ (minSentDate >>> 32));
+            result = 31 * result + (int) (minActivityId ^ (minActivityId >>> 32));
         }
         result = 31 * result + (int) (maxSentDate ^ (maxSentDate >>> 32));
+        result = 31 * result + (int) (maxActivityId ^ (maxActivityId >>> 32));
         return result;
     }
 
@@ -212,6 +295,8 @@ public class TimelineParameters {
         whichPage = WhichPage.CURRENT;
         minSentDate = 0;
         maxSentDate = 0;
+        minActivityId = 0;
+        maxActivityId = 0;
         return parseUri(Uri.parse(savedInstanceState.getString(IntentExtra.MATCHED_URI.key,"")), "");
     }
     
@@ -241,6 +326,23 @@ public class TimelineParameters {
         }
     }
 
+    /** Remembers keys of the edge rows of the loaded page for keyset pagination */
+    public void rememberKeyLoaded(long activityDate, long activityId) {
+        if (activityId == 0) {
+            return;
+        }
+        if (minActivityIdLoaded == 0 || minActivityDateLoaded > activityDate
+                || (minActivityDateLoaded == activityDate && minActivityIdLoaded > activityId)) {
+            minActivityDateLoaded = activityDate;
+            minActivityIdLoaded = activityId;
+        }
+        if (maxActivityIdLoaded == 0 || maxActivityDateLoaded < activityDate
+                || (maxActivityDateLoaded == activityDate && maxActivityIdLoaded < activityId)) {
+            maxActivityDateLoaded = activityDate;
+            maxActivityIdLoaded = activityId;
+        }
+    }
+
     private void prepareQueryParameters() {
         switch (whichPage) {
             case CURRENT:
@@ -255,22 +357,60 @@ public class TimelineParameters {
 
     private String buildSortOrderAndLimit() {
         return  ActivityTable.getTimeSortOrder(getTimelineType(), isSortOrderAscending())
+                + (isKeysetPagination()
+                    ? ", " + ACTIVITY_ID_FIELD + (isSortOrderAscending() ? " ASC" : " DESC")
+                    : "")
                 + (minSentDate > 0 && maxSentDate > 0 ? "" : " LIMIT " + PAGE_SIZE);
     }
 
     private SelectionAndArgs buildSelectionAndArgs() {
         SelectionAndArgs sa = new SelectionAndArgs();
-        sa.addSelection(ActivityTable.getTimeSortField(getTimelineType()) + " >= ?",
+        final String dateField = ActivityTable.getTimeSortField(getTimelineType());
+        sa.addSelection(dateField + " >= ?",
                 new String[]{
                         String.valueOf(minSentDate > 0 ? minSentDate : 1)
                 });
+        if (minSentDate > 0 && minActivityId > 0) {
+            sa.addSelection("(" + dateField + " > ? OR (" + dateField + " = ? AND "
+                            + ACTIVITY_ID_FIELD + " > ?))",
+                    new String[]{
+                            String.valueOf(minSentDate), String.valueOf(minSentDate), String.valueOf(minActivityId)
+                    });
+        }
         if (maxSentDate > 0) {
-            sa.addSelection(ActivityTable.getTimeSortField(getTimelineType()) + " <= ?",
+            sa.addSelection(dateField + " <= ?",
                     String.valueOf(maxSentDate));
+            if (maxActivityId > 0) {
+                sa.addSelection("(" + dateField + " < ? OR (" + dateField + " = ? AND "
+                                + ACTIVITY_ID_FIELD + " < ?))",
+                        new String[]{
+                                String.valueOf(maxSentDate), String.valueOf(maxSentDate), String.valueOf(maxActivityId)
+                        });
+            }
         }
+        addFilterSelection(sa);
         return sa;
     }
 
+    /**
+     * Rows, hidden by the {@link TimelineFilter}, are not selected, so they don't reduce the page size.
+     * Items are still checked by the filter, e.g. messages, not yet added to the full text search index,
+     * or all messages, if there are too many keywords to check them in SQL without the full text search index
+     */
+    private void addFilterSelection(SelectionAndArgs sa) {
+        TimelineFilter filter = new TimelineFilter(timeline);
+        boolean useSearchIndex = MsgSearchIndex.isAvailable(myContext.getDatabase());
+        if (!filter.keywordsFilter.isEmpty() && filter.keywordsFilter.isSqlSelectionNoneMatchedUsable(useSearchIndex)) {
+            sa.addSelection(filter.keywordsFilter.getSqlSelectionNoneMatched(
+                    ProjectionMap.MSG_TABLE_ALIAS + "." + MsgTable.BODY_TO_SEARCH,
+                    ProjectionMap.MSG_TABLE_ALIAS + "." + BaseColumns._ID, useSearchIndex),
+                    filter.keywordsFilter.getSqlSelectionArgsNoneMatched(useSearchIndex));
+        }
+        if (filter.hideRepliesNotToMeOrFriends) {
+            sa.addSelection(TimelineSql.getRepliesToMeOrMyFriendsSelection(myContext));
+        }
+    }
+
     Cursor queryDatabase() {
         prepareQueryParameters();
         return myContext.context().getContentResolver().query(getContentUri(), mProjection.toArray(new String[]{}),
@@ -0,0 +1,344 @@
+/*
+ * Copyright (c) 2017 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.timeline;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.MatrixCursor;
+import android.support.annotation.NonNull;
+import android.support.v4.util.Pair;
+import android.util.LongSparseArray;
+
+import org.andstatus.app.context.MyPreferences;
+import org.andstatus.app.data.CursorColumns;
+import org.andstatus.app.database.DatabaseCreator;
+import org.andstatus.app.os.AsyncTaskLauncher;
+import org.andstatus.app.os.MyAsyncTask;
+import org.andstatus.app.util.MyLog;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Rows of the timeline cursor, from which items of a page of the default timeline were created.
+ * Rows of the items, visible when the timeline was left, are saved to a binary file in the cache directory,
+ * so at a cold start the items are shown at once, while the timeline is being loaded from the database.
+ * Items are created from the saved rows the same way as from the database.
+ * The file is ignored after a change of its format, of the database schema or of preferences.
+ * @author yvolk@yurivolkov.com
+ */
+class TimelineSnapshot {
+    private static final String TAG = TimelineSnapshot.class.getSimpleName();
+    private static final String FILE_NAME = "timeline_snapshot.bin";
+    /** Increase on any change of the file format */
+    private static final int FORMAT_VERSION = 1;
+    /** Roughly a screenful of rows */
+    static final int ROWS_COUNT = TimelineLoader.FIRST_CHUNK_SIZE;
+    /** Rows above the first visible item, which may be partially visible */
+    private static final int ROWS_ABOVE_VISIBLE = 2;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final byte TYPE_NULL = 0;
+    private static final byte TYPE_LONG = 1;
+    private static final byte TYPE_DOUBLE = 2;
+    private static final byte TYPE_STRING = 3;
+    private static final byte TYPE_BLOB = 4;
+
+    private final String[] columnNames;
+    /** Item id to its row */
+    private final LongSparseArray<Object[]> rows = new LongSparseArray<>();
+
+    private TimelineSnapshot(@NonNull String[] columnNames) {
+        this.columnNames = columnNames;
+    }
+
+    /** Rows are captured for the default timeline only, if the youngest rows come first
+     * @return null if rows of this page are not needed */
+    static TimelineSnapshot newCapture(@NonNull TimelineParameters params, @NonNull Cursor cursor) {
+        return params.isAtHome() && !params.isSortOrderAscending()
+                ? new TimelineSnapshot(cursor.getColumnNames()) : null;
+    }
+
+    /** Only the first {@link #ROWS_COUNT} rows are captured, so a long page doesn't keep copies of all its rows */
+    void addRow(long itemId, @NonNull Cursor cursor) {
+        if (rows.size() >= ROWS_COUNT) {
+            return;
+        }
+        Object[] row = new Object[columnNames.length];
+        for (int ind = 0; ind < columnNames.length; ind++) {
+            switch (cursor.getType(ind)) {
+                case Cursor.FIELD_TYPE_INTEGER:
+                    row[ind] = cursor.getLong(ind);
+                    break;
+                case Cursor.FIELD_TYPE_FLOAT:
+                    row[ind] = cursor.getDouble(ind);
+                    break;
+                case Cursor.FIELD_TYPE_STRING:
+                    row[ind] = cursor.getString(ind);
+                    break;
+                case Cursor.FIELD_TYPE_BLOB:
+                    row[ind] = cursor.getBlob(ind);
+                    break;
+                default:
+                    break;
+            }
+        }
+        rows.put(itemId, row);
+    }
+
+    int rowsCount() {
+        return rows.size();
+    }
+
+    /**
+     * Saves rows of the items, starting from the first visible one. Called in UI thread, the file is written in background.
+     * Captured rows are kept till the next load of the pages, so they may be saved again.
+     * If rows of the visible items were not captured, the file is deleted, so an outdated snapshot is not shown
+     */
+    static void save(@NonNull TimelineData<?> data, int firstVisiblePosition) {
+        Context context = data.params.getMyContext().context();
+        if (context == null || firstVisiblePosition < 0 || !data.params.isAtHome()) {
+            return;
+        }
+        final Pair<String[], List<Object[]>> rowsToSave = getRowsToSave(data, firstVisiblePosition);
+        final File file = new File(context.getCacheDir(), FILE_NAME);
+        final long timelineId = data.params.getTimeline().getId();
+        final long preferencesChangeTime = MyPreferences.getPreferencesChangeTime();
+        AsyncTaskLauncher.execute(TAG, false,
+                new MyAsyncTask<Void, Void, Void>(TAG + "Save", MyAsyncTask.PoolEnum.QUICK_UI) {
+                    @Override
+                    protected Void doInBackground2(Void... params) {
+                        if (rowsToSave == null) {
+                            if (file.exists()) {
+                                MyLog.v(TAG, "No rows of visible items, deleting");
+                                deleteFile(file);
+                            }
+                        } else {
+                            write(file, timelineId, preferencesChangeTime, rowsToSave.first, rowsToSave.second);
+                        }
+                        return null;
+                    }
+                });
+    }
+
+    /**
+     * Rows of adjacent items, the first visible item and a couple of items above it, which may be partially visible
+     * @return Column names and rows. null if the row of the first visible item was not captured
+     */
+    static Pair<String[], List<Object[]>> getRowsToSave(@NonNull TimelineData<?> data, int firstVisiblePosition) {
+        String[] columnNames = null;
+        final List<Object[]> rowsToSave = new ArrayList<>();
+        boolean visibleRowFound = false;
+        for (int position = Math.max(0, firstVisiblePosition - ROWS_ABOVE_VISIBLE);
+             position < data.size() && rowsToSave.size() < ROWS_COUNT; position++) {
+            long itemId = data.getItem(position).getId();
+            Object[] row = null;
+            for (TimelinePage<?> page : data.pages) {
+                TimelineSnapshot snapshot = page.snapshot;
+                row = snapshot == null ? null : snapshot.rows.get(itemId);
+                if (row != null) {
+                    if (columnNames == null) {
+                        columnNames = snapshot.columnNames;
+                    } else if (!Arrays.equals(columnNames, snapshot.columnNames)) {
+                        row = null;
+                    }
+                    break;
+                }
+            }
+            if (row == null) {
+                if (position >= firstVisiblePosition) {
+                    break;
+                }
+                // Rows above the visible one are optional, but the saved rows should be adjacent
+                columnNames = null;
+                rowsToSave.clear();
+            } else {
+                rowsToSave.add(row);
+                if (position == firstVisiblePosition) {
+                    visibleRowFound = true;
+                }
+            }
+        }
+        if (!visibleRowFound) {
+            return null;
+        }
+        return new Pair<>(columnNames, rowsToSave);
+    }
+
+    static void write(File file, long timelineId, long preferencesChangeTime, String[] columnNames,
+                              List<Object[]> rowsToSave) {
+        File tmpFile = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)))) {
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(DatabaseCreator.DATABASE_VERSION);
+            out.writeLong(timelineId);
+            out.writeLong(preferencesChangeTime);
+            out.writeInt(columnNames.length);
+            for (String columnName : columnNames) {
+                writeBytes(out, columnName.getBytes(UTF_8));
+            }
+            out.writeInt(rowsToSave.size());
+            for (Object[] row : rowsToSave) {
+                for (Object value : row) {
+                    writeValue(out, value);
+                }
+            }
+        } catch (IOException e) {
+            MyLog.d(TAG, "Failed to write " + tmpFile.getPath(), e);
+            return;
+        }
+        if (tmpFile.renameTo(file)) {
+            MyLog.v(TAG, "Saved " + rowsToSave.size() + " rows, " + file.length() + " bytes");
+        } else {
+            MyLog.d(TAG, "Failed to rename " + tmpFile.getPath());
+        }
+    }
+
+    private static void writeValue(DataOutputStream out, Object value) throws IOException {
+        if (value instanceof Long) {
+            out.writeByte(TYPE_LONG);
+            out.writeLong((Long) value);
+        } else if (value instanceof Double) {
+            out.writeByte(TYPE_DOUBLE);
+            out.writeDouble((Double) value);
+        } else if (value instanceof String) {
+            out.writeByte(TYPE_STRING);
+            writeBytes(out, ((String) value).getBytes(UTF_8));
+        } else if (value instanceof byte[]) {
+            out.writeByte(TYPE_BLOB);
+            writeBytes(out, (byte[]) value);
+        } else {
+            out.writeByte(TYPE_NULL);
+        }
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Called not in UI thread
+     * @return null if there is no valid snapshot of the timeline
+     */
+    static <T extends ViewItem<T>> TimelinePage<T> load(@NonNull TimelineParameters params) {
+        Context context = params.getMyContext().context();
+        if (context == null) {
+            return null;
+        }
+        MatrixCursor cursor = read(new File(context.getCacheDir(), FILE_NAME), params.getTimeline().getId(),
+                MyPreferences.getPreferencesChangeTime());
+        return cursor == null ? null : newPage(params, cursor);
+    }
+
+    /** @return null if the file is absent or is not valid for the timeline */
+    static MatrixCursor read(File file, long timelineId, long preferencesChangeTime) {
+        if (!file.exists()) {
+            return null;
+        }
+        MatrixCursor cursor;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != FORMAT_VERSION || in.readInt() != DatabaseCreator.DATABASE_VERSION) {
+                MyLog.v(TAG, "Outdated format, deleting");
+                in.close();
+                deleteFile(file);
+                return null;
+            }
+            if (in.readLong() != timelineId || in.readLong() != preferencesChangeTime) {
+                return null;
+            }
+            String[] columnNames = new String[in.readInt()];
+            for (int ind = 0; ind < columnNames.length; ind++) {
+                columnNames[ind] = new String(readBytes(in), UTF_8);
+            }
+            int rowsCount = in.readInt();
+            cursor = new MatrixCursor(columnNames, rowsCount);
+            for (int rowInd = 0; rowInd < rowsCount; rowInd++) {
+                Object[] row = new Object[columnNames.length];
+                for (int ind = 0; ind < columnNames.length; ind++) {
+                    row[ind] = readValue(in);
+                }
+                cursor.addRow(row);
+            }
+        } catch (IOException e) {
+            MyLog.d(TAG, "Failed to read " + file.getPath(), e);
+            return null;
+        }
+        return cursor;
+    }
+
+    private static Object readValue(DataInputStream in) throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+            case TYPE_NULL:
+                return null;
+            case TYPE_LONG:
+                return in.readLong();
+            case TYPE_DOUBLE:
+                return in.readDouble();
+            case TYPE_STRING:
+                return new String(readBytes(in), UTF_8);
+            case TYPE_BLOB:
+                return readBytes(in);
+            default:
+                throw new IOException("Unknown value type " + type);
+        }
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    /** The page is not marked as loaded, so it is not cached and it doesn't change the saved position */
+    private static <T extends ViewItem<T>> TimelinePage<T> newPage(TimelineParameters params, Cursor cursor) {
+        TimelinePage<T> page = new TimelinePage<>(TimelineParameters.clone(params, WhichPage.CURRENT),
+                new ArrayList<>());
+        TimelineFilter filter = new TimelineFilter(params.getTimeline());
+        try {
+            CursorColumns columns = new CursorColumns(cursor);
+            while (cursor.moveToNext()) {
+                T item = (T) page.getEmptyItem().fromCursor(columns);
+                if (item.matches(filter)) {
+                    page.items.add(item);
+                }
+            }
+        } finally {
+            cursor.close();
+        }
+        page.getEmptyItem().enrichPage(page.items);
+        MyLog.v(TAG, "Loaded " + page.items.size() + " items");
+        return page;
+    }
+
+    private static void deleteFile(File file) {
+        if (!file.delete()) {
+            MyLog.d(TAG, "Failed to delete " + file.getPath());
+        }
+    }
+}
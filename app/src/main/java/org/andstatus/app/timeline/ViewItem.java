@@ -16,9 +16,9 @@
 
 package org.andstatus.app.timeline;
 
-import android.database.Cursor;
 import android.support.annotation.NonNull;
 
+import org.andstatus.app.data.CursorColumns;
 import org.andstatus.app.msg.KeywordsFilter;
 import org.andstatus.app.timeline.meta.TimelineType;
 
@@ -42,6 +42,11 @@ public class ViewItem<T extends ViewItem<T>> {
         return 0;
     }
 
+    /** Rough estimate of the memory, taken by this item without its children, in bytes */
+    public long getEstimatedMemoryBytes() {
+        return 200;
+    }
+
     @NonNull
     public final Collection<T> getChildren() {
         return children;
@@ -64,11 +69,17 @@ public class ViewItem<T extends ViewItem<T>> {
 
     /** @return 1. The item and 2. if it should be skipped (filtered out) */
     @NonNull
-    public T fromCursor(Cursor cursor) {
+    public T fromCursor(CursorColumns columns) {
         return getEmpty(TimelineType.UNKNOWN);
     }
 
     public boolean matches(TimelineFilter filter) {
         return true;
     }
+
+    /** Loads data, related to many items, in bulk: after the items were read from a cursor.
+     * Called for the empty item */
+    public void enrichPage(@NonNull List<T> items) {
+        // Empty
+    }
 }
@@ -29,10 +29,11 @@ import android.widget.Filterable;
 import org.andstatus.app.MyActivity;
 import org.andstatus.app.R;
 import org.andstatus.app.context.MyContextHolder;
+import org.andstatus.app.data.MyProvider;
+import org.andstatus.app.data.UserSearchIndex;
 import org.andstatus.app.database.table.UserTable;
 import org.andstatus.app.graphics.AvatarView;
 import org.andstatus.app.origin.Origin;
-import org.andstatus.app.util.CollectionsUtil;
 import org.andstatus.app.util.I18n;
 import org.andstatus.app.util.MyLog;
 import org.andstatus.app.util.MyUrlSpan;
@@ -111,17 +112,26 @@ public class UserAutoCompleteAdapter extends BaseAdapter implements Filterable {
 
     /**
      * <p>An array filter constrains the content of the array adapter with
-     * a prefix. Each item that does not start with the supplied prefix
+     * a prefix. Each item that does not have a name or a word of a name, starting with the supplied prefix,
      * is removed from the list.</p>
+     * When the user continues typing, already loaded items are narrowed down without a database query,
+     * unless the previous list was truncated
      */
     private class ArrayFilter extends Filter {
+        private String loadedPrefix = "";
+        private List<UserViewItem> loadedValues = Collections.emptyList();
+
         @Override
         protected FilterResults performFiltering(CharSequence prefix) {
             List<UserViewItem> filteredValues = new ArrayList<>();
-            if (!TextUtils.isEmpty(prefix)) {
-                final String prefixString = prefix.toString().toLowerCase();
-                filteredValues = loadFiltered(prefixString);
-                CollectionsUtil.sort(filteredValues);
+            final String prefixString = UserSearchIndex.toPrefix(prefix == null ? "" : prefix.toString());
+            if (!TextUtils.isEmpty(prefixString)) {
+                filteredValues = narrowLoaded(prefixString);
+                if (filteredValues.isEmpty()) {
+                    filteredValues = loadFiltered(prefixString);
+                    loadedPrefix = prefixString;
+                    loadedValues = filteredValues;
+                }
             }
             final FilterResults results = new FilterResults();
             results.values = filteredValues;
@@ -129,17 +139,33 @@ public class UserAutoCompleteAdapter extends BaseAdapter implements Filterable {
             return results;
         }
 
+        @NonNull
+        private List<UserViewItem> narrowLoaded(final String prefixString) {
+            List<UserViewItem> filteredValues = new ArrayList<>();
+            if (TextUtils.isEmpty(loadedPrefix) || !prefixString.startsWith(loadedPrefix)
+                    || loadedValues.size() >= MyProvider.USER_LIST_PAGE_SIZE) {
+                return filteredValues;
+            }
+            for (UserViewItem viewItem : loadedValues) {
+                if (!viewItem.isEmpty() && UserSearchIndex.matches(prefixString, viewItem.mbUser.getUserName(),
+                        viewItem.mbUser.getWebFingerId(), viewItem.mbUser.getRealName())) {
+                    filteredValues.add(viewItem);
+                }
+            }
+            return filteredValues;
+        }
+
         private List<UserViewItem> loadFiltered(final String prefixString) {
             if (!origin.isValid()) {
                 return Collections.emptyList();
             }
             UserListLoader loader = new UserListLoader(UserListType.USERS,
-                    MyContextHolder.get().persistentAccounts().getFirstSucceededForOrigin(origin), origin, 0, "") {
+                    MyContextHolder.get().persistentAccounts().getFirstSucceededForOrigin(origin), origin, 0,
+                    prefixString) {
                 @NonNull
                 @Override
                 protected String getSelection() {
-                    return UserTable.TABLE_NAME + "." + UserTable.ORIGIN_ID + "=" + origin.getId() + " AND "
-                            + UserTable.TABLE_NAME + "." + UserTable.WEBFINGER_ID + " LIKE '" + prefixString + "%'";
+                    return UserTable.TABLE_NAME + "." + UserTable.ORIGIN_ID + "=" + origin.getId();
                 }
             };
             loader.load(null);
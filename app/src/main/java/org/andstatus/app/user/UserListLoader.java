@@ -9,7 +9,7 @@ import org.andstatus.app.R;
 import org.andstatus.app.account.MyAccount;
 import org.andstatus.app.context.MyContextHolder;
 import org.andstatus.app.context.MyPreferences;
-import org.andstatus.app.data.DbUtils;
+import org.andstatus.app.data.CursorColumns;
 import org.andstatus.app.data.MatchedUri;
 import org.andstatus.app.data.SqlWhere;
 import org.andstatus.app.data.UserListSql;
@@ -98,8 +98,11 @@ public class UserListLoader extends SyncLoader<UserViewItem> {
                 searchQuery);
         try (Cursor c = MyContextHolder.get().context().getContentResolver()
                     .query(mContentUri, UserListSql.getListProjection(), getSelection(), null, null)) {
-            while ( c != null && c.moveToNext()) {
-                populateItem(c);
+            if (c != null) {
+                CursorColumns columns = new CursorColumns(c);
+                while (c.moveToNext()) {
+                    populateItem(columns);
+                }
             }
         }
     }
@@ -117,15 +120,15 @@ public class UserListLoader extends SyncLoader<UserViewItem> {
 
     }
 
-    private void populateItem(Cursor cursor) {
-        UserViewItem item = getById(DbUtils.getLong(cursor, BaseColumns._ID));
+    private void populateItem(CursorColumns columns) {
+        long userId = columns.getLong(BaseColumns._ID);
+        UserViewItem item = getById(userId);
         if (item == null) {
-            long userId = DbUtils.getLong(cursor, BaseColumns._ID);
             Origin origin = MyContextHolder.get().persistentOrigins().fromId(
-                    DbUtils.getLong(cursor, UserTable.ORIGIN_ID));
+                    columns.getLong(UserTable.ORIGIN_ID));
             item = addUserIdToList(origin, userId);
         }
-        item.populateFromCursor(cursor);
+        item.populateFromCursor(columns);
     }
 
     private UserViewItem getById(long userId) {
@@ -26,7 +26,7 @@ import org.andstatus.app.account.MyAccount;
 import org.andstatus.app.context.MyContextHolder;
 import org.andstatus.app.context.MyPreferences;
 import org.andstatus.app.data.AvatarFile;
-import org.andstatus.app.data.DbUtils;
+import org.andstatus.app.data.CursorColumns;
 import org.andstatus.app.data.MatchedUri;
 import org.andstatus.app.data.MyQuery;
 import org.andstatus.app.data.OidEnum;
@@ -148,43 +148,46 @@ public class UserViewItem extends ViewItem<UserViewItem> implements Comparable<U
         Uri mContentUri = MatchedUri.getUserListItemUri(0, UserListType.USERS, mbUser.originId , getId());
         try (Cursor c = MyContextHolder.get().context().getContentResolver()
                 .query(mContentUri, UserListSql.getListProjection(), null, null, null)) {
-            while ( c != null && c.moveToNext()) {
-                populateFromCursor(c);
+            if (c != null) {
+                CursorColumns columns = new CursorColumns(c);
+                while (c.moveToNext()) {
+                    populateFromCursor(columns);
+                }
             }
         }
     }
 
-    void populateFromCursor(Cursor cursor) {
+    void populateFromCursor(CursorColumns columns) {
         MbUser user = mbUser;
-        user.oid = DbUtils.getString(cursor, UserTable.USER_OID);
-        user.setUserName(DbUtils.getString(cursor, UserTable.USERNAME));
-        user.setWebFingerId(DbUtils.getString(cursor, UserTable.WEBFINGER_ID));
-        user.setRealName(DbUtils.getString(cursor, UserTable.REAL_NAME));
-        user.setDescription(DbUtils.getString(cursor, UserTable.DESCRIPTION));
-        user.location = DbUtils.getString(cursor, UserTable.LOCATION);
+        user.oid = columns.getString(UserTable.USER_OID);
+        user.setUserName(columns.getString(UserTable.USERNAME));
+        user.setWebFingerId(columns.getString(UserTable.WEBFINGER_ID));
+        user.setRealName(columns.getString(UserTable.REAL_NAME));
+        user.setDescription(columns.getString(UserTable.DESCRIPTION));
+        user.location = columns.getString(UserTable.LOCATION);
 
-        user.setProfileUrl(DbUtils.getString(cursor, UserTable.PROFILE_URL));
-        user.setHomepage(DbUtils.getString(cursor, UserTable.HOMEPAGE));
+        user.setProfileUrl(columns.getString(UserTable.PROFILE_URL));
+        user.setHomepage(columns.getString(UserTable.HOMEPAGE));
 
-        user.msgCount = DbUtils.getLong(cursor, UserTable.MSG_COUNT);
-        user.favoritesCount = DbUtils.getLong(cursor, UserTable.FAVORITES_COUNT);
-        user.followingCount = DbUtils.getLong(cursor, UserTable.FOLLOWING_COUNT);
-        user.followersCount = DbUtils.getLong(cursor, UserTable.FOLLOWERS_COUNT);
+        user.msgCount = columns.getLong(UserTable.MSG_COUNT);
+        user.favoritesCount = columns.getLong(UserTable.FAVORITES_COUNT);
+        user.followingCount = columns.getLong(UserTable.FOLLOWING_COUNT);
+        user.followersCount = columns.getLong(UserTable.FOLLOWERS_COUNT);
 
-        user.setCreatedDate(DbUtils.getLong(cursor, UserTable.CREATED_DATE));
-        user.setUpdatedDate(DbUtils.getLong(cursor, UserTable.UPDATED_DATE));
+        user.setCreatedDate(columns.getLong(UserTable.CREATED_DATE));
+        user.setUpdatedDate(columns.getLong(UserTable.UPDATED_DATE));
 
         myFollowers = MyQuery.getMyFollowersOf(getUserId());
-        AvatarFile avatarFile = AvatarFile.fromCursor(getUserId(), cursor, DownloadTable.AVATAR_FILE_NAME);
+        AvatarFile avatarFile = AvatarFile.fromCursor(getUserId(), columns, DownloadTable.AVATAR_FILE_NAME);
         setAvatarFile(avatarFile);
 
         populated = true;
     }
 
-    public void populateActorFromCursor(Cursor cursor) {
+    public void populateActorFromCursor(CursorColumns columns) {
         MbUser user = mbUser;
-        user.setRealName(DbUtils.getString(cursor, UserTable.ACTOR_NAME));
-        AvatarFile avatarFile = AvatarFile.fromCursor(getUserId(), cursor, DownloadTable.ACTOR_AVATAR_FILE_NAME);
+        user.setRealName(columns.getString(UserTable.ACTOR_NAME));
+        AvatarFile avatarFile = AvatarFile.fromCursor(getUserId(), columns, DownloadTable.ACTOR_AVATAR_FILE_NAME);
         setAvatarFile(avatarFile);
 
         populated = true;
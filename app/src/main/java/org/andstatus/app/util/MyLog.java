@@ -601,11 +601,15 @@ public class MyLog {
     }
 
     public static void logNetworkLevelMessage(Object objTag, String namePrefix, Object jso) {
-        if (jso != null && isLoggable(objTag, VERBOSE) 
-                && SharedPreferencesUtil.getBoolean(MyPreferences.KEY_LOG_NETWORK_LEVEL_MESSAGES, false)) {
+        if (jso != null && isLogNetworkLevelMessages(objTag)) {
             logJson(objTag, namePrefix, jso, MyPreferences.isLogEverythingToFile());
         }
     }
+
+    public static boolean isLogNetworkLevelMessages(Object objTag) {
+        return isLoggable(objTag, VERBOSE)
+                && SharedPreferencesUtil.getBoolean(MyPreferences.KEY_LOG_NETWORK_LEVEL_MESSAGES, false);
+    }
    
     public static void logJson(Object objTag, String namePrefix, Object jso, boolean toFile) {
         if (jso == null) {
@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2017 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Locality sensitive 64 bit fingerprint of a text (<a href="https://en.wikipedia.org/wiki/SimHash">SimHash</a>)
+ * over shingles of two adjacent words. Similar texts have fingerprints, which differ in a few bits only.
+ * Links, trailing hashtags and punctuation at the ends of words are ignored, so e.g. cross-posted texts,
+ * which differ in URL shorteners or in appended hashtags only, get the same fingerprint.
+ * @author yvolk@yurivolkov.com
+ */
+public class SimHash {
+    /** No fingerprint: the text is too short */
+    public static final long EMPTY = 0;
+    /** Texts, which fingerprints differ in not more than this number of bits, are similar */
+    public static final int MAX_DISTANCE = 7;
+    private static final int MIN_SHINGLES_COUNT = 3;
+
+    private SimHash() {
+        // Empty
+    }
+
+    /**
+     * @param cleanedText Text, prepared by {@link MyHtml#getCleanedBody(String)}: lowercase,
+     *                    words are separated by single spaces
+     * @return {@link #EMPTY} if the text has too few words
+     */
+    public static long of(String cleanedText) {
+        List<String> words = getWords(cleanedText);
+        if (words.size() <= MIN_SHINGLES_COUNT) {
+            return EMPTY;
+        }
+        int[] weights = new int[64];
+        for (int ind = 1; ind < words.size(); ind++) {
+            long hash = hash64(words.get(ind - 1), words.get(ind));
+            for (int bit = 0; bit < 64; bit++) {
+                weights[bit] += ((hash >>> bit) & 1) == 0 ? -1 : 1;
+            }
+        }
+        long simHash = 0;
+        for (int bit = 0; bit < 64; bit++) {
+            if (weights[bit] > 0) {
+                simHash |= 1L << bit;
+            }
+        }
+        return simHash == EMPTY ? 1 : simHash;
+    }
+
+    public static int distance(long simHash1, long simHash2) {
+        return Long.bitCount(simHash1 ^ simHash2);
+    }
+
+    public static boolean areSimilar(long simHash1, long simHash2) {
+        return simHash1 != EMPTY && simHash2 != EMPTY && distance(simHash1, simHash2) <= MAX_DISTANCE;
+    }
+
+    private static List<String> getWords(String cleanedText) {
+        List<String> words = new ArrayList<>();
+        if (StringUtils.nonEmpty(cleanedText)) {
+            for (String token : cleanedText.split(" ")) {
+                if (!isPartOfLink(token)) {
+                    String word = stripPunctuation(token);
+                    if (!word.isEmpty()) {
+                        words.add(word);
+                    }
+                }
+            }
+        }
+        while (!words.isEmpty() && words.get(words.size() - 1).startsWith("#")) {
+            words.remove(words.size() - 1);
+        }
+        return words;
+    }
+
+    /** Leading "#" and "@" are kept to distinguish hashtags and mentions */
+    private static String stripPunctuation(String token) {
+        int start = 0;
+        while (start < token.length() && !Character.isLetterOrDigit(token.charAt(start))
+                && token.charAt(start) != '#' && token.charAt(start) != '@') {
+            start++;
+        }
+        int end = token.length();
+        while (end > start && !Character.isLetterOrDigit(token.charAt(end - 1))) {
+            end--;
+        }
+        return start == 0 && end == token.length() ? token : token.substring(start, end);
+    }
+
+    /** Colons are removed from a cleaned text, so "https://example.com" becomes "https //example.com" */
+    private static boolean isPartOfLink(String word) {
+        return word.startsWith("//") || word.equals("http") || word.equals("https");
+    }
+
+    /** FNV-1a hash with a final mix of bits, see https://en.wikipedia.org/wiki/Fowler-Noll-Vo_hash_function */
+    private static long hash64(String word1, String word2) {
+        long hash = 0xcbf29ce484222325L;
+        hash = hash64(hash, word1);
+        hash = (hash ^ ' ') * 0x100000001b3L;
+        hash = hash64(hash, word2);
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    private static long hash64(long hashIn, String word) {
+        long hash = hashIn;
+        for (int ind = 0; ind < word.length(); ind++) {
+            hash = (hash ^ word.charAt(ind)) * 0x100000001b3L;
+        }
+        return hash;
+    }
+}
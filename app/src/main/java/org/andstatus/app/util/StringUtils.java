@@ -16,6 +16,7 @@
 
 package org.andstatus.app.util;
 
+import android.support.annotation.NonNull;
 import android.text.TextUtils;
 
 /**
@@ -76,6 +77,19 @@ public class StringUtils {
         return ans;
     }
 
+    public static String[] addBeforeArray(String[] array, @NonNull String[] before) {
+        if (before.length == 0) {
+            return array;
+        }
+        int length = array == null ? 0 : array.length;
+        String[] ans = new String[before.length + length];
+        System.arraycopy(before, 0, ans, 0, before.length);
+        if (length > 0) {
+            System.arraycopy(array, 0, ans, before.length, length);
+        }
+        return ans;
+    }
+
     public static boolean isFilled(String value) {
         return !TextUtils.isEmpty(value);
     }